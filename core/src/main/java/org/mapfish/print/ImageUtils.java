@@ -1,10 +1,15 @@
 package org.mapfish.print;
 
-import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 
 /** Utility functions for images. */
 public final class ImageUtils {
@@ -20,7 +25,7 @@ public final class ImageUtils {
    * @param output a <code>File</code> to be written to.
    * @throws IOException if an error occurs during writing.
    */
-  public static void writeImage(final BufferedImage im, final String formatName, final File output)
+  public static void writeImage(final RenderedImage im, final String formatName, final File output)
       throws IOException {
     if (!ImageIO.write(im, formatName, output)) {
       throw new RuntimeException("Image format not supported: " + formatName);
@@ -36,10 +41,45 @@ public final class ImageUtils {
    * @throws IOException if an error occurs during writing.
    */
   public static void writeImage(
-      final BufferedImage im, final String formatName, final OutputStream output)
+      final RenderedImage im, final String formatName, final OutputStream output)
       throws IOException {
     if (!ImageIO.write(im, formatName, output)) {
       throw new RuntimeException("Image format not supported: " + formatName);
     }
   }
+
+  /**
+   * Equivalent to {@link ImageIO#write}, but handle errors and the deflate level of the PNG files.
+   *
+   * @param im a <code>RenderedImage</code> to be written.
+   * @param formatName a <code>String</code> containing the informal name of the format.
+   * @param output a <code>File</code> to be written to.
+   * @param pngCompressionLevel the deflate level (0-9) used for the PNG files, -1 for the default
+   *     of the image writer.
+   * @throws IOException if an error occurs during writing.
+   */
+  public static void writeImage(
+      final RenderedImage im,
+      final String formatName,
+      final File output,
+      final int pngCompressionLevel)
+      throws IOException {
+    if (pngCompressionLevel < 0 || !"png".equalsIgnoreCase(formatName)) {
+      writeImage(im, formatName, output);
+      return;
+    }
+    final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+    // the image output stream does not truncate an existing file
+    Files.deleteIfExists(output.toPath());
+    try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(outputStream);
+      final ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      // the PNG writer uses a deflate level of 9 - round(9 * quality)
+      param.setCompressionQuality(1.0f - Math.min(pngCompressionLevel, 9) / 9.0f);
+      writer.write(null, new IIOImage(im, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
 }
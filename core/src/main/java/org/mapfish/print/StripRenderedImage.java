@@ -0,0 +1,191 @@
+package org.mapfish.print;
+
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+import java.util.function.BiConsumer;
+
+/**
+ * An image rendered on demand in horizontal strips. Only the last used strip is kept in memory, so
+ * an image writer reading the image row by row (like the PNG writer) never needs the full raster.
+ */
+public final class StripRenderedImage implements RenderedImage {
+  private final int width;
+  private final int height;
+  private final int stripHeight;
+  private final int imageType;
+  private final BiConsumer<BufferedImage, Integer> stripRenderer;
+  private final BufferedImage sample;
+
+  private int currentStripIndex = -1;
+  private Raster currentStrip;
+
+  /**
+   * Constructor.
+   *
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param stripHeight the height of the strips.
+   * @param imageType the type of the strip images, see {@link BufferedImage#getType()}.
+   * @param stripRenderer called to render a strip image, with the y coordinate of the strip top in
+   *     the full image.
+   */
+  public StripRenderedImage(
+      final int width,
+      final int height,
+      final int stripHeight,
+      final int imageType,
+      final BiConsumer<BufferedImage, Integer> stripRenderer) {
+    this.width = width;
+    this.height = height;
+    this.stripHeight = stripHeight;
+    this.imageType = imageType;
+    this.stripRenderer = stripRenderer;
+    this.sample = new BufferedImage(1, 1, imageType);
+  }
+
+  @Override
+  public Vector<RenderedImage> getSources() {
+    return null;
+  }
+
+  @Override
+  public Object getProperty(final String name) {
+    return Image.UndefinedProperty;
+  }
+
+  @Override
+  public String[] getPropertyNames() {
+    return null;
+  }
+
+  @Override
+  public ColorModel getColorModel() {
+    return this.sample.getColorModel();
+  }
+
+  @Override
+  public SampleModel getSampleModel() {
+    return this.sample.getSampleModel().createCompatibleSampleModel(this.width, this.stripHeight);
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getMinX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinY() {
+    return 0;
+  }
+
+  @Override
+  public int getNumXTiles() {
+    return 1;
+  }
+
+  @Override
+  public int getNumYTiles() {
+    return (this.height + this.stripHeight - 1) / this.stripHeight;
+  }
+
+  @Override
+  public int getMinTileX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinTileY() {
+    return 0;
+  }
+
+  @Override
+  public int getTileWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getTileHeight() {
+    return this.stripHeight;
+  }
+
+  @Override
+  public int getTileGridXOffset() {
+    return 0;
+  }
+
+  @Override
+  public int getTileGridYOffset() {
+    return 0;
+  }
+
+  @Override
+  public synchronized Raster getTile(final int tileX, final int tileY) {
+    if (tileY != this.currentStripIndex) {
+      // release the previous strip before rendering the next one
+      this.currentStrip = null;
+      final int y = tileY * this.stripHeight;
+      final BufferedImage strip =
+          new BufferedImage(
+              this.width, Math.min(this.stripHeight, this.height - y), this.imageType);
+      this.stripRenderer.accept(strip, y);
+      this.currentStrip =
+          strip.getRaster().createChild(0, 0, strip.getWidth(), strip.getHeight(), 0, y, null);
+      this.currentStripIndex = tileY;
+    }
+    return this.currentStrip;
+  }
+
+  @Override
+  public Raster getData() {
+    return getData(new Rectangle(0, 0, this.width, this.height));
+  }
+
+  @Override
+  public Raster getData(final Rectangle rect) {
+    return copyData(
+        this.sample
+            .getRaster()
+            .createCompatibleWritableRaster(rect.x, rect.y, rect.width, rect.height));
+  }
+
+  @Override
+  public WritableRaster copyData(final WritableRaster raster) {
+    final WritableRaster target =
+        raster != null
+            ? raster
+            : this.sample.getRaster().createCompatibleWritableRaster(this.width, this.height);
+    final Rectangle bounds = target.getBounds();
+    final int firstStrip = Math.max(0, bounds.y / this.stripHeight);
+    final int lastStrip =
+        Math.min(getNumYTiles() - 1, (bounds.y + bounds.height - 1) / this.stripHeight);
+    for (int i = firstStrip; i <= lastStrip; i++) {
+      final Raster strip = getTile(0, i);
+      final Rectangle intersection = strip.getBounds().intersection(bounds);
+      target.setDataElements(
+          intersection.x,
+          intersection.y,
+          intersection.width,
+          intersection.height,
+          strip.getDataElements(
+              intersection.x, intersection.y, intersection.width, intersection.height, null));
+    }
+    return target;
+  }
+}
@@ -101,6 +101,8 @@ public class Configuration implements ConfigurationObject {
   private Map<String, Style> namedStyles = new HashMap<>();
   private UriMatchers allowedReferers = null;
   private SmtpConfig smtp = null;
+  private int pngCompressionLevel = -1;
+  private boolean generalizeVectorLayers = false;
 
   /** The color used to draw the WMS tiles error default: transparent pink. */
   private String transparentTileErrorColor = "rgba(255, 78, 78, 125)";
@@ -155,6 +157,44 @@ public class Configuration implements ConfigurationObject {
     this.defaultToSvg = defaultToSvg;
   }
 
+  public final boolean isGeneralizeVectorLayers() {
+    return this.generalizeVectorLayers;
+  }
+
+  /**
+   * If true then the features of the vector layers (geojson, gml and features) that are outside the
+   * map are dropped, and their geometries are simplified to the resolution of the map, before they
+   * are rendered. This reduces the rendering time and the size of the SVG layers when the features
+   * are much larger or much more detailed than the printed map.
+   *
+   * <p>Only the features in the projection of the map are generalized. The default is false.
+   *
+   * @param generalizeVectorLayers whether or not to generalize the vector layers
+   */
+  public final void setGeneralizeVectorLayers(final boolean generalizeVectorLayers) {
+    this.generalizeVectorLayers = generalizeVectorLayers;
+  }
+
+  public final int getPngCompressionLevel() {
+    return this.pngCompressionLevel;
+  }
+
+  /**
+   * The deflate level (0-9) of the intermediate PNG files (map layers, scalebar, north arrow and
+   * legend icons) that are written in the working directory and read back by the report.
+   *
+   * <p>These files are deleted when the print job is done, so the default of the image writer
+   * trades a lot of CPU for a size that is rarely worth it. 0 stores them without compression (the
+   * fastest), 1 is a good compromise when the working directory is on a slow disk.
+   *
+   * <p>The default is -1: the default level of the image writer.
+   *
+   * @param pngCompressionLevel the deflate level
+   */
+  public final void setPngCompressionLevel(final int pngCompressionLevel) {
+    this.pngCompressionLevel = pngCompressionLevel;
+  }
+
   /** The configuration for locating a custom certificate store. */
   @Nullable
   public final CertificateStore getCertificateStore() {
@@ -497,6 +537,11 @@ public class Configuration implements ConfigurationObject {
           new ConfigurationException(
               "Configuration file is field on configuration " + "object is null"));
     }
+    if (this.pngCompressionLevel < -1 || this.pngCompressionLevel > 9) {
+      validationErrors.add(
+          new ConfigurationException(
+              "pngCompressionLevel must be between 0 and 9 (or -1 for the default)"));
+    }
     if (this.templates.isEmpty()) {
       validationErrors.add(new ConfigurationException("There are not templates defined."));
     }
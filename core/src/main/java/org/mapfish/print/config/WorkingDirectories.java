@@ -17,6 +17,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 /** Class for configuring the working directories and ensuring they exist correctly. */
 public class WorkingDirectories {
   private static final String TASK_DIR_PREFIX = "task-";
+  private static final String JASPER_COMPILATION_DIR = "jasper-bin";
+  private static final String GENERATED_REPORTS_DIR = "generated";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WorkingDirectories.class);
 
@@ -24,6 +26,7 @@ public class WorkingDirectories {
   private File reports;
   private int maxAgeReport;
   private int maxAgeTaskDir;
+  private int maxAgeGeneratedReport;
 
   @Autowired private ServletContext servletContext;
 
@@ -59,6 +62,10 @@ public class WorkingDirectories {
     this.maxAgeTaskDir = maxAgeTaskDir;
   }
 
+  public final void setMaxAgeGeneratedReport(final int maxAgeGeneratedReport) {
+    this.maxAgeGeneratedReport = maxAgeGeneratedReport;
+  }
+
   /** Called by spring after bean has been created and populated. */
   @PostConstruct
   public final void init() {
@@ -71,11 +78,62 @@ public class WorkingDirectories {
    * @param configuration the configuration for the current app.
    */
   public final File getJasperCompilation(final Configuration configuration) {
-    File jasperCompilation = new File(getWorking(configuration), "jasper-bin");
+    File jasperCompilation = new File(getWorking(configuration), JASPER_COMPILATION_DIR);
     createIfMissing(jasperCompilation, "Jasper Compilation");
     return jasperCompilation;
   }
 
+  /**
+   * Get the directory where the reports generated by the processors (e.g. the tables) are compiled.
+   * The generated reports that are not used anymore are deleted by the clean-up task.
+   *
+   * @param configuration the configuration for the current app.
+   */
+  public final File getGeneratedJasperCompilation(final Configuration configuration) {
+    File generated = new File(getJasperCompilation(configuration), GENERATED_REPORTS_DIR);
+    createIfMissing(generated, "Generated Jasper Compilation");
+    return generated;
+  }
+
+  /**
+   * Mark a generated report as used, so it isn't deleted by the clean-up task.
+   *
+   * @param file the compiled report, in the directory of the generated reports.
+   * @return false if the report doesn't exist.
+   */
+  public final boolean touchGeneratedReport(final File file) {
+    final long lastModified = file.lastModified();
+    if (lastModified == 0L) {
+      return false;
+    }
+    // touched only when half of its max age is reached, the cached reports being reloaded when
+    // their file is modified
+    final long now = System.currentTimeMillis();
+    if (lastModified < now - this.maxAgeGeneratedReport * 1000L / 2) {
+      return file.setLastModified(now);
+    }
+    return true;
+  }
+
+  /**
+   * Check if the file is in the directory of the compiled jasper reports of a configuration.
+   *
+   * @param file the file to check.
+   */
+  public final boolean isJasperCompilation(final File file) {
+    final File working = this.working.getAbsoluteFile();
+    for (File parent = file.getAbsoluteFile().getParentFile();
+        parent != null;
+        parent = parent.getParentFile()) {
+      if (parent.getName().equals(JASPER_COMPILATION_DIR)
+          && parent.getParentFile() != null
+          && working.equals(parent.getParentFile().getParentFile())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Get the directory where the reports are written to. This may be a temporary location before
    * sending the files to a central repository that can better handle clustering.
@@ -169,10 +227,10 @@ public class WorkingDirectories {
   }
 
   public final Runnable getCleanUpTask() {
-    return new CleanUpTask(this.maxAgeReport, this.maxAgeTaskDir);
+    return new CleanUpTask(this.maxAgeReport, this.maxAgeTaskDir, this.maxAgeGeneratedReport);
   }
 
-  /** A task that deletes old reports and task directories. */
+  /** A task that deletes old reports, task directories and generated reports. */
   @VisibleForTesting
   final class CleanUpTask implements Runnable {
 
@@ -185,13 +243,22 @@ public class WorkingDirectories {
      */
     private final long maxAgeTaskDir;
 
+    /**
+     * The maximum age for a generated report in seconds. Reports not used for longer than that will
+     * be deleted.
+     */
+    private final long maxAgeGeneratedReport;
+
     /**
      * @param maxAgeReport The maximum age for a report in seconds.
      * @param maxAgeTaskDir The maximum age for a task directory in seconds.
+     * @param maxAgeGeneratedReport The maximum age for a generated report in seconds.
      */
-    CleanUpTask(final long maxAgeReport, final long maxAgeTaskDir) {
+    CleanUpTask(
+        final long maxAgeReport, final long maxAgeTaskDir, final long maxAgeGeneratedReport) {
       this.maxAgeReport = maxAgeReport;
       this.maxAgeTaskDir = maxAgeTaskDir;
+      this.maxAgeGeneratedReport = maxAgeGeneratedReport;
     }
 
     @Override
@@ -199,6 +266,7 @@ public class WorkingDirectories {
       try {
         removeOldFiles(WorkingDirectories.this.reports, null, this.maxAgeReport);
         removeOldFiles(WorkingDirectories.this.working, TASK_DIR_PREFIX, this.maxAgeTaskDir);
+        removeOldGeneratedReports();
         // temporary "fix" for https://github.com/mapfish/mapfish-print/issues/317
         removeOldFiles(new File(System.getProperty("java.io.tmpdir")), "+~JF", this.maxAgeTaskDir);
       } catch (Exception e) {
@@ -206,6 +274,19 @@ public class WorkingDirectories {
       }
     }
 
+    private void removeOldGeneratedReports() {
+      final File[] appDirs = WorkingDirectories.this.working.listFiles(File::isDirectory);
+      if (appDirs != null) {
+        for (File appDir : appDirs) {
+          final File generated =
+              new File(new File(appDir, JASPER_COMPILATION_DIR), GENERATED_REPORTS_DIR);
+          if (generated.isDirectory()) {
+            removeOldFiles(generated, null, this.maxAgeGeneratedReport);
+          }
+        }
+      }
+    }
+
     private void removeOldFiles(final File dir, final String prefix, final long maxAge) {
       final long ageThreshold = new Date().getTime() - maxAge * 1000;
 
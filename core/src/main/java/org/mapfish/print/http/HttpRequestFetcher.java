@@ -7,9 +7,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.SocketException;
 import java.net.URI;
+import java.net.UnknownHostException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
@@ -18,7 +27,9 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.mapfish.print.StatsUtils;
+import org.mapfish.print.config.Configuration;
 import org.mapfish.print.processor.Processor;
+import org.mapfish.print.processor.http.matcher.MatchInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -33,18 +44,31 @@ import org.springframework.util.StreamUtils;
  *
  * <p>The instances of the returned request will use a future to wait for the actual request to be
  * really completed.
+ *
+ * <p>The identical GET requests that run at the same time, in this job or in other ones, share a
+ * single download: the first one fetches the resource and the other ones get a copy of it. The
+ * requests for which the configuration has credentials or a proxy are not shared: they are fetched
+ * with the access rights of this configuration, that the other ones may not have.
  */
 public final class HttpRequestFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestFetcher.class);
 
+  /** The downloads in progress in all the print jobs, by request key. */
+  private static final Map<String, SharedDownload> IN_FLIGHT = new ConcurrentHashMap<>();
+
+  private static final String COALESCED_METRIC = HttpRequestFetcher.class.getName() + ".coalesced";
+
   private final File temporaryDirectory;
   private final MetricRegistry registry;
   private final Processor.ExecutionContext context;
   private final ForkJoinPool requestForkJoinPool;
   private final int maxNumberFetchRetry;
   private final int fetchRetryIntervalMillis;
+  @Nullable private final TileCache tileCache;
+  @Nullable private final Configuration configuration;
 
+  // CHECKSTYLE:OFF
   /**
    * Constructor.
    *
@@ -52,6 +76,8 @@ public final class HttpRequestFetcher {
    * @param registry the metric registry
    * @param context the job ID
    * @param requestForkJoinPool the work pool to use to do the requests
+   * @param tileCache the cache shared between the jobs for the tile requests
+   * @param configuration the configuration of the print job, used to find the private requests
    */
   public HttpRequestFetcher(
       final File temporaryDirectory,
@@ -59,15 +85,21 @@ public final class HttpRequestFetcher {
       final Processor.ExecutionContext context,
       final ForkJoinPool requestForkJoinPool,
       final int maxNumberFetchRetry,
-      final int fetchRetryIntervalMillis) {
+      final int fetchRetryIntervalMillis,
+      @Nullable final TileCache tileCache,
+      @Nullable final Configuration configuration) {
     this.temporaryDirectory = temporaryDirectory;
     this.registry = registry;
     this.context = context;
     this.requestForkJoinPool = requestForkJoinPool;
     this.maxNumberFetchRetry = maxNumberFetchRetry;
     this.fetchRetryIntervalMillis = fetchRetryIntervalMillis;
+    this.tileCache = tileCache;
+    this.configuration = configuration;
   }
 
+  // CHECKSTYLE:ON
+
   private CachedClientHttpRequest add(final CachedClientHttpRequest request) {
     final ForkJoinTask<Void> future = this.requestForkJoinPool.submit(request);
     request.setFuture(future);
@@ -84,6 +116,58 @@ public final class HttpRequestFetcher {
     return add(new CachedClientHttpRequest(originalRequest, this.context));
   }
 
+  /**
+   * Register a tile request for caching. The tile is taken from the tile cache shared between the
+   * jobs when it contains a fresh copy, otherwise the downloaded tile is added to it. The tiles for
+   * which the configuration has credentials or a proxy don't use the tile cache.
+   *
+   * @param originalRequest the original request
+   * @return the cached http request
+   */
+  public ClientHttpRequest registerTile(final ClientHttpRequest originalRequest) {
+    if (this.tileCache == null || !this.tileCache.isEnabled() || isPrivate(originalRequest)) {
+      return register(originalRequest);
+    }
+    final ClientHttpResponse cachedResponse = this.tileCache.getFresh(originalRequest);
+    if (cachedResponse != null) {
+      // already available, no need to schedule a download
+      final CachedClientHttpRequest request =
+          new CachedClientHttpRequest(originalRequest, this.context);
+      request.response = cachedResponse;
+      return request;
+    }
+    return register(this.tileCache.wrap(originalRequest));
+  }
+
+  /**
+   * Return true if the configuration has credentials or a proxy for the request, so that its
+   * response may not be given to the other print jobs.
+   *
+   * @param request the request
+   */
+  private boolean isPrivate(final ClientHttpRequest request) {
+    if (this.configuration == null) {
+      return false;
+    }
+    final List<HttpCredential> credentials = new ArrayList<>(this.configuration.getCredentials());
+    credentials.addAll(this.configuration.getProxies());
+    if (credentials.isEmpty()) {
+      return false;
+    }
+    final MatchInfo matchInfo = MatchInfo.fromUri(request.getURI(), request.getMethod());
+    for (HttpCredential credential : credentials) {
+      try {
+        if (credential.matches(matchInfo)) {
+          return true;
+        }
+      } catch (SocketException | UnknownHostException | MalformedURLException e) {
+        LOGGER.debug("Unable to match {}, the request is not shared", request.getURI(), e);
+        return true;
+      }
+    }
+    return false;
+  }
+
   private final class CachedClientHttpResponse extends AbstractClientHttpResponse {
 
     private final File cachedFile;
@@ -103,6 +187,19 @@ public final class HttpRequestFetcher {
       }
     }
 
+    private CachedClientHttpResponse(final CachedClientHttpResponse sharedResponse)
+        throws IOException {
+      this.headers = sharedResponse.headers;
+      this.status = sharedResponse.status;
+      this.statusText = sharedResponse.statusText;
+      this.cachedFile =
+          File.createTempFile("cacheduri", null, HttpRequestFetcher.this.temporaryDirectory);
+      Files.copy(
+          sharedResponse.cachedFile.toPath(),
+          this.cachedFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+
     @Override
     @Nonnull
     public InputStream getBody() throws IOException {
@@ -187,14 +284,15 @@ public final class HttpRequestFetcher {
     @Override
     @Nonnull
     public ClientHttpResponse execute() {
-      assert this.future != null;
-      final Timer.Context timerWait =
-          HttpRequestFetcher.this
-              .registry
-              .timer(HttpRequestFetcher.class.getName() + ".waitDownloader")
-              .time();
-      this.future.join();
-      timerWait.stop();
+      if (this.future != null) {
+        final Timer.Context timerWait =
+            HttpRequestFetcher.this
+                .registry
+                .timer(HttpRequestFetcher.class.getName() + ".waitDownloader")
+                .time();
+        this.future.join();
+        timerWait.stop();
+      }
       assert this.response != null;
       LOGGER.debug("Loading cached URI resource {}", this.originalRequest.getURI());
 
@@ -245,6 +343,23 @@ public final class HttpRequestFetcher {
                     + StatsUtils.quotePart(getURI().getHost());
             final Timer.Context timerDownload =
                 HttpRequestFetcher.this.registry.timer(baseMetricName).time();
+            final SharedDownload download = new SharedDownload();
+            final String key =
+                getMethod() == HttpMethod.GET && !isPrivate(this.originalRequest)
+                    ? Utils.createRequestKey(getURI(), getHeaders())
+                    : null;
+            final SharedDownload running =
+                key != null ? IN_FLIGHT.putIfAbsent(key, download) : null;
+            if (running != null && running.join(this)) {
+              HttpRequestFetcher.this.registry.counter(COALESCED_METRIC).inc();
+              LOGGER.debug("Waiting for the download of {} by another request", getURI());
+              running.done.join();
+              if (this.response != null) {
+                timerDownload.stop();
+                return null;
+              }
+              // the other request failed or was canceled, do it ourselves
+            }
             try {
               this.response = this.fetchWithRetry();
             } catch (IOException e) {
@@ -280,13 +395,68 @@ public final class HttpRequestFetcher {
               HttpRequestFetcher.this.registry.counter(baseMetricName + ".error").inc();
             } finally {
               timerDownload.stop();
+              if (running == null && key != null) {
+                IN_FLIGHT.remove(key, download);
+                download.complete(this.response);
+              }
             }
             return null;
           });
     }
 
+    private void receiveSharedResponse(final CachedClientHttpResponse sharedResponse) {
+      try {
+        this.response = new CachedClientHttpResponse(sharedResponse);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to copy the shared response of {}", getURI(), e);
+      }
+    }
+
     public void setFuture(final ForkJoinTask<Void> future) {
       this.future = future;
     }
   }
+
+  /** A download shared by the identical requests that run at the same time. */
+  private static final class SharedDownload {
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final List<CachedClientHttpRequest> waiters = new ArrayList<>();
+    private boolean completed = false;
+
+    /**
+     * Wait for this download.
+     *
+     * @param waiter the request that waits
+     * @return false if the download is already completed
+     */
+    private synchronized boolean join(final CachedClientHttpRequest waiter) {
+      if (this.completed) {
+        return false;
+      }
+      this.waiters.add(waiter);
+      return true;
+    }
+
+    /**
+     * Give a copy of the response to all the waiters and wake them up.
+     *
+     * @param response the response, it's shared only if it was successfully downloaded
+     */
+    private void complete(@Nullable final ClientHttpResponse response) {
+      final List<CachedClientHttpRequest> toNotify;
+      synchronized (this) {
+        this.completed = true;
+        toNotify = new ArrayList<>(this.waiters);
+      }
+      try {
+        if (response instanceof CachedClientHttpResponse) {
+          for (CachedClientHttpRequest waiter : toNotify) {
+            waiter.receiveSharedResponse((CachedClientHttpResponse) response);
+          }
+        }
+      } finally {
+        this.done.complete(null);
+      }
+    }
+  }
 }
@@ -0,0 +1,485 @@
+package org.mapfish.print.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mapfish.print.config.WorkingDirectories;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A cache for the tile responses that is shared between all the print jobs.
+ *
+ * <p>The entries are kept in a memory tier of bounded size and, once evicted from it, in an
+ * optional disk tier in the working directory. Both tiers evict the least recently used entries
+ * first. The time to live of an entry is taken from the Cache-Control and Expires response headers;
+ * stale entries with an ETag or a Last-Modified header are revalidated with a conditional request.
+ *
+ * <p>The key of an entry is the normalized URI of the request plus its headers (see {@link
+ * Utils#createRequestKey}), so that the responses fetched with different forwarded credentials are
+ * not mixed up. The key doesn't contain the configuration, so the tiles fetched with the
+ * credentials or the proxy of a configuration are not stored (see {@link
+ * HttpRequestFetcher#registerTile}).
+ */
+public class TileCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TileCache.class);
+  private static final long MB = 1024L * 1024L;
+  private static final String METRIC_PREFIX = TileCache.class.getName() + ".";
+
+  @Autowired private MetricRegistry metricRegistry;
+  @Autowired private WorkingDirectories workingDirectories;
+
+  private int maxMemorySize = 0;
+  private int maxDiskSize = 0;
+  private int defaultTimeToLive = 600;
+
+  private Cache<String, Entry> memory;
+  private final LinkedHashMap<String, Entry> disk = new LinkedHashMap<>(16, 0.75f, true);
+  private long diskSize = 0;
+  private File diskDirectory;
+
+  /**
+   * The maximum size of the memory tier in MB, 0 disables the cache.
+   *
+   * @param maxMemorySize the size in MB
+   */
+  public final void setMaxMemorySize(final int maxMemorySize) {
+    this.maxMemorySize = maxMemorySize;
+  }
+
+  /**
+   * The maximum size of the disk tier in MB, 0 disables the disk tier.
+   *
+   * @param maxDiskSize the size in MB
+   */
+  public final void setMaxDiskSize(final int maxDiskSize) {
+    this.maxDiskSize = maxDiskSize;
+  }
+
+  /**
+   * The time to live (in seconds) of the responses that don't have any caching header.
+   *
+   * @param defaultTimeToLive the time to live in seconds
+   */
+  public final void setDefaultTimeToLive(final int defaultTimeToLive) {
+    this.defaultTimeToLive = defaultTimeToLive;
+  }
+
+  /** Called by spring after bean has been created and populated. */
+  @PostConstruct
+  public final void init() {
+    if (!isEnabled()) {
+      return;
+    }
+    this.memory =
+        CacheBuilder.newBuilder()
+            .maximumWeight(this.maxMemorySize * MB)
+            .weigher((String key, Entry entry) -> entry.body.length)
+            .removalListener(this::onMemoryRemoval)
+            .build();
+    if (this.maxDiskSize > 0) {
+      this.diskDirectory = new File(this.workingDirectories.getWorking(), "tileCache");
+      // the disk tier is not persisted between restarts
+      FileUtils.deleteQuietly(this.diskDirectory);
+      if (!this.diskDirectory.mkdirs()) {
+        LOGGER.warn("Unable to create the tile cache directory {}", this.diskDirectory);
+        this.diskDirectory = null;
+      }
+    }
+    LOGGER.info(
+        "Tile cache enabled with {} MB of memory and {} MB of disk",
+        this.maxMemorySize,
+        this.diskDirectory != null ? this.maxDiskSize : 0);
+  }
+
+  public final boolean isEnabled() {
+    return this.maxMemorySize > 0;
+  }
+
+  /**
+   * Get the response for the request if the cache contains a fresh one.
+   *
+   * @param request the tile request
+   * @return the cached response or null
+   */
+  @Nullable
+  public final ClientHttpResponse getFresh(@Nonnull final ClientHttpRequest request) {
+    if (!isEnabled() || request.getMethod() != HttpMethod.GET) {
+      return null;
+    }
+    final Entry entry = get(Utils.createRequestKey(request.getURI(), request.getHeaders()));
+    if (entry != null && entry.isFresh()) {
+      this.metricRegistry.counter(METRIC_PREFIX + "hit").inc();
+      LOGGER.debug("Tile cache hit for {}", request.getURI());
+      return entry.toResponse();
+    }
+    this.metricRegistry.counter(METRIC_PREFIX + "miss").inc();
+    return null;
+  }
+
+  /**
+   * Wrap the request so that its response gets stored in the cache, a stale entry gets revalidated
+   * when possible.
+   *
+   * @param request the tile request
+   */
+  @Nonnull
+  public final ClientHttpRequest wrap(@Nonnull final ClientHttpRequest request) {
+    if (!isEnabled() || request.getMethod() != HttpMethod.GET) {
+      return request;
+    }
+    return new CachingRequest(
+        request, Utils.createRequestKey(request.getURI(), request.getHeaders()));
+  }
+
+  @Nullable
+  private Entry get(final String key) {
+    final Entry entry = this.memory.getIfPresent(key);
+    if (entry != null || this.diskDirectory == null) {
+      return entry;
+    }
+    final Entry diskEntry;
+    synchronized (this.disk) {
+      diskEntry = this.disk.remove(key);
+      if (diskEntry != null) {
+        this.diskSize -= diskEntry.size;
+      }
+    }
+    if (diskEntry == null) {
+      return null;
+    }
+    final File file = getDiskFile(key);
+    try {
+      final Entry loaded = diskEntry.withBody(Files.readAllBytes(file.toPath()));
+      this.memory.put(key, loaded);
+      return loaded;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read the cached tile {}", file, e);
+      return null;
+    } finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  private void onMemoryRemoval(final RemovalNotification<String, Entry> notification) {
+    if (notification.getCause() != RemovalCause.SIZE) {
+      return;
+    }
+    final String key = notification.getKey();
+    final Entry entry = notification.getValue();
+    if (this.diskDirectory == null || key == null || entry == null) {
+      this.metricRegistry.counter(METRIC_PREFIX + "eviction").inc();
+      return;
+    }
+    final File file = getDiskFile(key);
+    try {
+      Files.write(file.toPath(), entry.body);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the cached tile {}", file, e);
+      this.metricRegistry.counter(METRIC_PREFIX + "eviction").inc();
+      return;
+    }
+    final List<String> evicted = new ArrayList<>();
+    synchronized (this.disk) {
+      final Entry previous = this.disk.put(key, entry.withoutBody());
+      if (previous != null) {
+        this.diskSize -= previous.size;
+      }
+      this.diskSize += entry.size;
+      final Iterator<Map.Entry<String, Entry>> iterator = this.disk.entrySet().iterator();
+      while (this.diskSize > this.maxDiskSize * MB && iterator.hasNext()) {
+        final Map.Entry<String, Entry> eldest = iterator.next();
+        this.diskSize -= eldest.getValue().size;
+        evicted.add(eldest.getKey());
+        iterator.remove();
+      }
+    }
+    for (String evictedKey : evicted) {
+      FileUtils.deleteQuietly(getDiskFile(evictedKey));
+      this.metricRegistry.counter(METRIC_PREFIX + "eviction").inc();
+    }
+  }
+
+  private File getDiskFile(final String key) {
+    return new File(
+        this.diskDirectory, Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString());
+  }
+
+  /**
+   * Get the time to live of a response in milliseconds, as a shared cache is allowed to use it.
+   *
+   * @param headers the response headers
+   * @param now the current time
+   * @param defaultTimeToLive the time to live (in milliseconds) used when there is no caching info
+   * @return the time to live, or a negative value if the response may not be stored
+   */
+  static long getTimeToLive(
+      final HttpHeaders headers, final long now, final long defaultTimeToLive) {
+    final List<String> vary = headers.getVary();
+    if (vary.contains("*")) {
+      return -1;
+    }
+    final String cacheControl = headers.getCacheControl();
+    Long maxAge = null;
+    Long sharedMaxAge = null;
+    if (cacheControl != null) {
+      for (String part : cacheControl.split(",")) {
+        final String directive = part.trim().toLowerCase(Locale.ROOT);
+        if (directive.equals("no-store") || directive.equals("private")) {
+          return -1;
+        } else if (directive.equals("no-cache")) {
+          return 0;
+        } else if (directive.startsWith("s-maxage=")) {
+          sharedMaxAge = parseSeconds(directive.substring("s-maxage=".length()));
+        } else if (directive.startsWith("max-age=")) {
+          maxAge = parseSeconds(directive.substring("max-age=".length()));
+        }
+      }
+    }
+
+    final long age = parseSeconds(headers.getFirst("Age")) * 1000L;
+    if (sharedMaxAge != null) {
+      return Math.max(0, sharedMaxAge * 1000L - age);
+    } else if (maxAge != null) {
+      return Math.max(0, maxAge * 1000L - age);
+    }
+    if (headers.containsKey(HttpHeaders.EXPIRES)) {
+      // an invalid date means already expired
+      final long expires = headers.getExpires();
+      final long date = headers.getDate() > 0 ? headers.getDate() : now;
+      return Math.max(0, expires - date);
+    }
+    return defaultTimeToLive;
+  }
+
+  private static long parseSeconds(@Nullable final String value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Math.max(0, Long.parseLong(value.trim().replace("\"", "")));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /** A cached response. */
+  private static final class Entry {
+    private final byte[] body;
+    private final long size;
+    private final HttpHeaders headers;
+    private final int status;
+    private final String statusText;
+    private final long expires;
+
+    private Entry(
+        final byte[] body,
+        final long size,
+        final HttpHeaders headers,
+        final int status,
+        final String statusText,
+        final long expires) {
+      this.body = body;
+      this.size = size;
+      this.headers = headers;
+      this.status = status;
+      this.statusText = statusText;
+      this.expires = expires;
+    }
+
+    private boolean isFresh() {
+      return this.expires > System.currentTimeMillis();
+    }
+
+    private boolean hasValidator() {
+      return this.headers.getETag() != null || this.headers.getLastModified() > 0;
+    }
+
+    private Entry withBody(final byte[] newBody) {
+      return new Entry(
+          newBody, this.size, this.headers, this.status, this.statusText, this.expires);
+    }
+
+    private Entry withoutBody() {
+      return withBody(null);
+    }
+
+    private Entry withExpires(final long newExpires) {
+      return new Entry(
+          this.body, this.size, this.headers, this.status, this.statusText, newExpires);
+    }
+
+    private ClientHttpResponse toResponse() {
+      return new CachedResponse(this.body, this.headers, this.status, this.statusText);
+    }
+  }
+
+  /** A response served from a byte array. */
+  private static final class CachedResponse extends AbstractClientHttpResponse {
+    private final byte[] body;
+    private final HttpHeaders headers;
+    private final int status;
+    private final String statusText;
+
+    private CachedResponse(
+        final byte[] body, final HttpHeaders headers, final int status, final String statusText) {
+      this.body = body;
+      this.headers = headers;
+      this.status = status;
+      this.statusText = statusText;
+    }
+
+    @Override
+    @Nonnull
+    public InputStream getBody() {
+      return new ByteArrayInputStream(this.body);
+    }
+
+    @Override
+    @Nonnull
+    public HttpHeaders getHeaders() {
+      return this.headers;
+    }
+
+    @Override
+    public int getRawStatusCode() {
+      return this.status;
+    }
+
+    @Override
+    @Nonnull
+    public String getStatusText() {
+      return this.statusText;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  /** A request that stores its response in the cache, or revalidates the stale entry. */
+  private final class CachingRequest implements ClientHttpRequest {
+    private final ClientHttpRequest originalRequest;
+    private final String key;
+
+    private CachingRequest(final ClientHttpRequest originalRequest, final String key) {
+      this.originalRequest = originalRequest;
+      this.key = key;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return this.originalRequest.getMethod();
+    }
+
+    @Override
+    @Nonnull
+    public String getMethodValue() {
+      return this.originalRequest.getMethodValue();
+    }
+
+    @Override
+    @Nonnull
+    public URI getURI() {
+      return this.originalRequest.getURI();
+    }
+
+    @Override
+    @Nonnull
+    public HttpHeaders getHeaders() {
+      return this.originalRequest.getHeaders();
+    }
+
+    @Override
+    @Nonnull
+    public OutputStream getBody() throws IOException {
+      return this.originalRequest.getBody();
+    }
+
+    @Override
+    @Nonnull
+    public ClientHttpResponse execute() throws IOException {
+      final Entry stale = get(this.key);
+      if (stale != null && stale.isFresh()) {
+        // stored by another job in the meantime
+        return stale.toResponse();
+      }
+      if (stale != null && stale.hasValidator()) {
+        final HttpHeaders staleHeaders = stale.headers;
+        if (staleHeaders.getETag() != null) {
+          this.originalRequest.getHeaders().setIfNoneMatch(staleHeaders.getETag());
+        }
+        if (staleHeaders.getLastModified() > 0) {
+          this.originalRequest.getHeaders().setIfModifiedSince(staleHeaders.getLastModified());
+        }
+      }
+
+      final ClientHttpResponse response = this.originalRequest.execute();
+      final long now = System.currentTimeMillis();
+      final long defaultTtl = TileCache.this.defaultTimeToLive * 1000L;
+      if (stale != null && response.getRawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+        final long ttl = getTimeToLive(response.getHeaders(), now, defaultTtl);
+        response.close();
+        TileCache.this.metricRegistry.counter(METRIC_PREFIX + "revalidated").inc();
+        LOGGER.debug("Tile {} not modified", getURI());
+        final Entry refreshed = stale.withExpires(now + Math.max(ttl, 0));
+        if (ttl >= 0) {
+          TileCache.this.memory.put(this.key, refreshed);
+        }
+        return refreshed.toResponse();
+      }
+      if (response.getRawStatusCode() != HttpStatus.OK.value()) {
+        return response;
+      }
+      final long ttl = getTimeToLive(response.getHeaders(), now, defaultTtl);
+      final HttpHeaders headers = HttpHeaders.readOnlyHttpHeaders(response.getHeaders());
+      if (ttl < 0 || (ttl == 0 && headers.getETag() == null && headers.getLastModified() <= 0)) {
+        return response;
+      }
+      final byte[] body;
+      try {
+        body = IOUtils.toByteArray(response.getBody());
+      } finally {
+        response.close();
+      }
+      final Entry entry =
+          new Entry(
+              body,
+              body.length,
+              headers,
+              response.getRawStatusCode(),
+              response.getStatusText(),
+              now + ttl);
+      TileCache.this.memory.put(this.key, entry);
+      return entry.toResponse();
+    }
+  }
+}
@@ -1,9 +1,13 @@
 package org.mapfish.print.http;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import org.springframework.http.HttpHeaders;
 
 /** Network utils class. */
 public final class Utils {
@@ -28,4 +32,53 @@ public final class Utils {
     }
     return result;
   }
+
+  /**
+   * Create a key identifying a request: the URI with a lower case scheme and host, without default
+   * port and with sorted query parameters, followed by the sorted request headers.
+   *
+   * @param uri the URI of the request
+   * @param headers the headers of the request
+   */
+  public static String createRequestKey(final URI uri, final HttpHeaders headers) {
+    final StringBuilder key = new StringBuilder();
+    final String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+    key.append(scheme).append("://");
+    if (uri.getRawUserInfo() != null) {
+      key.append(uri.getRawUserInfo()).append('@');
+    }
+    if (uri.getHost() != null) {
+      key.append(uri.getHost().toLowerCase(Locale.ROOT));
+    }
+    final int port = uri.getPort();
+    if (port != -1
+        && !(port == 80 && scheme.equals("http"))
+        && !(port == 443 && scheme.equals("https"))) {
+      key.append(':').append(port);
+    }
+    if (uri.getRawPath() != null) {
+      key.append(uri.getRawPath());
+    }
+    if (uri.getRawQuery() != null) {
+      final List<String> params = new ArrayList<>();
+      for (String param : uri.getRawQuery().split("&")) {
+        if (!param.isEmpty()) {
+          params.add(param);
+        }
+      }
+      Collections.sort(params);
+      key.append('?').append(String.join("&", params));
+    }
+
+    final List<String> headerLines = new ArrayList<>();
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      headerLines.add(
+          header.getKey().toLowerCase(Locale.ROOT) + ": " + String.join(",", header.getValue()));
+    }
+    Collections.sort(headerLines);
+    for (String headerLine : headerLines) {
+      key.append('\n').append(headerLine);
+    }
+    return key.toString();
+  }
 }
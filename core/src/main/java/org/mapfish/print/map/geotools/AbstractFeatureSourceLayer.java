@@ -2,6 +2,7 @@ package org.mapfish.print.map.geotools;
 
 import static org.mapfish.print.Constants.PDF_DPI;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -10,10 +11,12 @@ import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.collection.CollectionFeatureSource;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.map.FeatureLayer;
 import org.geotools.map.Layer;
 import org.geotools.styling.Style;
 import org.geotools.styling.visitor.RescaleStyleVisitor;
+import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.attribute.map.MapfishMapContext;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
 import org.mapfish.print.map.AbstractLayerParams;
@@ -26,6 +29,8 @@ public abstract class AbstractFeatureSourceLayer extends AbstractGeotoolsLayer {
   private FeatureSourceSupplier featureSourceSupplier;
   private FeatureSource<?, ?> featureSource = null;
   private StyleSupplier<FeatureSource> styleSupplier;
+  private boolean generalize = false;
+  private FeatureGeneralizer generalizer = null;
 
   /**
    * Constructor.
@@ -56,6 +61,16 @@ public abstract class AbstractFeatureSourceLayer extends AbstractGeotoolsLayer {
     this.styleSupplier = style;
   }
 
+  /**
+   * Drop the features that are outside the map and simplify the geometries to the resolution of the
+   * map before rendering them.
+   *
+   * @param generalize true to generalize the features
+   */
+  public final void setGeneralize(final boolean generalize) {
+    this.generalize = generalize;
+  }
+
   /**
    * Get the feature source (either load from the supplier or return the cached source).
    *
@@ -87,9 +102,31 @@ public abstract class AbstractFeatureSourceLayer extends AbstractGeotoolsLayer {
       style = (Style) scale.getCopy();
     }
 
+    if (this.generalize && source instanceof SimpleFeatureSource) {
+      source = generalize((SimpleFeatureSource) source, mapContext, context);
+    }
+
     return Collections.singletonList(new FeatureLayer(source, style));
   }
 
+  private synchronized FeatureSource<?, ?> generalize(
+      final SimpleFeatureSource source,
+      final MapfishMapContext mapContext,
+      final Processor.ExecutionContext context) {
+    if (!FeatureGeneralizer.canGeneralize(source.getSchema(), mapContext)) {
+      return source;
+    }
+    if (this.generalizer == null) {
+      try {
+        this.generalizer = new FeatureGeneralizer(source.getFeatures());
+      } catch (IOException e) {
+        throw ExceptionUtils.getRuntimeException(e);
+      }
+    }
+    return new CollectionFeatureSource(
+        this.generalizer.getFeatures(mapContext, context.getStats()));
+  }
+
   public final void setFeatureCollection(final SimpleFeatureCollection featureCollection) {
     this.featureSourceSupplier =
         new FeatureSourceSupplier() {
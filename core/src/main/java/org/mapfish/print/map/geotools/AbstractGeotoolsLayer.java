@@ -65,7 +65,7 @@ public abstract class AbstractGeotoolsLayer implements MapLayer {
   public void prepareRender(final MapfishMapContext transformer) {}
 
   @Override
-  public final void render(
+  public void render(
       final Graphics2D graphics2D,
       final MfClientHttpRequestFactory clientHttpRequestFactory,
       final MapfishMapContext transformer,
@@ -138,6 +138,11 @@ public abstract class AbstractGeotoolsLayer implements MapLayer {
     }
   }
 
+  /** Get the thread pool for doing the rendering. */
+  protected final ExecutorService getExecutorService() {
+    return this.executorService;
+  }
+
   public double getOpacity() {
     return this.params.opacity;
   }
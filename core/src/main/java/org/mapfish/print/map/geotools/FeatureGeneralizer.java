@@ -0,0 +1,143 @@
+package org.mapfish.print.map.geotools;
+
+import static org.mapfish.print.Constants.PDF_DPI;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.mapfish.print.attribute.map.CenterScaleMapBounds;
+import org.mapfish.print.attribute.map.MapfishMapContext;
+import org.mapfish.print.processor.ExecutionStats;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Prepares the features of a vector layer for the rendering of a map: drops the features that are
+ * outside the map and simplifies the geometries to the resolution of the map.
+ *
+ * <p>The features are indexed once, so a layer rendered in several parts only reads the features of
+ * each part.
+ */
+final class FeatureGeneralizer {
+  // the features at most this number of pixels outside the map are kept for their symbols and
+  // labels
+  private static final int MARGIN = 256;
+  // the simplified geometries are at most this number of printed pixels away from the original ones
+  private static final double TOLERANCE = 0.5;
+
+  private final SimpleFeatureType schema;
+  private final List<SimpleFeature> features = new ArrayList<>();
+  private final STRtree index = new STRtree();
+  private long nbVertices = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param featureCollection the features to index
+   */
+  FeatureGeneralizer(final SimpleFeatureCollection featureCollection) {
+    this.schema = featureCollection.getSchema();
+    try (SimpleFeatureIterator iterator = featureCollection.features()) {
+      while (iterator.hasNext()) {
+        final SimpleFeature feature = iterator.next();
+        final Geometry geometry = (Geometry) feature.getDefaultGeometry();
+        if (geometry != null && !geometry.isEmpty()) {
+          // the position of the feature is indexed to keep the drawing order
+          this.index.insert(geometry.getEnvelopeInternal(), this.features.size());
+          this.nbVertices += geometry.getNumPoints();
+        }
+        this.features.add(feature);
+      }
+    }
+    this.index.build();
+  }
+
+  /**
+   * Return true if the features can be generalized for the map: they must be in the projection of
+   * the map.
+   *
+   * @param schema the type of the features
+   * @param mapContext the map
+   */
+  static boolean canGeneralize(final SimpleFeatureType schema, final MapfishMapContext mapContext) {
+    final CoordinateReferenceSystem crs = schema.getCoordinateReferenceSystem();
+    return crs == null
+        || crs == DefaultEngineeringCRS.GENERIC_2D
+        || CRS.equalsIgnoreMetadata(crs, mapContext.getBounds().getProjection());
+  }
+
+  /**
+   * Get the features visible in the map, with simplified geometries.
+   *
+   * @param mapContext the map, or the part of the map, that is rendered
+   * @param stats the statistics of the print job
+   */
+  SimpleFeatureCollection getFeatures(
+      final MapfishMapContext mapContext, final ExecutionStats stats) {
+    final ReferencedEnvelope bounds = mapContext.toReferencedEnvelope();
+    final Dimension size = mapContext.getMapSize();
+    final double resolution =
+        Math.max(bounds.getWidth() / size.width, bounds.getHeight() / size.height);
+    final Envelope area = new Envelope(bounds);
+    area.expandBy(MARGIN * resolution);
+    final double tolerance = TOLERANCE * getPrintedPixelSize(mapContext, resolution);
+
+    @SuppressWarnings("unchecked")
+    final List<Integer> positions = this.index.query(area);
+    Collections.sort(positions);
+    final List<SimpleFeature> result = new ArrayList<>(positions.size());
+    long vertices = 0;
+    for (int position : positions) {
+      SimpleFeature feature = this.features.get(position);
+      final Geometry geometry = (Geometry) feature.getDefaultGeometry();
+      Geometry simplified = geometry;
+      if (geometry.getDimension() > 0) {
+        simplified = DouglasPeuckerSimplifier.simplify(geometry, tolerance);
+        if (simplified.isEmpty() || simplified.getNumPoints() == geometry.getNumPoints()) {
+          // nothing to simplify, or smaller than a pixel but its stroke may be visible
+          simplified = geometry;
+        }
+      }
+      if (simplified != geometry) {
+        feature = SimpleFeatureBuilder.copy(feature);
+        feature.setDefaultGeometry(simplified);
+      }
+      vertices += simplified.getNumPoints();
+      result.add(feature);
+    }
+    stats.addGeneralizationStats(
+        this, this.features.size(), result.size(), this.nbVertices, vertices);
+    return new ListFeatureCollection(this.schema, result);
+  }
+
+  /**
+   * Get the size of a printed pixel, in the unit of the map.
+   *
+   * <p>The map processor gives the bounds as a bounding box and scales the map size to the DPI.
+   * When the bounds are given by a scale, the map size is at the PDF DPI, and a printed pixel is
+   * smaller than a pixel of the map.
+   *
+   * @param mapContext the map
+   * @param resolution the size of a pixel of the map, in the unit of the map
+   */
+  private static double getPrintedPixelSize(
+      final MapfishMapContext mapContext, final double resolution) {
+    if (mapContext.getBounds() instanceof CenterScaleMapBounds) {
+      return resolution * PDF_DPI / mapContext.getDPI();
+    }
+    return resolution;
+  }
+}
@@ -62,12 +62,15 @@ public final class FeatureLayer extends AbstractFeatureSourceLayer {
     @Override
     public FeatureLayer parse(
         @Nonnull final Template template, @Nonnull final FeatureLayerParam param) {
-      return new FeatureLayer(
-          this.forkJoinPool,
-          createFeatureSourceSupplier(param.features),
-          createStyleFunction(template, param.style, param.defaultStyle),
-          template.getConfiguration().renderAsSvg(param.renderAsSvg),
-          param);
+      final FeatureLayer layer =
+          new FeatureLayer(
+              this.forkJoinPool,
+              createFeatureSourceSupplier(param.features),
+              createStyleFunction(template, param.style, param.defaultStyle),
+              template.getConfiguration().renderAsSvg(param.renderAsSvg),
+              param);
+      layer.setGeneralize(template.getConfiguration().isGeneralizeVectorLayers());
+      return layer;
     }
 
     private FeatureSourceSupplier createFeatureSourceSupplier(
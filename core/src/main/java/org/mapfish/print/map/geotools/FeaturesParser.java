@@ -1,32 +1,32 @@
 package org.mapfish.print.map.geotools;
 
 import com.google.common.annotations.VisibleForTesting;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
-import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.apache.commons.io.IOUtils;
+import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
-import org.geotools.geojson.feature.FeatureJSON;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultEngineeringCRS;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.locationtech.jts.geom.Geometry;
 import org.mapfish.print.Constants;
+import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.FileUtils;
-import org.mapfish.print.PrintException;
-import org.mapfish.print.URIUtils;
 import org.mapfish.print.config.Template;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
@@ -174,14 +174,21 @@ public class FeaturesParser {
       return null;
     }
 
-    final String geojsonString;
     if (url.getProtocol().equalsIgnoreCase("file")) {
-      geojsonString = IOUtils.toString(url, Constants.DEFAULT_CHARSET.name());
-    } else {
-      geojsonString = URIUtils.toString(this.httpRequestFactory, url);
+      try (InputStream input = url.openStream()) {
+        return readFeatureCollection(GeoJsonReader.read(input));
+      }
+    }
+    final URI uri;
+    try {
+      uri = url.toURI();
+    } catch (URISyntaxException e) {
+      throw ExceptionUtils.getRuntimeException(e);
+    }
+    try (ClientHttpResponse response =
+        this.httpRequestFactory.createRequest(uri, HttpMethod.GET).execute()) {
+      return readFeatureCollection(GeoJsonReader.read(response.getBody()));
     }
-
-    return treatStringAsGeoJson(geojsonString);
   }
 
   /**
@@ -193,100 +200,38 @@ public class FeaturesParser {
    */
   public final SimpleFeatureCollection treatStringAsGeoJson(final String geoJsonString)
       throws IOException {
-    return readFeatureCollection(geoJsonString);
+    return readFeatureCollection(GeoJsonReader.read(new StringReader(geoJsonString)));
   }
 
-  private SimpleFeatureCollection readFeatureCollection(final String geojsonData)
-      throws IOException {
-    String convertedGeojsonObject = convertToGeoJsonCollection(geojsonData);
-
-    FeatureJSON geoJsonReader = new FeatureJSON();
-    final SimpleFeatureType featureType = createFeatureType(convertedGeojsonObject);
-    if (featureType != null) {
-      geoJsonReader.setFeatureType(featureType);
-    }
-    ByteArrayInputStream input =
-        new ByteArrayInputStream(convertedGeojsonObject.getBytes(Constants.DEFAULT_CHARSET));
-
-    return (SimpleFeatureCollection) geoJsonReader.readFeatureCollection(input);
-  }
-
-  private String convertToGeoJsonCollection(final String geojsonData) {
-    String convertedGeojsonObject = geojsonData.trim();
-    if (convertedGeojsonObject.startsWith("[")) {
-      convertedGeojsonObject =
-          "{\"type\": \"FeatureCollection\", \"features\": " + convertedGeojsonObject + "}";
-    }
-    return convertedGeojsonObject;
-  }
-
-  private SimpleFeatureType createFeatureType(@Nonnull final String geojsonData) {
-    try {
-      JSONObject geojson = new JSONObject(geojsonData);
-      if (geojson.has("type") && geojson.getString("type").equalsIgnoreCase("FeatureCollection")) {
-        CoordinateReferenceSystem crs =
-            parseCoordinateReferenceSystem(
-                this.httpRequestFactory, geojson, this.forceLongitudeFirst);
-        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
-        builder.setName("GeosjonFeatureType");
-        final JSONArray features = geojson.getJSONArray("features");
-
-        if (features.length() == 0) {
-          // do not try to build the feature type if there are no features
-          return null;
-        }
-
-        Set<String> allAttributes = new HashSet<>();
-        Class<Geometry> geomType = null;
-        for (int i = 0; i < features.length(); i++) {
-          final JSONObject feature = features.getJSONObject(i);
-          final JSONObject properties = feature.getJSONObject("properties");
-          final Iterator<String> keys = properties.keys();
-          while (keys.hasNext()) {
-            String nextKey = (String) keys.next();
-            if (!allAttributes.contains(nextKey)) {
-              allAttributes.add(nextKey);
-              builder.add(nextKey, Object.class);
-            }
-          }
-          if (geomType != Geometry.class) {
-            Class<Geometry> thisGeomType = parseGeometryType(feature);
-            if (thisGeomType != null) {
-              if (geomType == null) {
-                geomType = thisGeomType;
-              } else if (!geomType.equals(thisGeomType)) {
-                geomType = Geometry.class;
-              }
-            }
-          }
-        }
-
-        builder.add("geometry", geomType, crs);
-        builder.setDefaultGeometry("geometry");
-        return builder.buildFeatureType();
-      } else {
-        return null;
-      }
-    } catch (JSONException e) {
-      throw new PrintException("Invalid geoJSON: \n" + geojsonData + ": " + e.getMessage(), e);
+  private SimpleFeatureCollection readFeatureCollection(final GeoJsonReader reader) {
+    CoordinateReferenceSystem crs = DefaultEngineeringCRS.GENERIC_2D;
+    if (reader.getCrs() != null) {
+      crs =
+          parseCoordinateReferenceSystem(
+              this.httpRequestFactory,
+              new JSONObject().put("crs", new JSONObject(reader.getCrs().toString())),
+              this.forceLongitudeFirst);
     }
-  }
 
-  @SuppressWarnings("unchecked")
-  private Class<Geometry> parseGeometryType(@Nonnull final JSONObject featureJson) {
-    JSONObject geomJson = featureJson.optJSONObject("geometry");
-    if (geomJson == null) {
-      return null;
+    final SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+    builder.setName("GeosjonFeatureType");
+    for (String attributeName : reader.getAttributeNames()) {
+      builder.add(attributeName, Object.class);
     }
-    String geomTypeString = geomJson.optString("type", "Geometry");
-    if (geomTypeString.equalsIgnoreCase("Positions")) {
-      return Geometry.class;
-    } else {
-      try {
-        return (Class<Geometry>) Class.forName("org.locationtech.jts.geom." + geomTypeString);
-      } catch (ClassNotFoundException e) {
-        throw new RuntimeException("Unrecognized geometry type in geojson: " + geomTypeString);
+    final Class<? extends Geometry> geometryType = reader.getGeometryType();
+    builder.add("geometry", geometryType != null ? geometryType : Geometry.class, crs);
+    builder.setDefaultGeometry("geometry");
+    final SimpleFeatureType featureType = builder.buildFeatureType();
+
+    final List<SimpleFeature> features = new ArrayList<>(reader.getFeatures().size());
+    final SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(featureType);
+    for (GeoJsonReader.Feature feature : reader.getFeatures()) {
+      for (Map.Entry<String, Object> property : feature.getProperties().entrySet()) {
+        featureBuilder.set(property.getKey(), property.getValue());
       }
+      featureBuilder.set("geometry", feature.getGeometry());
+      features.add(featureBuilder.buildFeature(feature.getId()));
     }
+    return new ListFeatureCollection(featureType, features);
   }
 }
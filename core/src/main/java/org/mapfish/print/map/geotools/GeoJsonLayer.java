@@ -64,12 +64,15 @@ public final class GeoJsonLayer extends AbstractFeatureSourceLayer {
     @Nonnull
     @Override
     public GeoJsonLayer parse(@Nonnull final Template template, @Nonnull final GeoJsonParam param) {
-      return new GeoJsonLayer(
-          this.forkJoinPool,
-          createFeatureSourceSupplier(template, param.geoJson),
-          createStyleFunction(template, param.style),
-          template.getConfiguration().renderAsSvg(param.renderAsSvg),
-          param);
+      final GeoJsonLayer layer =
+          new GeoJsonLayer(
+              this.forkJoinPool,
+              createFeatureSourceSupplier(template, param.geoJson),
+              createStyleFunction(template, param.style),
+              template.getConfiguration().renderAsSvg(param.renderAsSvg),
+              param);
+      layer.setGeneralize(template.getConfiguration().isGeneralizeVectorLayers());
+      return layer;
     }
 
     private FeatureSourceSupplier createFeatureSourceSupplier(
@@ -0,0 +1,275 @@
+package org.mapfish.print.map.geotools;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.mapfish.print.PrintException;
+
+/**
+ * Reads the features of a GeoJSON document in one pass over a stream.
+ *
+ * <p>The document is a feature collection, a feature or an array of features. The names of the
+ * properties, the type of the geometries and the CRS are collected while reading the features, so
+ * the feature type can be built afterward without parsing the document again.
+ */
+final class GeoJsonReader {
+  // the integers are read as Long, like the GeoTools GeoJSON parser does
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(DeserializationFeature.USE_LONG_FOR_INTS);
+
+  private final GeometryFactory geometryFactory = new GeometryFactory();
+  private final List<Feature> features = new ArrayList<>();
+  private final Set<String> attributeNames = new LinkedHashSet<>();
+  private Class<? extends Geometry> geometryType = null;
+  private JsonNode crs = null;
+
+  private GeoJsonReader() {}
+
+  /**
+   * Read a GeoJSON document.
+   *
+   * @param input the document
+   */
+  static GeoJsonReader read(final InputStream input) throws IOException {
+    try (JsonParser parser = MAPPER.getFactory().createParser(input)) {
+      return read(parser);
+    }
+  }
+
+  /**
+   * Read a GeoJSON document.
+   *
+   * @param input the document
+   */
+  static GeoJsonReader read(final Reader input) throws IOException {
+    try (JsonParser parser = MAPPER.getFactory().createParser(input)) {
+      return read(parser);
+    }
+  }
+
+  private static GeoJsonReader read(final JsonParser parser) throws IOException {
+    final GeoJsonReader reader = new GeoJsonReader();
+    try {
+      final JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        reader.readFeatures(parser);
+      } else if (token == JsonToken.START_OBJECT) {
+        reader.readObject(parser, true);
+      } else {
+        throw new PrintException("Invalid geoJSON: expected an object or an array, got " + token);
+      }
+    } catch (JsonProcessingException e) {
+      throw new PrintException("Invalid geoJSON: " + e.getMessage(), e);
+    }
+    return reader;
+  }
+
+  /** The features, in the order of the document. */
+  List<Feature> getFeatures() {
+    return this.features;
+  }
+
+  /** The names of the properties of all the features, in the order they first appear. */
+  Set<String> getAttributeNames() {
+    return this.attributeNames;
+  }
+
+  /** The type common to all the geometries, null if there is no geometry. */
+  @Nullable
+  Class<? extends Geometry> getGeometryType() {
+    return this.geometryType;
+  }
+
+  /** The crs member of the document, null if there is none. */
+  @Nullable
+  JsonNode getCrs() {
+    return this.crs;
+  }
+
+  private void readFeatures(final JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      readObject(parser, false);
+    }
+  }
+
+  /** Read a feature collection or a feature, the parser is on the start of the object. */
+  private void readObject(final JsonParser parser, final boolean root) throws IOException {
+    String type = null;
+    String id = null;
+    Geometry geometry = null;
+    Map<String, Object> properties = Collections.emptyMap();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.currentName();
+      final JsonToken value = parser.nextToken();
+      if (name.equals("type")) {
+        type = parser.getValueAsString();
+      } else if (name.equals("id")) {
+        id = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+      } else if (name.equals("geometry")) {
+        geometry = value == JsonToken.VALUE_NULL ? null : readGeometry(parser.readValueAsTree());
+      } else if (name.equals("properties") && value == JsonToken.START_OBJECT) {
+        properties = readProperties(parser);
+      } else if (name.equals("features") && root && value == JsonToken.START_ARRAY) {
+        readFeatures(parser);
+      } else if (name.equals("crs") && root) {
+        this.crs = parser.readValueAsTree();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    if ("Feature".equalsIgnoreCase(type) || (type == null && !root)) {
+      addFeature(new Feature(id, geometry, properties));
+    } else if (type != null && !(root && type.equalsIgnoreCase("FeatureCollection"))) {
+      throw new PrintException("Invalid geoJSON: unexpected object of type " + type);
+    }
+  }
+
+  private Map<String, Object> readProperties(final JsonParser parser) throws IOException {
+    final Map<String, Object> properties = new LinkedHashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      properties.put(name, parser.readValueAs(Object.class));
+    }
+    return properties;
+  }
+
+  private void addFeature(final Feature feature) {
+    this.features.add(feature);
+    this.attributeNames.addAll(feature.properties.keySet());
+    if (feature.geometry != null && this.geometryType != Geometry.class) {
+      if (this.geometryType == null) {
+        this.geometryType = feature.geometry.getClass();
+      } else if (!this.geometryType.equals(feature.geometry.getClass())) {
+        this.geometryType = Geometry.class;
+      }
+    }
+  }
+
+  private Geometry readGeometry(final JsonNode geometry) {
+    final String type = geometry.path("type").asText();
+    final JsonNode coordinates = geometry.path("coordinates");
+    switch (type) {
+      case "Point":
+        return readPoint(coordinates);
+      case "MultiPoint":
+        final Point[] points = new Point[coordinates.size()];
+        for (int i = 0; i < points.length; i++) {
+          points[i] = readPoint(coordinates.get(i));
+        }
+        return this.geometryFactory.createMultiPoint(points);
+      case "LineString":
+        return this.geometryFactory.createLineString(readCoordinates(coordinates));
+      case "MultiLineString":
+        final LineString[] lineStrings = new LineString[coordinates.size()];
+        for (int i = 0; i < lineStrings.length; i++) {
+          lineStrings[i] =
+              this.geometryFactory.createLineString(readCoordinates(coordinates.get(i)));
+        }
+        return this.geometryFactory.createMultiLineString(lineStrings);
+      case "Polygon":
+        return readPolygon(coordinates);
+      case "MultiPolygon":
+        final Polygon[] polygons = new Polygon[coordinates.size()];
+        for (int i = 0; i < polygons.length; i++) {
+          polygons[i] = readPolygon(coordinates.get(i));
+        }
+        return this.geometryFactory.createMultiPolygon(polygons);
+      case "GeometryCollection":
+        final JsonNode members = geometry.path("geometries");
+        final Geometry[] geometries = new Geometry[members.size()];
+        for (int i = 0; i < geometries.length; i++) {
+          geometries[i] = readGeometry(members.get(i));
+        }
+        return this.geometryFactory.createGeometryCollection(geometries);
+      default:
+        throw new PrintException("Unrecognized geometry type in geojson: " + type);
+    }
+  }
+
+  private Point readPoint(final JsonNode coordinates) {
+    return coordinates.size() == 0
+        ? this.geometryFactory.createPoint()
+        : this.geometryFactory.createPoint(readCoordinate(coordinates));
+  }
+
+  private Polygon readPolygon(final JsonNode rings) {
+    if (rings.size() == 0) {
+      return this.geometryFactory.createPolygon();
+    }
+    final LinearRing shell = this.geometryFactory.createLinearRing(readCoordinates(rings.get(0)));
+    final LinearRing[] holes = new LinearRing[rings.size() - 1];
+    for (int i = 0; i < holes.length; i++) {
+      holes[i] = this.geometryFactory.createLinearRing(readCoordinates(rings.get(i + 1)));
+    }
+    return this.geometryFactory.createPolygon(shell, holes);
+  }
+
+  private static Coordinate[] readCoordinates(final JsonNode coordinates) {
+    final Coordinate[] result = new Coordinate[coordinates.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = readCoordinate(coordinates.get(i));
+    }
+    return result;
+  }
+
+  private static Coordinate readCoordinate(final JsonNode coordinate) {
+    return coordinate.size() > 2
+        ? new Coordinate(
+            coordinate.get(0).asDouble(),
+            coordinate.get(1).asDouble(),
+            coordinate.get(2).asDouble())
+        : new Coordinate(coordinate.get(0).asDouble(), coordinate.get(1).asDouble());
+  }
+
+  /** A feature read from the document. */
+  static final class Feature {
+    private final String id;
+    private final Geometry geometry;
+    private final Map<String, Object> properties;
+
+    private Feature(
+        @Nullable final String id,
+        @Nullable final Geometry geometry,
+        final Map<String, Object> properties) {
+      this.id = id;
+      this.geometry = geometry;
+      this.properties = properties;
+    }
+
+    @Nullable
+    String getId() {
+      return this.id;
+    }
+
+    @Nullable
+    Geometry getGeometry() {
+      return this.geometry;
+    }
+
+    Map<String, Object> getProperties() {
+      return this.properties;
+    }
+  }
+}
@@ -1,14 +1,23 @@
 package org.mapfish.print.map.geotools;
 
+import com.google.common.annotations.VisibleForTesting;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.concurrent.ExecutorService;
 import javax.annotation.Nonnull;
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.eclipse.emf.ecore.resource.URIHandler;
 import org.geotools.data.FeatureSource;
 import org.geotools.data.collection.CollectionFeatureSource;
@@ -18,16 +27,21 @@ import org.geotools.xsd.Configuration;
 import org.geotools.xsd.Parser;
 import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.FileUtils;
-import org.mapfish.print.URIUtils;
 import org.mapfish.print.attribute.map.MapfishMapContext;
 import org.mapfish.print.config.Template;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
 import org.mapfish.print.map.AbstractLayerParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
 import org.xml.sax.SAXException;
 
 /** Parses GML from the request data. */
 public final class GmlLayer extends AbstractFeatureSourceLayer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GmlLayer.class);
+
   /**
    * Constructor.
    *
@@ -56,15 +70,21 @@ public final class GmlLayer extends AbstractFeatureSourceLayer {
   public static final class Plugin extends AbstractFeatureSourceLayerPlugin<GmlParam> {
 
     private static final String TYPE = "gml";
-
-    private static final GMLConfiguration GML_2_PARSER = new GMLConfiguration();
-    private static final org.geotools.gml3.GMLConfiguration GML_3_PARSER =
-        new org.geotools.gml3.GMLConfiguration();
-    private static final org.geotools.gml3.v3_2.GMLConfiguration GML_32_PARSER =
-        new org.geotools.gml3.v3_2.GMLConfiguration(true);
+    private static final String GML_32_NAMESPACE = "http://www.opengis.net/gml/3.2";
+    private static final String WFS_20_NAMESPACE = "http://www.opengis.net/wfs/2.0";
+    // the number of bytes read to find the root element
+    private static final int SNIFF_SIZE = 64 * 1024;
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
 
     @Autowired private URIHandler cachingUrihandler;
 
+    private static XMLInputFactory createXmlInputFactory() {
+      final XMLInputFactory factory = XMLInputFactory.newFactory();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      return factory;
+    }
+
     /** Constructor. */
     public Plugin() {
       super(TYPE);
@@ -78,12 +98,15 @@ public final class GmlLayer extends AbstractFeatureSourceLayer {
     @Nonnull
     @Override
     public GmlLayer parse(@Nonnull final Template template, @Nonnull final GmlParam param) {
-      return new GmlLayer(
-          this.forkJoinPool,
-          createFeatureSourceSupplier(template, param.url),
-          createStyleFunction(template, param.style),
-          template.getConfiguration().renderAsSvg(param.renderAsSvg),
-          param);
+      final GmlLayer layer =
+          new GmlLayer(
+              this.forkJoinPool,
+              createFeatureSourceSupplier(template, param.url),
+              createStyleFunction(template, param.style),
+              template.getConfiguration().renderAsSvg(param.renderAsSvg),
+              param);
+      layer.setGeneralize(template.getConfiguration().isGeneralizeVectorLayers());
+      return layer;
     }
 
     private FeatureSourceSupplier createFeatureSourceSupplier(
@@ -113,72 +136,104 @@ public final class GmlLayer extends AbstractFeatureSourceLayer {
         final MfClientHttpRequestFactory httpRequestFactory,
         final String gmlString)
         throws IOException {
+      final URI uri;
       try {
         URL url = new URL(gmlString);
         FileUtils.testForLegalFileUrl(template.getConfiguration(), url);
-        try {
-          final String gmlData = URIUtils.toString(httpRequestFactory, url.toURI());
-          final int endIndex = 200;
-          String startOfData = gmlData.substring(0, endIndex);
-          if (startOfData.contains("\"http://www.opengis.net/gml/3.2\"")) {
-            return parseGml32(gmlData);
-          } else {
-            return parseGml3(gmlData);
-          }
-        } catch (URISyntaxException e) {
-          throw ExceptionUtils.getRuntimeException(e);
-        }
+        uri = url.toURI();
       } catch (MalformedURLException e) {
         return null;
+      } catch (URISyntaxException e) {
+        throw ExceptionUtils.getRuntimeException(e);
+      }
+
+      final GmlVersion version;
+      try (ClientHttpResponse response =
+          httpRequestFactory.createRequest(uri, HttpMethod.GET).execute()) {
+        final InputStream body = response.getBody();
+        final byte[] start = body.readNBytes(SNIFF_SIZE);
+        version = sniffVersion(start);
+        final InputStream input = new SequenceInputStream(new ByteArrayInputStream(start), body);
+        final SimpleFeatureCollection featureCollection = parse(version, input);
+        if (featureCollection != null || version != GmlVersion.GML3) {
+          return checkParsed(featureCollection, uri);
+        }
+      }
+      // the GML 2 and GML 3 documents have the same namespace, the version is only a guess
+      LOGGER.debug("Unable to parse {} as GML 3, trying GML 2", uri);
+      try (ClientHttpResponse response =
+          httpRequestFactory.createRequest(uri, HttpMethod.GET).execute()) {
+        return checkParsed(parse(GmlVersion.GML2, response.getBody()), uri);
       }
     }
 
-    private SimpleFeatureCollection parseGml3(final String gmlData) throws IOException {
-      Parser gmlV3Parser = createParser(GML_3_PARSER);
-      gmlV3Parser.setStrict(false);
-      gmlV3Parser.setRootElementType(new QName("http://www.opengis.net/wfs", "FeatureCollection"));
+    /**
+     * Guess the version of the GML from the namespaces and the schema location of the root element.
+     *
+     * @param start the start of the document
+     */
+    @VisibleForTesting
+    static GmlVersion sniffVersion(final byte[] start) {
       try {
-        final Object featureCollection = gmlV3Parser.parse(new StringReader(gmlData));
-        if (featureCollection instanceof SimpleFeatureCollection) {
-          return (SimpleFeatureCollection) featureCollection;
+        final XMLStreamReader reader =
+            XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(start));
+        try {
+          while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+              return getVersion(reader);
+            }
+          }
+        } finally {
+          reader.close();
         }
-      } catch (SAXException | ParserConfigurationException e) {
-        // do nothing try to load as gml2
+      } catch (XMLStreamException e) {
+        LOGGER.debug("Unable to read the root element of the GML", e);
       }
-      return parseGml2(gmlData);
+      return GmlVersion.GML3;
     }
 
-    private SimpleFeatureCollection parseGml2(final String gmlData) throws IOException {
-      Parser gmlV2Parser = createParser(GML_2_PARSER);
-      gmlV2Parser.setStrict(false);
-      gmlV2Parser.setRootElementType(new QName("http://www.opengis.net/wfs", "FeatureCollection"));
-      try {
-        final Object featureCollection = gmlV2Parser.parse(new StringReader(gmlData));
-        if (featureCollection instanceof SimpleFeatureCollection) {
-          return (SimpleFeatureCollection) featureCollection;
+    private static GmlVersion getVersion(final XMLStreamReader root) {
+      if (GML_32_NAMESPACE.equals(root.getNamespaceURI())
+          || WFS_20_NAMESPACE.equals(root.getNamespaceURI())) {
+        return GmlVersion.GML32;
+      }
+      for (int i = 0; i < root.getNamespaceCount(); i++) {
+        if (GML_32_NAMESPACE.equals(root.getNamespaceURI(i))) {
+          return GmlVersion.GML32;
         }
-      } catch (SAXException | ParserConfigurationException e) {
-        // do nothing try to load as gml32
       }
-      return parseGml32(gmlData);
+      final String schemaLocation =
+          root.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation");
+      if (schemaLocation != null && schemaLocation.contains("/wfs/1.0.0/")) {
+        return GmlVersion.GML2;
+      }
+      return GmlVersion.GML3;
     }
 
-    private SimpleFeatureCollection parseGml32(final String gmlData) throws IOException {
-      Parser gmlV32Parser = createParser(GML_32_PARSER);
-      gmlV32Parser.setStrict(false);
-      gmlV32Parser.setRootElementType(
-          new QName("http://www.opengis.net/wfs/2.0", "FeatureCollection"));
+    private SimpleFeatureCollection parse(final GmlVersion version, final InputStream input)
+        throws IOException {
+      final Parser parser = createParser(version.configuration);
+      parser.setStrict(false);
+      parser.setRootElementType(version.rootElementType);
       try {
-        final Object featureCollection = gmlV32Parser.parse(new StringReader(gmlData));
+        final Object featureCollection = parser.parse(input);
         if (featureCollection instanceof SimpleFeatureCollection) {
           return (SimpleFeatureCollection) featureCollection;
-        } else {
-          throw new RuntimeException("unable to parse gml: \n\n" + gmlData);
         }
-
       } catch (SAXException | ParserConfigurationException e) {
-        throw ExceptionUtils.getRuntimeException(e);
+        if (version != GmlVersion.GML3) {
+          throw ExceptionUtils.getRuntimeException(e);
+        }
+      }
+      return null;
+    }
+
+    private static SimpleFeatureCollection checkParsed(
+        final SimpleFeatureCollection featureCollection, final URI uri) {
+      if (featureCollection == null) {
+        throw new RuntimeException("unable to parse gml: " + uri);
       }
+      return featureCollection;
     }
 
     private Parser createParser(final Configuration configuration) {
@@ -188,6 +243,25 @@ public final class GmlLayer extends AbstractFeatureSourceLayer {
     }
   }
 
+  /** The versions of GML, with the configuration used to parse them. */
+  enum GmlVersion {
+    GML2(new GMLConfiguration(), new QName("http://www.opengis.net/wfs", "FeatureCollection")),
+    GML3(
+        new org.geotools.gml3.GMLConfiguration(),
+        new QName("http://www.opengis.net/wfs", "FeatureCollection")),
+    GML32(
+        new org.geotools.gml3.v3_2.GMLConfiguration(true),
+        new QName("http://www.opengis.net/wfs/2.0", "FeatureCollection"));
+
+    private final Configuration configuration;
+    private final QName rootElementType;
+
+    GmlVersion(final Configuration configuration, final QName rootElementType) {
+      this.configuration = configuration;
+      this.rootElementType = rootElementType;
+    }
+  }
+
   /** The parameters for creating a layer that renders Gml formatted data. */
   public static class GmlParam extends AbstractVectorLayerParam {
     /**
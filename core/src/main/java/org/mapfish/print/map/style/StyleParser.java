@@ -1,14 +1,22 @@
 package org.mapfish.print.map.style;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleFactory;
 import org.geotools.styling.StyledLayerDescriptor;
 import org.geotools.styling.UserLayer;
+import org.geotools.styling.visitor.DuplicatingStyleVisitor;
 import org.geotools.xml.styling.SLDTransformer;
 import org.mapfish.print.config.Configuration;
 import org.slf4j.Logger;
@@ -19,10 +27,53 @@ import org.springframework.http.client.ClientHttpRequestFactory;
 /**
  * Parse a style using all the available {@link StyleParserPlugin} registered with the spring
  * application context.
+ *
+ * <p>The parsed styles are kept in a cache shared between the print jobs, by configuration and
+ * style string. A copy of the cached style is returned, because the layers modify their styles. The
+ * styles loaded over http are not cached: they are downloaded with the headers and the credentials
+ * of the print job, and may not be accessible to the other users.
  */
 public final class StyleParser {
   private static final Logger LOGGER = LoggerFactory.getLogger(StyleParser.class);
+  private static final String METRIC_PREFIX = StyleParser.class.getName() + ".";
   @Autowired private List<StyleParserPlugin> plugins = new ArrayList<>();
+  @Autowired private MetricRegistry metricRegistry;
+
+  private int cacheSize = 0;
+  private long cacheTimeToLive = 0;
+  private Cache<CacheKey, Style> cache;
+
+  /**
+   * Set the maximum number of parsed styles in the cache, 0 to disable the cache.
+   *
+   * @param cacheSize the number of styles
+   */
+  public void setCacheSize(final int cacheSize) {
+    this.cacheSize = cacheSize;
+  }
+
+  /**
+   * Set the time (in seconds) a parsed style is kept in the cache, to get the changes of the styles
+   * loaded from URLs. 0 to keep it until it is evicted.
+   *
+   * @param cacheTimeToLive the time in seconds
+   */
+  public void setCacheTimeToLive(final long cacheTimeToLive) {
+    this.cacheTimeToLive = cacheTimeToLive;
+  }
+
+  /** Called by spring after the bean has been created and populated. */
+  @PostConstruct
+  public void init() {
+    if (this.cacheSize > 0) {
+      final CacheBuilder<Object, Object> builder =
+          CacheBuilder.newBuilder().maximumSize(this.cacheSize);
+      if (this.cacheTimeToLive > 0) {
+        builder.expireAfterWrite(this.cacheTimeToLive, TimeUnit.SECONDS);
+      }
+      this.cache = builder.build();
+    }
+  }
 
   /**
    * Load style using one of the plugins or return Optional.empty().
@@ -35,36 +86,105 @@ public final class StyleParser {
       final Configuration configuration,
       @Nonnull final ClientHttpRequestFactory clientHttpRequestFactory,
       final String styleString) {
-    if (styleString != null) {
-      for (StyleParserPlugin plugin : this.plugins) {
-        final Optional<? extends Style> style =
-            plugin.parseStyle(configuration, clientHttpRequestFactory, styleString);
-        if (style.isPresent()) {
-          if (LOGGER.isDebugEnabled()) {
-            try {
-              final SLDTransformer transformer = new SLDTransformer();
-              final StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
-              final UserLayer userLayer = styleFactory.createUserLayer();
-              userLayer.addUserStyle(style.get());
-              final StyledLayerDescriptor sld = styleFactory.createStyledLayerDescriptor();
-              sld.addStyledLayer(userLayer);
-              if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(
-                    "Loaded style from: \n\n '{}': \n\n{}",
-                    styleString,
-                    transformer.transform(sld));
-              }
-            } catch (Exception e) {
+    if (styleString == null) {
+      return Optional.empty();
+    }
+    if (this.cache == null || isRemote(styleString)) {
+      return parseStyle(configuration, clientHttpRequestFactory, styleString);
+    }
+    final CacheKey key = new CacheKey(configuration, styleString);
+    Style style = this.cache.getIfPresent(key);
+    if (style != null) {
+      this.metricRegistry.counter(METRIC_PREFIX + "hit").inc();
+    } else {
+      this.metricRegistry.counter(METRIC_PREFIX + "miss").inc();
+      final Optional<? extends Style> parsed =
+          parseStyle(configuration, clientHttpRequestFactory, styleString);
+      if (parsed.isEmpty()) {
+        return parsed;
+      }
+      style = parsed.get();
+      this.cache.put(key, style);
+    }
+    return Optional.of(copy(style));
+  }
+
+  private Optional<? extends Style> parseStyle(
+      final Configuration configuration,
+      final ClientHttpRequestFactory clientHttpRequestFactory,
+      final String styleString) {
+    for (StyleParserPlugin plugin : this.plugins) {
+      final Optional<? extends Style> style =
+          plugin.parseStyle(configuration, clientHttpRequestFactory, styleString);
+      if (style.isPresent()) {
+        if (LOGGER.isDebugEnabled()) {
+          try {
+            final SLDTransformer transformer = new SLDTransformer();
+            final StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+            final UserLayer userLayer = styleFactory.createUserLayer();
+            userLayer.addUserStyle(style.get());
+            final StyledLayerDescriptor sld = styleFactory.createStyledLayerDescriptor();
+            sld.addStyledLayer(userLayer);
+            if (LOGGER.isDebugEnabled()) {
               LOGGER.debug(
-                  "Loaded style from: \n\n '{}' \n\n<Unable to transform it to xml>",
-                  styleString,
-                  e);
+                  "Loaded style from: \n\n '{}': \n\n{}", styleString, transformer.transform(sld));
             }
+          } catch (Exception e) {
+            LOGGER.debug(
+                "Loaded style from: \n\n '{}' \n\n<Unable to transform it to xml>", styleString, e);
           }
-          return style;
         }
+        return style;
       }
     }
     return Optional.empty();
   }
+
+  /** Return true if the style is loaded from a URL with another scheme than file. */
+  private static boolean isRemote(final String styleString) {
+    try {
+      final String scheme = new URI(styleString).getScheme();
+      return scheme != null && !scheme.equalsIgnoreCase("file");
+    } catch (URISyntaxException e) {
+      // an inline style
+      return false;
+    }
+  }
+
+  private static Style copy(final Style style) {
+    final DuplicatingStyleVisitor visitor = new DuplicatingStyleVisitor();
+    style.accept(visitor);
+    return (Style) visitor.getCopy();
+  }
+
+  /**
+   * The configuration (compared by identity, a reloaded configuration is a new object) and style.
+   */
+  private static final class CacheKey {
+    private final Configuration configuration;
+    private final String styleString;
+
+    private CacheKey(final Configuration configuration, final String styleString) {
+      this.configuration = configuration;
+      this.styleString = styleString;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      final CacheKey other = (CacheKey) o;
+      return this.configuration == other.configuration
+          && this.styleString.equals(other.styleString);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(this.configuration) + this.styleString.hashCode();
+    }
+  }
 }
@@ -1,15 +1,22 @@
 package org.mapfish.print.map.tiled;
 
 import com.codahale.metrics.MetricRegistry;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.map.GridCoverageLayer;
 import org.geotools.map.Layer;
+import org.geotools.referencing.CRS;
+import org.mapfish.print.FloatingPointUtil;
 import org.mapfish.print.attribute.map.MapBounds;
 import org.mapfish.print.attribute.map.MapfishMapContext;
 import org.mapfish.print.config.Configuration;
@@ -85,21 +92,43 @@ public abstract class AbstractTiledLayer extends AbstractGeotoolsLayer {
             mapContext.getDPI());
   }
 
+  @Override
+  public final void render(
+      final Graphics2D graphics2D,
+      final MfClientHttpRequestFactory clientHttpRequestFactory,
+      final MapfishMapContext transformer,
+      final Processor.ExecutionContext context) {
+    if (!this.tileCacheInformation.isDirectRendering()
+        || !FloatingPointUtil.equals(transformer.getRotation(), 0.0)
+        || !CRS.equalsIgnoreMetadata(
+            this.tilePreparationInfo.getMapProjection(), transformer.getBounds().getProjection())) {
+      super.render(graphics2D, clientHttpRequestFactory, transformer, context);
+      return;
+    }
+
+    final Rectangle paintArea = new Rectangle(transformer.getMapSize());
+    final ReferencedEnvelope mapArea = transformer.getBounds().toReferencedEnvelope(paintArea);
+    final Graphics2D tilesGraphics = (Graphics2D) graphics2D.create();
+    try {
+      tilesGraphics.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+      if (getOpacity() < 1.0) {
+        tilesGraphics.setComposite(
+            AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) getOpacity()));
+      }
+      createCoverageTask(context).draw(tilesGraphics, mapArea, paintArea);
+    } finally {
+      tilesGraphics.dispose();
+    }
+  }
+
   @Override
   protected final List<? extends Layer> getLayers(
       final MfClientHttpRequestFactory httpRequestFactory,
       final MapfishMapContext mapContext,
       final Processor.ExecutionContext context) {
 
-    final CoverageTask task =
-        new CoverageTask(
-            this.tilePreparationInfo,
-            getFailOnError(),
-            this.registry,
-            context,
-            this.tileCacheInformation,
-            this.configuration);
-    final GridCoverage2D gridCoverage2D = task.call();
+    final GridCoverage2D gridCoverage2D = createCoverageTask(context).call();
 
     GridCoverageLayer layer =
         new GridCoverageLayer(
@@ -107,6 +136,18 @@ public abstract class AbstractTiledLayer extends AbstractGeotoolsLayer {
     return Collections.singletonList(layer);
   }
 
+  private CoverageTask createCoverageTask(final Processor.ExecutionContext context) {
+    final ExecutorService executorService = getExecutorService();
+    return new CoverageTask(
+        this.tilePreparationInfo,
+        getFailOnError(),
+        executorService instanceof ForkJoinPool ? (ForkJoinPool) executorService : null,
+        this.registry,
+        context,
+        this.tileCacheInformation,
+        this.configuration);
+  }
+
   /**
    * Create the tile cache information object for the given parameters.
    *
@@ -13,6 +13,19 @@ public abstract class AbstractTiledLayerParams extends AbstractLayerParams {
    */
   @HasDefaultValue public String rasterStyle = "raster";
 
+  /**
+   * The maximum number of tiles of this layer that are decoded and drawn on the map at the same
+   * time. Set it to 1 to load the tiles one after the other.
+   */
+  @HasDefaultValue public int tileLoadingParallelism = 4;
+
+  /**
+   * Draw the tiles directly on the map instead of first assembling them in an image covering the
+   * whole layer. This uses a lot less memory for big maps. It is only done when the map isn't
+   * rotated, and the {@link #rasterStyle} is then ignored.
+   */
+  @HasDefaultValue public boolean directRendering = false;
+
   /** Constructor. */
   protected AbstractTiledLayerParams() {
     super();
@@ -26,6 +39,8 @@ public abstract class AbstractTiledLayerParams extends AbstractLayerParams {
   protected AbstractTiledLayerParams(final AbstractTiledLayerParams other) {
     super(other);
     this.rasterStyle = other.rasterStyle;
+    this.tileLoadingParallelism = other.tileLoadingParallelism;
+    this.directRendering = other.directRendering;
   }
 
   /**
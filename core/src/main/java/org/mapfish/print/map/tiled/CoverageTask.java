@@ -4,18 +4,27 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
 import org.apache.commons.io.IOUtils;
 import org.geotools.coverage.CoverageFactoryFinder;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.locationtech.jts.geom.Coordinate;
 import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.StatsUtils;
 import org.mapfish.print.config.Configuration;
@@ -37,6 +46,7 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
   private final TileCacheInformation tiledLayer;
   private final TilePreparationInfo tilePreparationInfo;
   private final boolean failOnError;
+  private final ForkJoinPool forkJoinPool;
   private final MetricRegistry registry;
   private final Processor.ExecutionContext context;
   private final BufferedImage errorImage;
@@ -46,6 +56,8 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
    *
    * @param tilePreparationInfo tileLoader Results.
    * @param failOnError fail on tile download error.
+   * @param forkJoinPool the thread pool used to load the tiles in parallel, null to load them
+   *     sequentially.
    * @param registry the metrics registry.
    * @param context the job ID.
    * @param tileCacheInfo the object used to create the tile requests.
@@ -54,6 +66,7 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
   protected CoverageTask(
       @Nonnull final TilePreparationInfo tilePreparationInfo,
       final boolean failOnError,
+      @Nullable final ForkJoinPool forkJoinPool,
       @Nonnull final MetricRegistry registry,
       @Nonnull final Processor.ExecutionContext context,
       @Nonnull final TileCacheInformation tileCacheInfo,
@@ -62,6 +75,7 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
     this.context = context;
     this.tiledLayer = tileCacheInfo;
     this.failOnError = failOnError;
+    this.forkJoinPool = forkJoinPool;
     this.registry = registry;
 
     final Dimension tileSize = this.tiledLayer.getTileSize();
@@ -84,56 +98,7 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
               this.tilePreparationInfo.getImageWidth(), this.tilePreparationInfo.getImageHeight());
       Graphics2D graphics = coverageImage.createGraphics();
       try {
-        for (SingleTilePreparationInfo tileInfo : this.tilePreparationInfo.getSingleTiles()) {
-          final TileTask task;
-          if (tileInfo.getTileRequest() != null) {
-            task =
-                new SingleTileLoaderTask(
-                    tileInfo.getTileRequest(),
-                    this.errorImage,
-                    tileInfo.getTileIndexX(),
-                    tileInfo.getTileIndexY(),
-                    this.failOnError,
-                    this.registry,
-                    this.context);
-          } else {
-            task =
-                new PlaceHolderImageTask(
-                    this.tiledLayer.getMissingTileImage(),
-                    tileInfo.getTileIndexX(),
-                    tileInfo.getTileIndexY());
-          }
-          Tile tile = task.call();
-          if (tile.getImage() != null) {
-            // crop the image here
-            BufferedImage noBufferTileImage;
-            if (this.tiledLayer.getTileBufferWidth() > 0
-                || this.tiledLayer.getTileBufferHeight() > 0) {
-              int noBufferWidth =
-                  Math.min(
-                      this.tiledLayer.getTileSize().width,
-                      tile.getImage().getWidth() - this.tiledLayer.getTileBufferWidth());
-              int noBufferHeight =
-                  Math.min(
-                      this.tiledLayer.getTileSize().height,
-                      tile.getImage().getHeight() - this.tiledLayer.getTileBufferHeight());
-              noBufferTileImage =
-                  tile.getImage()
-                      .getSubimage(
-                          this.tiledLayer.getTileBufferWidth(),
-                          this.tiledLayer.getTileBufferHeight(),
-                          noBufferWidth,
-                          noBufferHeight);
-            } else {
-              noBufferTileImage = tile.getImage();
-            }
-            graphics.drawImage(
-                noBufferTileImage,
-                tile.getxIndex() * this.tiledLayer.getTileSize().width,
-                tile.getyIndex() * this.tiledLayer.getTileSize().height,
-                null);
-          }
-        }
+        drawTiles(graphics, new AffineTransform());
       } finally {
         graphics.dispose();
       }
@@ -153,6 +118,181 @@ public final class CoverageTask implements Callable<GridCoverage2D> {
     }
   }
 
+  /**
+   * Draw the tiles directly on the target graphics, without creating the coverage image. The tiles
+   * must be in the same projection as the map.
+   *
+   * @param graphics the graphics to draw on.
+   * @param mapArea the area of the map in world coordinates.
+   * @param paintArea the area to paint on the graphics.
+   */
+  public void draw(
+      final Graphics2D graphics, final ReferencedEnvelope mapArea, final Rectangle paintArea) {
+    final double scaleX = paintArea.getWidth() / mapArea.getWidth();
+    final double scaleY = paintArea.getHeight() / mapArea.getHeight();
+    final Coordinate origin = this.tilePreparationInfo.getGridCoverageOrigin();
+    final double maxY = this.tilePreparationInfo.getGridCoverageMaxY();
+    final AffineTransform coverageToPaintArea =
+        new AffineTransform(
+            (this.tilePreparationInfo.getGridCoverageMaxX() - origin.x)
+                / this.tilePreparationInfo.getImageWidth()
+                * scaleX,
+            0.0,
+            0.0,
+            (maxY - origin.y) / this.tilePreparationInfo.getImageHeight() * scaleY,
+            paintArea.getX() + (origin.x - mapArea.getMinX()) * scaleX,
+            paintArea.getY() + (mapArea.getMaxY() - maxY) * scaleY);
+    drawTiles(graphics, coverageToPaintArea);
+
+    // the 4 bytes per pixel coverage image that has not been created
+    final long savedBytes =
+        4L * this.tilePreparationInfo.getImageWidth() * this.tilePreparationInfo.getImageHeight();
+    this.registry.histogram(CoverageTask.class.getName() + ".savedRasterBytes").update(savedBytes);
+    LOGGER.debug("Tiles drawn directly on the map, {} bytes of raster saved", savedBytes);
+  }
+
+  /**
+   * Load the tiles and draw them on the graphics.
+   *
+   * @param graphics the graphics to draw on.
+   * @param transform the transformation from the coverage image pixels to the graphics.
+   */
+  private void drawTiles(final Graphics2D graphics, final AffineTransform transform) {
+    final List<SingleTilePreparationInfo> tiles = this.tilePreparationInfo.getSingleTiles();
+    final int parallelism =
+        this.forkJoinPool == null
+            ? 1
+            : Math.max(1, Math.min(this.tiledLayer.getTileLoadingParallelism(), tiles.size()));
+    final TileDrawingTask task =
+        new TileDrawingTask(
+            tiles,
+            0,
+            tiles.size(),
+            (tiles.size() + parallelism - 1) / parallelism,
+            graphics,
+            transform);
+    if (parallelism == 1) {
+      task.invoke();
+    } else {
+      this.forkJoinPool.invoke(task);
+    }
+  }
+
+  private TileTask createTileTask(final SingleTilePreparationInfo tileInfo) {
+    if (tileInfo.getTileRequest() != null) {
+      return new SingleTileLoaderTask(
+          tileInfo.getTileRequest(),
+          this.errorImage,
+          tileInfo.getTileIndexX(),
+          tileInfo.getTileIndexY(),
+          this.failOnError,
+          this.registry,
+          this.context);
+    } else {
+      return new PlaceHolderImageTask(
+          this.tiledLayer.getMissingTileImage(),
+          tileInfo.getTileIndexX(),
+          tileInfo.getTileIndexY());
+    }
+  }
+
+  private void drawTile(
+      final Graphics2D graphics, final AffineTransform transform, final Tile tile) {
+    if (tile.getImage() != null) {
+      // crop the image here
+      BufferedImage noBufferTileImage;
+      if (this.tiledLayer.getTileBufferWidth() > 0 || this.tiledLayer.getTileBufferHeight() > 0) {
+        int noBufferWidth =
+            Math.min(
+                this.tiledLayer.getTileSize().width,
+                tile.getImage().getWidth() - this.tiledLayer.getTileBufferWidth());
+        int noBufferHeight =
+            Math.min(
+                this.tiledLayer.getTileSize().height,
+                tile.getImage().getHeight() - this.tiledLayer.getTileBufferHeight());
+        noBufferTileImage =
+            tile.getImage()
+                .getSubimage(
+                    this.tiledLayer.getTileBufferWidth(),
+                    this.tiledLayer.getTileBufferHeight(),
+                    noBufferWidth,
+                    noBufferHeight);
+      } else {
+        noBufferTileImage = tile.getImage();
+      }
+      final int x = tile.getxIndex() * this.tiledLayer.getTileSize().width;
+      final int y = tile.getyIndex() * this.tiledLayer.getTileSize().height;
+      // round the corners to avoid seams between the tiles when they are scaled
+      final Point2D topLeft = transform.transform(new Point2D.Double(x, y), null);
+      final Point2D bottomRight =
+          transform.transform(
+              new Point2D.Double(
+                  x + noBufferTileImage.getWidth(), y + noBufferTileImage.getHeight()),
+              null);
+      // Graphics2D is not thread safe
+      synchronized (graphics) {
+        graphics.drawImage(
+            noBufferTileImage,
+            (int) Math.round(topLeft.getX()),
+            (int) Math.round(topLeft.getY()),
+            (int) Math.round(bottomRight.getX()),
+            (int) Math.round(bottomRight.getY()),
+            0,
+            0,
+            noBufferTileImage.getWidth(),
+            noBufferTileImage.getHeight(),
+            null);
+      }
+    }
+  }
+
+  /**
+   * Load a range of tiles and draw them on the coverage image as soon as they are decoded. The
+   * range is split until it has at most {@code batchSize} tiles, the number of batches is the
+   * parallelism.
+   */
+  private final class TileDrawingTask extends RecursiveAction {
+    private final List<SingleTilePreparationInfo> tiles;
+    private final int start;
+    private final int end;
+    private final int batchSize;
+    private final Graphics2D graphics;
+    private final AffineTransform transform;
+
+    private TileDrawingTask(
+        final List<SingleTilePreparationInfo> tiles,
+        final int start,
+        final int end,
+        final int batchSize,
+        final Graphics2D graphics,
+        final AffineTransform transform) {
+      this.tiles = tiles;
+      this.start = start;
+      this.end = end;
+      this.batchSize = batchSize;
+      this.graphics = graphics;
+      this.transform = transform;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.end - this.start <= this.batchSize) {
+        for (int i = this.start; i < this.end; i++) {
+          CoverageTask.this.context.stopIfCanceled();
+          drawTile(this.graphics, this.transform, createTileTask(this.tiles.get(i)).call());
+        }
+      } else {
+        final int batches = (this.end - this.start + this.batchSize - 1) / this.batchSize;
+        final int middle = this.start + batches / 2 * this.batchSize;
+        invokeAll(
+            new TileDrawingTask(
+                this.tiles, this.start, middle, this.batchSize, this.graphics, this.transform),
+            new TileDrawingTask(
+                this.tiles, middle, this.end, this.batchSize, this.graphics, this.transform));
+      }
+    }
+  }
+
   /** Tile Task. */
   public abstract static class TileTask extends RecursiveTask<Tile> implements Callable<Tile> {
     private final int tileIndexX;
@@ -100,6 +100,16 @@ public abstract class TileCacheInformation {
     return 0;
   }
 
+  /** Obtain the maximum number of tiles to decode and draw in parallel. */
+  public final int getTileLoadingParallelism() {
+    return this.params.tileLoadingParallelism;
+  }
+
+  /** Return true if the tiles should be drawn directly on the map. */
+  public final boolean isDirectRendering() {
+    return this.params.directRendering;
+  }
+
   /** Return the full bounds of the tileCache. */
   @Nonnull
   protected abstract ReferencedEnvelope getTileCacheBounds();
@@ -161,7 +161,7 @@ public final class TilePreparationTask implements Callable<TilePreparationInfo>
                         row);
                 if (isInTileCacheBounds(tileCacheBounds, tileBounds)) {
                   if (isTileVisible(tileBounds)) {
-                    tileRequest = this.requestCache.register(tileRequest);
+                    tileRequest = this.requestCache.registerTile(tileRequest);
                     tiles.add(new SingleTilePreparationInfo(xIndex, yIndex, tileRequest));
                   }
                 } else {
@@ -11,12 +11,14 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
@@ -32,11 +34,13 @@ import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRRewindableDataSource;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
 import net.sf.jasperreports.engine.JasperReportsContext;
 import net.sf.jasperreports.engine.SimpleJasperReportsContext;
 import net.sf.jasperreports.engine.data.JRMapCollectionDataSource;
 import net.sf.jasperreports.engine.design.JRDesignField;
 import net.sf.jasperreports.renderers.Renderable;
+import net.sf.jasperreports.repo.FileRepositoryService;
 import net.sf.jasperreports.repo.RepositoryService;
 import org.locationtech.jts.util.AssertionFailedException;
 import org.mapfish.print.Constants;
@@ -50,6 +54,8 @@ import org.mapfish.print.processor.Processor;
 import org.mapfish.print.processor.ProcessorDependencyGraph;
 import org.mapfish.print.processor.http.MfClientHttpRequestFactoryProvider;
 import org.mapfish.print.processor.jasper.JasperReportBuilder;
+import org.mapfish.print.processor.jasper.JasperReportCache;
+import org.mapfish.print.processor.jasper.StreamingDataSource;
 import org.mapfish.print.wrapper.json.PJsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,12 +70,18 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(AbstractJasperReportOutputFormat.class);
 
+  /** The parsed declarations of the report templates, by absolute path. */
+  private static final Map<String, TemplateDeclarations> TEMPLATE_DECLARATIONS =
+      new ConcurrentHashMap<>();
+
   @Autowired private ForkJoinPool forkJoinPool;
 
   @Autowired private WorkingDirectories workingDirectories;
 
   @Autowired private MfClientHttpRequestFactoryImpl httpRequestFactory;
 
+  @Autowired private JasperReportCache jasperReportCache;
+
   /**
    * Export the report to the output stream.
    *
@@ -100,9 +112,20 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
   }
 
   private JasperFillManager getJasperFillManager(
-      final MfClientHttpRequestFactoryProvider httpRequestFactoryProvider) {
+      final MfClientHttpRequestFactoryProvider httpRequestFactoryProvider,
+      final File jasperTemplateBuild) {
     JasperReportsContext ctx = getJasperReportsContext(httpRequestFactoryProvider);
-    return JasperFillManager.getInstance(ctx);
+    // resolve the relative resources from the directory of the report, like
+    // JasperFillManager.fill(String, ...) does
+    final SimpleJasperReportsContext localCtx = new SimpleJasperReportsContext(ctx);
+    final List<RepositoryService> repositoryServices = new ArrayList<>();
+    repositoryServices.add(
+        new FileRepositoryService(
+            localCtx, jasperTemplateBuild.getParentFile().getAbsolutePath(), true));
+    repositoryServices.add(new FileRepositoryService(localCtx, ".", true));
+    repositoryServices.addAll(ctx.getExtensions(RepositoryService.class));
+    localCtx.setExtensions(RepositoryService.class, repositoryServices);
+    return JasperFillManager.getInstance(localCtx);
   }
 
   /**
@@ -151,91 +174,100 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
         template.getProcessorGraph().createTask(values);
     final ForkJoinTask<Values> taskFuture = this.forkJoinPool.submit(task);
 
-    try {
-      taskFuture.get();
-    } catch (InterruptedException exc) {
-      // if cancel() is called on the current thread, this exception will be thrown.
-      // in this case, also properly cancel the task future.
-      taskFuture.cancel(true);
-      Thread.currentThread().interrupt();
-      throw new CancellationException();
-    }
-
-    // Fill the resource bundle
-    String resourceBundle = config.getResourceBundle();
-    if (resourceBundle != null) {
-      values.put(
-          "REPORT_RESOURCE_BUNDLE",
-          ResourceBundle.getBundle(
-              resourceBundle,
-              values.getObject(Values.LOCALE_KEY, Locale.class),
-              new ResourceBundleClassLoader(configDir)));
-    }
-
-    ValuesLogger.log(templateName, template, values);
-    JasperFillManager fillManager =
-        getJasperFillManager(
-            values.getObject(
-                Values.CLIENT_HTTP_REQUEST_FACTORY_KEY, MfClientHttpRequestFactoryProvider.class));
-
-    checkRequiredValues(config, values, template.getReportTemplate());
-
     final JasperPrint print;
-
-    for (String jdbcDriver : template.getJdbcDrivers()) {
+    try {
       try {
-        Class.forName(jdbcDriver);
-      } catch (ClassNotFoundException e) {
-        throw new AssertionError(
-            String.format(
-                "Unable to load JDBC driver: "
-                    + jdbcDriver
-                    + " ensure that the web application has the jar on its classpath"));
+        taskFuture.get();
+      } catch (InterruptedException exc) {
+        // if cancel() is called on the current thread, this exception will be thrown.
+        // in this case, also properly cancel the task future.
+        taskFuture.cancel(true);
+        Thread.currentThread().interrupt();
+        throw new CancellationException();
       }
-    }
-    if (template.getJdbcUrl() != null) {
-      Connection connection = null;
-      try {
-        if (template.getJdbcUser() != null) {
-          connection =
-              DriverManager.getConnection(
-                  template.getJdbcUrl(), template.getJdbcUser(), template.getJdbcPassword());
-        } else {
-          connection = DriverManager.getConnection(template.getJdbcUrl());
-        }
 
-        print = fillManager.fill(jasperTemplateBuild.getAbsolutePath(), values.asMap(), connection);
-      } finally {
-        if (connection != null && !connection.isClosed()) {
-          connection.close();
-        }
+      // Fill the resource bundle
+      String resourceBundle = config.getResourceBundle();
+      if (resourceBundle != null) {
+        values.put(
+            "REPORT_RESOURCE_BUNDLE",
+            ResourceBundle.getBundle(
+                resourceBundle,
+                values.getObject(Values.LOCALE_KEY, Locale.class),
+                new ResourceBundleClassLoader(configDir)));
       }
-    } else {
-      JRDataSource dataSource;
-      if (template.getTableDataKey() != null) {
-        final Object dataSourceObj = values.getObject(template.getTableDataKey(), Object.class);
-        if (dataSourceObj instanceof JRDataSource) {
-          dataSource = (JRDataSource) dataSourceObj;
-        } else if (dataSourceObj instanceof Iterable) {
-          Iterable sourceObj = (Iterable) dataSourceObj;
-          dataSource = toJRDataSource(sourceObj.iterator());
-        } else if (dataSourceObj instanceof Iterator) {
-          Iterator sourceObj = (Iterator) dataSourceObj;
-          dataSource = toJRDataSource(sourceObj);
-        } else if (dataSourceObj.getClass().isArray()) {
-          Object[] sourceObj = (Object[]) dataSourceObj;
-          dataSource = toJRDataSource(Arrays.asList(sourceObj).iterator());
-        } else {
+
+      ValuesLogger.log(templateName, template, values);
+      JasperFillManager fillManager =
+          getJasperFillManager(
+              values.getObject(
+                  Values.CLIENT_HTTP_REQUEST_FACTORY_KEY, MfClientHttpRequestFactoryProvider.class),
+              jasperTemplateBuild);
+      final JasperReport jasperReport = this.jasperReportCache.getReport(jasperTemplateBuild);
+
+      final TemplateDeclarations declarations =
+          getTemplateDeclarations(config, jasperTemplateFile, template.getReportTemplate());
+      checkRequiredValues(declarations, values, template.getReportTemplate());
+
+      for (String jdbcDriver : template.getJdbcDrivers()) {
+        try {
+          Class.forName(jdbcDriver);
+        } catch (ClassNotFoundException e) {
           throw new AssertionError(
               String.format(
-                  "Objects of type: %s cannot be converted to a row in a " + "JRDataSource",
-                  dataSourceObj.getClass()));
+                  "Unable to load JDBC driver: "
+                      + jdbcDriver
+                      + " ensure that the web application has the jar on its classpath"));
+        }
+      }
+      if (template.getJdbcUrl() != null) {
+        Connection connection = null;
+        try {
+          if (template.getJdbcUser() != null) {
+            connection =
+                DriverManager.getConnection(
+                    template.getJdbcUrl(), template.getJdbcUser(), template.getJdbcPassword());
+          } else {
+            connection = DriverManager.getConnection(template.getJdbcUrl());
+          }
+
+          print = fillManager.fill(jasperReport, values.asMap(), connection);
+        } finally {
+          if (connection != null && !connection.isClosed()) {
+            connection.close();
+          }
         }
       } else {
-        dataSource = new JREmptyDataSource();
+        JRDataSource dataSource;
+        if (template.getTableDataKey() != null) {
+          final Object dataSourceObj = values.getObject(template.getTableDataKey(), Object.class);
+          if (dataSourceObj instanceof JRDataSource) {
+            dataSource = (JRDataSource) dataSourceObj;
+          } else if (dataSourceObj instanceof Iterable) {
+            Iterable sourceObj = (Iterable) dataSourceObj;
+            dataSource = toJRDataSource(sourceObj.iterator());
+          } else if (dataSourceObj instanceof Iterator) {
+            Iterator sourceObj = (Iterator) dataSourceObj;
+            dataSource = toJRDataSource(sourceObj);
+          } else if (dataSourceObj.getClass().isArray()) {
+            Object[] sourceObj = (Object[]) dataSourceObj;
+            dataSource = toJRDataSource(Arrays.asList(sourceObj).iterator());
+          } else {
+            throw new AssertionError(
+                String.format(
+                    "Objects of type: %s cannot be converted to a row in a " + "JRDataSource",
+                    dataSourceObj.getClass()));
+          }
+        } else {
+          dataSource = new JREmptyDataSource();
+        }
+        checkRequiredFields(declarations, dataSource, template.getReportTemplate());
+        print = fillManager.fill(jasperReport, values.asMap(), dataSource);
       }
-      checkRequiredFields(config, dataSource, template.getReportTemplate());
-      print = fillManager.fill(jasperTemplateBuild.getAbsolutePath(), values.asMap(), dataSource);
+    } finally {
+      // the rows of the streaming datasources that are not read because the processors or the fill
+      // failed or were canceled
+      StreamingDataSource.cancelAll(values.asMap().values());
     }
     print.setProperty(Renderable.PROPERTY_IMAGE_DPI, String.valueOf(Math.round(maxDpi)));
     return new Print(
@@ -249,38 +281,38 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
   }
 
   private void checkRequiredFields(
-      final Configuration configuration,
+      final TemplateDeclarations declarations,
       final JRDataSource dataSource,
       final String reportTemplate) {
     if (dataSource instanceof JRRewindableDataSource) {
       JRRewindableDataSource source = (JRRewindableDataSource) dataSource;
       StringBuilder wrongType = new StringBuilder();
       try {
+        final Map<String, Class<?>> classes = new HashMap<>();
+        JRDesignField field = new JRDesignField();
         while (source.next()) {
-          final Document document = parseXML(configuration, reportTemplate);
-          final NodeList parameters = document.getElementsByTagName("field");
-          JRDesignField field = new JRDesignField();
-          for (int i = 0; i < parameters.getLength(); i++) {
-            final Element param = (Element) parameters.item(i);
-            final String name = param.getAttribute("name");
-            field.setName(name);
+          for (Declaration declaration : declarations.fields) {
+            field.setName(declaration.name);
             Object fieldValue = dataSource.getFieldValue(field);
             if (fieldValue != null) {
-              final String type = param.getAttribute("class");
-              Class<?> clazz = Class.forName(type);
+              Class<?> clazz = classes.get(declaration.type);
+              if (clazz == null) {
+                clazz = Class.forName(declaration.type);
+                classes.put(declaration.type, clazz);
+              }
               if (!clazz.isInstance(fieldValue)) {
                 wrongType
                     .append("\t* ")
-                    .append(name)
+                    .append(declaration.name)
                     .append(": ")
                     .append(fieldValue.getClass().getName());
-                wrongType.append(" expected type: ").append(type).append("\n");
+                wrongType.append(" expected type: ").append(declaration.type).append("\n");
               }
             } else {
               LOGGER.warn(
                   "The field {} in {} is not available in at least one of the rows in the"
                       + " datasource.  This may not be an error.",
-                  name,
+                  declaration.name,
                   reportTemplate);
             }
           }
@@ -296,22 +328,18 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
   }
 
   private void checkRequiredValues(
-      final Configuration configuration, final Values values, final String reportTemplate) {
+      final TemplateDeclarations declarations, final Values values, final String reportTemplate) {
     StringBuilder missing = new StringBuilder();
     StringBuilder wrongType = new StringBuilder();
     try {
-
-      final Document document = parseXML(configuration, reportTemplate);
-      final NodeList parameters = document.getElementsByTagName("parameter");
-      for (int i = 0; i < parameters.getLength(); i++) {
-        final Element param = (Element) parameters.item(i);
-        final String name = param.getAttribute("name");
+      for (Declaration declaration : declarations.parameters) {
+        final String name = declaration.name;
         if (!values.containsKey(name)) {
-          if (param.getElementsByTagName("defaultValueExpression").getLength() == 0) {
+          if (!declaration.hasDefaultValue) {
             missing.append("\t* ").append(name).append("\n");
           }
         } else {
-          final String type = param.getAttribute("class");
+          final String type = declaration.type;
           Class<?> clazz = Class.forName(type);
           Object value = values.getObject(name, Object.class);
           if (!clazz.isInstance(value)) {
@@ -357,6 +385,30 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
     }
   }
 
+  /**
+   * Get the parameters and fields declared in a report template. The declarations are cached until
+   * the template file is modified.
+   */
+  private TemplateDeclarations getTemplateDeclarations(
+      final Configuration configuration, final File templateFile, final String reportTemplate) {
+    final String key = templateFile.getAbsolutePath();
+    final long lastModified = templateFile.lastModified();
+    TemplateDeclarations declarations = TEMPLATE_DECLARATIONS.get(key);
+    if (declarations == null || declarations.lastModified != lastModified || lastModified == 0) {
+      try {
+        declarations =
+            new TemplateDeclarations(lastModified, parseXML(configuration, reportTemplate));
+      } catch (Throwable e) {
+        throw ExceptionUtils.getRuntimeException(e);
+      }
+      // the file can't be checked for modifications if it doesn't exist (not loaded from a file)
+      if (lastModified != 0) {
+        TEMPLATE_DECLARATIONS.put(key, declarations);
+      }
+    }
+    return declarations;
+  }
+
   private Document parseXML(final Configuration configuration, final String reportTemplate)
       throws ParserConfigurationException, IOException, SAXException {
     final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -373,7 +425,8 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
     ctx.setExtensions(
         RepositoryService.class,
         Collections.singletonList(
-            new MapfishPrintRepositoryService(httpRequestFactoryProvider.get())));
+            new MapfishPrintRepositoryService(
+                httpRequestFactoryProvider.get(), this.jasperReportCache)));
     return ctx;
   }
 
@@ -410,6 +463,45 @@ public abstract class AbstractJasperReportOutputFormat implements OutputFormat {
     return maxDpi;
   }
 
+  /** The parameters and fields declared in a report template. */
+  private static final class TemplateDeclarations {
+    private final long lastModified;
+    private final List<Declaration> parameters = new ArrayList<>();
+    private final List<Declaration> fields = new ArrayList<>();
+
+    private TemplateDeclarations(final long lastModified, final Document document) {
+      this.lastModified = lastModified;
+      final NodeList parameterNodes = document.getElementsByTagName("parameter");
+      for (int i = 0; i < parameterNodes.getLength(); i++) {
+        final Element param = (Element) parameterNodes.item(i);
+        this.parameters.add(
+            new Declaration(
+                param.getAttribute("name"),
+                param.getAttribute("class"),
+                param.getElementsByTagName("defaultValueExpression").getLength() > 0));
+      }
+      final NodeList fieldNodes = document.getElementsByTagName("field");
+      for (int i = 0; i < fieldNodes.getLength(); i++) {
+        final Element field = (Element) fieldNodes.item(i);
+        this.fields.add(
+            new Declaration(field.getAttribute("name"), field.getAttribute("class"), false));
+      }
+    }
+  }
+
+  /** A parameter or field declaration. */
+  private static final class Declaration {
+    private final String name;
+    private final String type;
+    private final boolean hasDefaultValue;
+
+    private Declaration(final String name, final String type, final boolean hasDefaultValue) {
+      this.name = name;
+      this.type = type;
+      this.hasDefaultValue = hasDefaultValue;
+    }
+  }
+
   /** The print information for doing the export. */
   public static final class Print {
     // CHECKSTYLE:OFF
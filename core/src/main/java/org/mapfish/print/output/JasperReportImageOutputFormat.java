@@ -13,7 +13,9 @@ import java.io.OutputStream;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperPrintManager;
+import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.ImageUtils;
+import org.mapfish.print.StripRenderedImage;
 
 /** An PDF output format that uses Jasper reports to generate the result. */
 public final class JasperReportImageOutputFormat extends AbstractJasperReportOutputFormat
@@ -37,6 +39,10 @@ public final class JasperReportImageOutputFormat extends AbstractJasperReportOut
     this.fileSuffix = fileSuffix;
   }
 
+  /**
+   * The pages are rendered one by one, when the image writer reads them, so only one page is kept
+   * in memory with the writers that read the image by rows or strips (PNG, TIFF).
+   */
   @Override
   protected void doExport(final OutputStream outputStream, final Print print)
       throws JRException, IOException {
@@ -48,48 +54,67 @@ public final class JasperReportImageOutputFormat extends AbstractJasperReportOut
     final int pageWidthOnImage = (int) (jasperPrint.getPageWidth() * dpiRatio);
     final int separatorHeight = 1;
     final int separatorHeightOnImage = (int) (separatorHeight * dpiRatio);
+    final JasperPrintManager printManager = JasperPrintManager.getInstance(print.context);
 
-    BufferedImage reportImage =
-        new BufferedImage(
+    final StripRenderedImage reportImage =
+        new StripRenderedImage(
             pageWidthOnImage,
             numPages * pageHeightOnImage + (numPages - 1) * separatorHeightOnImage,
-            this.imageType);
-
-    Graphics2D graphics2D = reportImage.createGraphics();
-    try {
-      JasperPrintManager printManager = JasperPrintManager.getInstance(print.context);
-
-      for (int pageIndex = 0; pageIndex < numPages; pageIndex++) {
-        Image pageImage = printManager.printToImage(jasperPrint, pageIndex, dpiRatio);
-
-        graphics2D.drawImage(
-            pageImage,
-            0,
-            (pageHeightOnImage + separatorHeight) * pageIndex,
-            pageWidthOnImage,
-            (pageHeightOnImage + separatorHeight) * pageIndex + pageHeightOnImage,
-            0,
-            0,
-            pageWidthOnImage,
-            pageHeightOnImage,
-            null);
-      }
-
-      // draw separator line between the pages
-      final Stroke stroke = new BasicStroke(separatorHeightOnImage);
-      for (int pageIndex = 0; pageIndex < numPages - 1; pageIndex++) {
-        graphics2D.setColor(Color.black);
-        graphics2D.setStroke(stroke);
-        int y = (pageHeightOnImage + separatorHeight) * pageIndex + pageHeightOnImage;
-        graphics2D.drawLine(0, y, pageWidthOnImage, y);
-      }
-    } finally {
-      graphics2D.dispose();
-    }
+            pageHeightOnImage + separatorHeight,
+            this.imageType,
+            (strip, stripY) -> {
+              Graphics2D graphics2D = strip.createGraphics();
+              try {
+                graphics2D.translate(0, -stripY);
+                for (int pageIndex = 0; pageIndex < numPages; pageIndex++) {
+                  final int pageY = (pageHeightOnImage + separatorHeight) * pageIndex;
+                  if (pageY < stripY + strip.getHeight() && pageY + pageHeightOnImage > stripY) {
+                    drawPage(
+                        graphics2D,
+                        printManager.printToImage(jasperPrint, pageIndex, dpiRatio),
+                        pageY,
+                        pageWidthOnImage,
+                        pageHeightOnImage);
+                  }
+                }
+
+                // draw separator line between the pages
+                final Stroke stroke = new BasicStroke(separatorHeightOnImage);
+                for (int pageIndex = 0; pageIndex < numPages - 1; pageIndex++) {
+                  graphics2D.setColor(Color.black);
+                  graphics2D.setStroke(stroke);
+                  int y = (pageHeightOnImage + separatorHeight) * pageIndex + pageHeightOnImage;
+                  graphics2D.drawLine(0, y, pageWidthOnImage, y);
+                }
+              } catch (JRException e) {
+                throw ExceptionUtils.getRuntimeException(e);
+              } finally {
+                graphics2D.dispose();
+              }
+            });
 
     ImageUtils.writeImage(reportImage, getFileSuffix(), outputStream);
   }
 
+  private static void drawPage(
+      final Graphics2D graphics2D,
+      final Image pageImage,
+      final int pageY,
+      final int pageWidthOnImage,
+      final int pageHeightOnImage) {
+    graphics2D.drawImage(
+        pageImage,
+        0,
+        pageY,
+        pageWidthOnImage,
+        pageY + pageHeightOnImage,
+        0,
+        0,
+        pageWidthOnImage,
+        pageHeightOnImage,
+        null);
+  }
+
   /**
    * One of {@link java.awt.image.BufferedImage} TYPE_ values.
    *
@@ -7,15 +7,18 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import net.sf.jasperreports.engine.DefaultJasperReportsContext;
 import net.sf.jasperreports.engine.JasperReportsContext;
 import net.sf.jasperreports.repo.FileRepositoryService;
 import net.sf.jasperreports.repo.InputStreamResource;
 import net.sf.jasperreports.repo.PersistenceService;
 import net.sf.jasperreports.repo.PersistenceUtil;
+import net.sf.jasperreports.repo.ReportResource;
 import net.sf.jasperreports.repo.Resource;
 import net.sf.jasperreports.repo.StreamRepositoryService;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
+import org.mapfish.print.processor.jasper.JasperReportCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpMethod;
@@ -26,10 +29,14 @@ class MapfishPrintRepositoryService implements StreamRepositoryService {
   private static final Logger LOGGER = LoggerFactory.getLogger(MapfishPrintRepositoryService.class);
 
   private final MfClientHttpRequestFactory httpRequestFactory;
+  private final JasperReportCache jasperReportCache;
   private JasperReportsContext jasperReportsContext;
 
-  MapfishPrintRepositoryService(@Nonnull final MfClientHttpRequestFactory httpRequestFactory) {
+  MapfishPrintRepositoryService(
+      @Nonnull final MfClientHttpRequestFactory httpRequestFactory,
+      @Nonnull final JasperReportCache jasperReportCache) {
     this.httpRequestFactory = httpRequestFactory;
+    this.jasperReportCache = jasperReportCache;
     this.jasperReportsContext = DefaultJasperReportsContext.getInstance();
   }
 
@@ -72,6 +79,16 @@ class MapfishPrintRepositoryService implements StreamRepositoryService {
         }
       }
 
+      if (resourceType.isAssignableFrom(ReportResource.class)) {
+        // the compiled subreports are taken from the cache shared between the print jobs
+        final File file = toLocalFile(uri);
+        if (file != null && this.jasperReportCache.isCached(file)) {
+          final ReportResource resource = new ReportResource();
+          resource.setReport(this.jasperReportCache.getReport(file));
+          return resourceType.cast(resource);
+        }
+      }
+
       final PersistenceUtil persistenceUtil =
           PersistenceUtil.getInstance(this.jasperReportsContext);
       PersistenceService persistenceService =
@@ -87,6 +104,22 @@ class MapfishPrintRepositoryService implements StreamRepositoryService {
     return null;
   }
 
+  @Nullable
+  private static File toLocalFile(final String uriString) {
+    try {
+      final URI uri = new URI(uriString);
+      if (uri.getScheme() == null) {
+        return new File(uriString);
+      } else if (uri.getScheme().equals("file")) {
+        return new File(uri);
+      } else {
+        return null;
+      }
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return new File(uriString);
+    }
+  }
+
   @Override
   public OutputStream getOutputStream(final String uri) {
     throw new UnsupportedOperationException();
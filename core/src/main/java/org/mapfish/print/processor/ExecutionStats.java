@@ -5,9 +5,12 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.awt.Dimension;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.mail.internet.InternetAddress;
 import net.sf.jasperreports.engine.PrintPageFormat;
+import org.mapfish.print.Constants;
 import org.mapfish.print.attribute.map.MapAttribute;
 import org.mapfish.print.attribute.map.MapfishMapContext;
 
@@ -15,9 +18,33 @@ import org.mapfish.print.attribute.map.MapfishMapContext;
 public class ExecutionStats {
   private List<MapStats> mapStats = new ArrayList<>();
   private List<PageStats> pageStats = new ArrayList<>();
+  private Map<Object, GeneralizationStats> generalizationStats = new LinkedHashMap<>();
   private List<String> emailDests = new ArrayList<>();
   private boolean storageUsed = false;
 
+  /**
+   * Get the cost of rendering a map, the number of rendered pixels for all the layers.
+   *
+   * @param dpi the DPI of the map
+   * @param width the width of the map, in points
+   * @param height the height of the map, in points
+   * @param nbLayers the number of layers
+   */
+  public static double getMapCost(
+      final double dpi, final int width, final int height, final int nbLayers) {
+    final double ratio = dpi / Constants.PDF_DPI;
+    return width * ratio * height * ratio * Math.max(1, nbLayers);
+  }
+
+  /** Get the cost of rendering all the created maps, see {@link #getMapCost}. */
+  public synchronized double getMapsCost() {
+    double cost = 0.0;
+    for (MapStats map : this.mapStats) {
+      cost += getMapCost(map.dpi, map.size.width, map.size.height, map.nbLayers);
+    }
+    return cost;
+  }
+
   /**
    * Add statistics about a created map.
    *
@@ -29,6 +56,27 @@ public class ExecutionStats {
     this.mapStats.add(new MapStats(mapContext, mapValues));
   }
 
+  /**
+   * Add statistics about the generalization of the features of a vector layer. The statistics of
+   * the parts of a layer that are rendered separately are summed.
+   *
+   * @param layer the layer
+   * @param nbFeatures the number of features of the layer
+   * @param nbRenderedFeatures the number of features in the rendered area
+   * @param nbVertices the number of vertices of the layer
+   * @param nbRenderedVertices the number of vertices of the simplified rendered features
+   */
+  public synchronized void addGeneralizationStats(
+      final Object layer,
+      final int nbFeatures,
+      final int nbRenderedFeatures,
+      final long nbVertices,
+      final long nbRenderedVertices) {
+    this.generalizationStats
+        .computeIfAbsent(layer, key -> new GeneralizationStats(nbFeatures, nbVertices))
+        .add(nbRenderedFeatures, nbRenderedVertices);
+  }
+
   /**
    * Add statistics about a generated page.
    *
@@ -66,6 +114,13 @@ public class ExecutionStats {
       pageStat.toJson(pages.addObject());
     }
 
+    if (!this.generalizationStats.isEmpty()) {
+      final ArrayNode generalizations = stats.putArray("generalizations");
+      for (GeneralizationStats generalization : this.generalizationStats.values()) {
+        generalization.toJson(generalizations.addObject());
+      }
+    }
+
     if (!emailDests.isEmpty()) {
       final ObjectNode emails = stats.putObject("emails");
       emails.put("storageUsed", storageUsed);
@@ -101,6 +156,34 @@ public class ExecutionStats {
     }
   }
 
+  private static final class GeneralizationStats {
+    private final int nbFeatures;
+    private final long nbVertices;
+    private int nbParts = 0;
+    private int nbRenderedFeatures = 0;
+    private long nbRenderedVertices = 0;
+
+    private GeneralizationStats(final int nbFeatures, final long nbVertices) {
+      this.nbFeatures = nbFeatures;
+      this.nbVertices = nbVertices;
+    }
+
+    private void add(final int nbRenderedFeaturesInPart, final long nbRenderedVerticesInPart) {
+      this.nbParts++;
+      this.nbRenderedFeatures += nbRenderedFeaturesInPart;
+      this.nbRenderedVertices += nbRenderedVerticesInPart;
+    }
+
+    public void toJson(final ObjectNode target) {
+      target
+          .put("nbFeatures", this.nbFeatures)
+          .put("nbParts", this.nbParts)
+          .put("nbRenderedFeatures", this.nbRenderedFeatures)
+          .put("nbVertices", this.nbVertices)
+          .put("nbRenderedVertices", this.nbRenderedVertices);
+    }
+  }
+
   private static final class PageStats {
     private final PrintPageFormat format;
 
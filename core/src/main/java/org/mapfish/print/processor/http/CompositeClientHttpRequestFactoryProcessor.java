@@ -76,6 +76,10 @@ public final class CompositeClientHttpRequestFactoryProcessor
     this.httpProcessors = httpProcessors;
   }
 
+  public List<HttpProcessor> getHttpProcessors() {
+    return this.httpProcessors;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public MfClientHttpRequestFactory createFactoryWrapper(
@@ -106,6 +106,15 @@ public final class ForwardHeadersProcessor
     this.forwardAll = all;
   }
 
+  /**
+   * Return true if the header is forwarded by this processor.
+   *
+   * @param name the name of the header
+   */
+  public boolean isForwarded(final String name) {
+    return this.forwardAll || this.headerNames.contains(name.toLowerCase());
+  }
+
   @Override
   protected void extraValidation(
       final List<Throwable> validationErrors, final Configuration configuration) {
@@ -126,8 +135,7 @@ public final class ForwardHeadersProcessor
     Map<String, List<String>> headers = new HashMap<>();
 
     for (Map.Entry<String, List<String>> entry : param.requestHeaders.getHeaders().entrySet()) {
-      if (ForwardHeadersProcessor.this.forwardAll
-          || ForwardHeadersProcessor.this.headerNames.contains(entry.getKey().toLowerCase())) {
+      if (isForwarded(entry.getKey())) {
         headers.put(entry.getKey(), entry.getValue());
       }
     }
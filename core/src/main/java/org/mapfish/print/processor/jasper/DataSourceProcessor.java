@@ -4,12 +4,16 @@ import static org.mapfish.print.attribute.DataSourceAttribute.DataSourceAttribut
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -82,8 +86,11 @@ public final class DataSourceProcessor
   private List<String> copyAttributes = new ArrayList<>();
   @Autowired private JasperReportBuilder jasperReportBuilder;
 
+  @Autowired private ForkJoinPool forkJoinPool;
+
   private String reportTemplate;
   private String reportKey;
+  private int maxRowsInFlight = 0;
 
   /** Constructor. */
   public DataSourceProcessor() {
@@ -122,6 +129,19 @@ public final class DataSourceProcessor
     this.reportKey = reportKey;
   }
 
+  /**
+   * The maximum number of rows processed at the same time. If set, the rows are processed while the
+   * report is filled and are released once filled, so the memory used does not depend on the number
+   * of rows (e.g. the pages of an atlas). The datasource can then only be read once.
+   *
+   * <p>Default: 0, all the rows are processed in parallel before filling the report.
+   *
+   * @param maxRowsInFlight the maximum number of rows processed at the same time.
+   */
+  public void setMaxRowsInFlight(final int maxRowsInFlight) {
+    this.maxRowsInFlight = maxRowsInFlight;
+  }
+
   /**
    * All the processors that will executed for each value retrieved from the {@link
    * org.mapfish.print.output.Values} object with the datasource name. All output values from the
@@ -204,51 +224,71 @@ public final class DataSourceProcessor
   }
 
   private JRDataSource processInput(@Nonnull final Input input) throws JSONException, JRException {
-    List<Values> dataSourceValues = new ArrayList<>();
-    for (Map<String, Object> o : input.datasource.attributesValues) {
-      // copy only the required values
-      Values rowValues = new Values(input.values);
-      for (String attributeName : this.copyAttributes) {
-        rowValues.put(attributeName, input.values.getObject(attributeName, Object.class));
-      }
-      for (Map.Entry<String, Object> entry : o.entrySet()) {
-        rowValues.put(entry.getKey(), entry.getValue());
-      }
+    if (input.datasource.attributesValues.length == 0) {
+      return null;
+    }
 
-      dataSourceValues.add(rowValues);
+    if (this.maxRowsInFlight > 0) {
+      // the rows are computed while the report is filled
+      final File reportFile = compileReportTemplate(input);
+      final Iterator<Callable<Map<String, ?>>> rows =
+          Arrays.stream(input.datasource.attributesValues)
+              .map(
+                  o ->
+                      (Callable<Map<String, ?>>)
+                          () ->
+                              toRow(
+                                  this.processorGraph
+                                      .createTask(createRowValues(input, o))
+                                      .invoke(),
+                                  reportFile))
+              .iterator();
+      return new StreamingDataSource(rows, this.forkJoinPool, this.maxRowsInFlight);
     }
 
     List<ForkJoinTask<Values>> futures = new ArrayList<>();
-    if (!dataSourceValues.isEmpty()) {
-      for (Values dataSourceValue : dataSourceValues) {
-        addAttributes(input.template, dataSourceValue);
-        final ForkJoinTask<Values> taskFuture =
-            this.processorGraph.createTask(dataSourceValue).fork();
-        futures.add(taskFuture);
-      }
-      final File reportFile;
-      if (this.reportTemplate != null) {
-        final Configuration configuration = input.template.getConfiguration();
-        final File file = new File(configuration.getDirectory(), this.reportTemplate);
-        reportFile = this.jasperReportBuilder.compileJasperReport(configuration, file);
-      } else {
-        reportFile = null;
-      }
-      List<Map<String, ?>> rows = new ArrayList<>();
-
-      for (ForkJoinTask<Values> future : futures) {
-        final Values rowData = future.join();
-        if (reportFile != null) {
-          rowData.put(this.reportKey, reportFile.getAbsolutePath());
-        }
-        rows.add(rowData.asMap());
-      }
+    for (Map<String, Object> o : input.datasource.attributesValues) {
+      futures.add(this.processorGraph.createTask(createRowValues(input, o)).fork());
+    }
+    final File reportFile = compileReportTemplate(input);
+    List<Map<String, ?>> rows = new ArrayList<>();
+    for (ForkJoinTask<Values> future : futures) {
+      rows.add(toRow(future.join(), reportFile));
+    }
+    return new JRMapCollectionDataSource(rows);
+  }
 
-      return new JRMapCollectionDataSource(rows);
+  @Nullable
+  private File compileReportTemplate(@Nonnull final Input input) throws JRException {
+    if (this.reportTemplate != null) {
+      final Configuration configuration = input.template.getConfiguration();
+      final File file = new File(configuration.getDirectory(), this.reportTemplate);
+      return this.jasperReportBuilder.compileJasperReport(configuration, file);
     }
     return null;
   }
 
+  private Map<String, ?> toRow(final Values rowData, @Nullable final File reportFile) {
+    if (reportFile != null) {
+      rowData.put(this.reportKey, reportFile.getAbsolutePath());
+    }
+    return rowData.asMap();
+  }
+
+  private Values createRowValues(@Nonnull final Input input, final Map<String, Object> o)
+      throws JSONException {
+    // copy only the required values
+    Values rowValues = new Values(input.values);
+    for (String attributeName : this.copyAttributes) {
+      rowValues.put(attributeName, input.values.getObject(attributeName, Object.class));
+    }
+    for (Map.Entry<String, Object> entry : o.entrySet()) {
+      rowValues.put(entry.getKey(), entry.getValue());
+    }
+    addAttributes(input.template, rowValues);
+    return rowValues;
+  }
+
   private void addAttributes(
       @Nonnull final Template template, @Nonnull final Values dataSourceValue)
       throws JSONException {
@@ -268,6 +308,9 @@ public final class DataSourceProcessor
   @Override
   protected void extraValidation(
       final List<Throwable> validationErrors, final Configuration configuration) {
+    if (this.maxRowsInFlight < 0) {
+      validationErrors.add(new ConfigurationException("'maxRowsInFlight' must not be negative."));
+    }
     if (this.reportTemplate != null && this.reportKey == null
         || this.reportTemplate == null && this.reportKey != null) {
       validationErrors.add(
@@ -1,5 +1,7 @@
 package org.mapfish.print.processor.jasper;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URI;
@@ -29,6 +31,7 @@ public final class HttpImageResolver implements TableColumnConverter<BufferedIma
   private Pattern urlExtractor = Pattern.compile("(.*)");
   private int urlGroup = 1;
   private BufferedImage defaultImage;
+  private Cache<String, BufferedImage> imageCache = null;
 
   /** Constructor. */
   public HttpImageResolver() {
@@ -56,12 +59,32 @@ public final class HttpImageResolver implements TableColumnConverter<BufferedIma
     this.urlGroup = urlGroup;
   }
 
+  /**
+   * Keep the last loaded images in memory and reuse them in the next prints. The images are shared
+   * between all the prints, whatever the credentials of the print, so this should only be used for
+   * public images.
+   *
+   * <p>Default: 0 (no cache)
+   *
+   * @param cacheSize the maximum number of images in the cache.
+   */
+  public void setCacheSize(final int cacheSize) {
+    this.imageCache =
+        cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
   @Override
   public BufferedImage resolve(final MfClientHttpRequestFactory requestFactory, final String text) {
     Matcher urlMatcher = this.urlExtractor.matcher(text);
 
     if (urlMatcher.matches() && urlMatcher.group(this.urlGroup) != null) {
       final String uriString = urlMatcher.group(this.urlGroup);
+      if (this.imageCache != null) {
+        final BufferedImage cachedImage = this.imageCache.getIfPresent(uriString);
+        if (cachedImage != null) {
+          return cachedImage;
+        }
+      }
       try {
         URI url = new URI(uriString);
         final ClientHttpRequest request = requestFactory.createRequest(url, HttpMethod.GET);
@@ -73,6 +96,9 @@ public final class HttpImageResolver implements TableColumnConverter<BufferedIma
               LOGGER.warn("The URL: {} is NOT an image format that can be decoded", url);
               return this.defaultImage;
             }
+            if (this.imageCache != null) {
+              this.imageCache.put(uriString, image);
+            }
             return image;
           } catch (IOException e) {
             LOGGER.warn("Image loaded from '{}'is not valid", url, e);
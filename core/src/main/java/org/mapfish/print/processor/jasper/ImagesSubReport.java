@@ -2,11 +2,17 @@ package org.mapfish.print.processor.jasper;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRReport;
 import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
 import net.sf.jasperreports.engine.design.JRDesignBand;
 import net.sf.jasperreports.engine.design.JRDesignElement;
 import net.sf.jasperreports.engine.design.JRDesignExpression;
@@ -15,15 +21,24 @@ import net.sf.jasperreports.engine.design.JasperDesign;
 import net.sf.jasperreports.engine.type.HorizontalImageAlignEnum;
 import net.sf.jasperreports.engine.type.ScaleImageEnum;
 import net.sf.jasperreports.engine.type.WhenNoDataTypeEnum;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
 import net.sf.jasperreports.renderers.Renderable;
 
 /**
  * Creates a Jasper containing overlaid images, which is supposed to be embedded into an another
  * report as sub-report.
+ *
+ * <p>The paths of the images are not in the expressions but in properties of the report, so the
+ * reports with the same number of images and the same size are compiled only once.
  */
 public class ImagesSubReport {
+  /** The prefix of the report properties containing the paths of the images. */
+  static final String GRAPHIC_PROPERTY_PREFIX = "org.mapfish.print.graphic.";
 
   private final JasperDesign reportDesign;
+  private final List<URI> graphics;
+  private final double dpi;
 
   /**
    * Constructor.
@@ -33,6 +48,8 @@ public class ImagesSubReport {
    * @param dpi the dpi of the report
    */
   public ImagesSubReport(final List<URI> graphics, final Dimension size, final double dpi) {
+    this.graphics = graphics;
+    this.dpi = dpi;
     this.reportDesign = createReport(graphics, size, dpi);
   }
 
@@ -62,7 +79,7 @@ public class ImagesSubReport {
     // sub-report
     design.setNoData(band);
     design.setWhenNoDataType(WhenNoDataTypeEnum.NO_DATA_SECTION);
-    design.setProperty(Renderable.PROPERTY_IMAGE_DPI, String.valueOf(Math.round(dpi)));
+    setProperties(design, graphics, dpi);
     return design;
   }
 
@@ -71,13 +88,25 @@ public class ImagesSubReport {
       final JRDesignBand band,
       final Dimension size,
       final JasperDesign design) {
-    for (URI graphicFile : graphics) {
-      final String fileName = new File(graphicFile).getAbsolutePath().replace('\\', '/');
-      final String imageExpression = "\"" + fileName + "\"";
+    for (int i = 0; i < graphics.size(); i++) {
+      final String imageExpression =
+          String.format(
+              "$P{%s}.getProperty(\"%s%d\")",
+              JRParameter.JASPER_REPORT, GRAPHIC_PROPERTY_PREFIX, i);
       band.addElement(getImage(imageExpression, size, design));
     }
   }
 
+  private static void setProperties(
+      final JRReport report, final List<URI> graphics, final double dpi) {
+    for (int i = 0; i < graphics.size(); i++) {
+      report.setProperty(
+          GRAPHIC_PROPERTY_PREFIX + i,
+          new File(graphics.get(i)).getAbsolutePath().replace('\\', '/'));
+    }
+    report.setProperty(Renderable.PROPERTY_IMAGE_DPI, String.valueOf(Math.round(dpi)));
+  }
+
   private JRDesignElement getImage(
       final String imageExpression, final Dimension mapSize, final JasperDesign design) {
     final JRDesignImage image = new JRDesignImage(design);
@@ -99,12 +128,40 @@ public class ImagesSubReport {
   /**
    * Compiles the report into a <code>*.jasper</code> file.
    *
+   * <p>The report is compiled only for the first report with this number of images and this size,
+   * the next ones are copies of it with other properties.
+   *
    * @param compiledReportFile The destination file.
+   * @param jasperReportCache The cache of the compiled reports.
    * @throws JRException
    */
-  public final void compile(final File compiledReportFile) throws JRException {
-    JasperCompileManager.compileReportToFile(
-        this.reportDesign, compiledReportFile.getAbsolutePath());
+  public final void compile(
+      final File compiledReportFile, final JasperReportCache jasperReportCache) throws JRException {
+    final List<Integer> key =
+        List.of(
+            this.graphics.size(),
+            this.reportDesign.getPageWidth(),
+            this.reportDesign.getPageHeight());
+    final byte[] compiled;
+    try {
+      compiled =
+          jasperReportCache.getImagesSubReport(
+              key,
+              () -> {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                JRSaver.saveObject(JasperCompileManager.compileReport(this.reportDesign), output);
+                return output.toByteArray();
+              });
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof JRException) {
+        throw (JRException) e.getCause();
+      }
+      throw new JRException(e.getCause());
+    }
+    final JasperReport report =
+        (JasperReport) JRLoader.loadObject(new ByteArrayInputStream(compiled));
+    setProperties(report, this.graphics, this.dpi);
+    JRSaver.saveObject(report, compiledReportFile);
   }
 
   @VisibleForTesting
@@ -46,6 +46,7 @@ public final class JasperReportBuilder extends AbstractProcessor<JasperReportBui
   private Configuration configuration;
   @Autowired private MetricRegistry metricRegistry;
   @Autowired private WorkingDirectories workingDirectories;
+  @Autowired private JasperReportCache jasperReportCache;
 
   /** Constructor. */
   protected JasperReportBuilder() {
@@ -99,6 +100,7 @@ public final class JasperReportBuilder extends AbstractProcessor<JasperReportBui
 
         java.nio.file.Files.move(
             tmpBuildFile.toPath(), buildFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        this.jasperReportCache.invalidate(buildFile);
       } catch (IOException e) {
         throw new JRException(e);
       }
@@ -0,0 +1,132 @@
+package org.mapfish.print.processor.jasper;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.PostConstruct;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import org.mapfish.print.config.WorkingDirectories;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * A cache of the deserialized compiled report templates, shared between the print jobs.
+ *
+ * <p>Only the reports compiled in the working directory by the {@link JasperReportBuilder} are
+ * cached. An entry is reloaded when its file is modified, and removed when the report is rebuilt.
+ *
+ * <p>It also contains the compiled {@link ImagesSubReport}, by number of images and size.
+ */
+public final class JasperReportCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JasperReportCache.class);
+  private static final String METRIC_PREFIX = JasperReportCache.class.getName() + ".";
+
+  @Autowired private MetricRegistry metricRegistry;
+  @Autowired private WorkingDirectories workingDirectories;
+
+  private int maxSize = 100;
+  private int maxImagesSubReports = 100;
+  private Cache<String, CachedReport> cache;
+  private Cache<List<Integer>, byte[]> imagesSubReports;
+
+  /**
+   * Set the maximum number of reports in the cache, 0 to disable the cache.
+   *
+   * @param maxSize the number of reports
+   */
+  public void setMaxSize(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Set the maximum number of compiled images sub-reports in the cache, 0 to disable the cache.
+   *
+   * @param maxImagesSubReports the number of sub-reports
+   */
+  public void setMaxImagesSubReports(final int maxImagesSubReports) {
+    this.maxImagesSubReports = maxImagesSubReports;
+  }
+
+  /** Called by spring after the bean has been created and populated. */
+  @PostConstruct
+  public void init() {
+    this.cache = CacheBuilder.newBuilder().maximumSize(this.maxSize).build();
+    this.imagesSubReports = CacheBuilder.newBuilder().maximumSize(this.maxImagesSubReports).build();
+  }
+
+  /**
+   * Return true if the report compiled in the file can be taken from the cache.
+   *
+   * @param file the compiled report
+   */
+  public boolean isCached(final File file) {
+    return this.maxSize > 0 && file.isFile() && this.workingDirectories.isJasperCompilation(file);
+  }
+
+  /**
+   * Get the report compiled in the file, from the cache if possible.
+   *
+   * @param file the compiled report
+   */
+  public JasperReport getReport(final File file) throws JRException {
+    if (!isCached(file)) {
+      return load(file);
+    }
+    final String key = file.getAbsolutePath();
+    final long lastModified = file.lastModified();
+    final CachedReport cached = this.cache.getIfPresent(key);
+    if (cached != null && cached.lastModified == lastModified) {
+      this.metricRegistry.counter(METRIC_PREFIX + "hit").inc();
+      return cached.report;
+    }
+    this.metricRegistry.counter(METRIC_PREFIX + "miss").inc();
+    final JasperReport report = load(file);
+    this.cache.put(key, new CachedReport(lastModified, report));
+    return report;
+  }
+
+  /**
+   * Get a serialized compiled images sub-report, compiled only if it isn't in the cache.
+   *
+   * @param key the number of images and the size of the sub-report
+   * @param compiler compiles and serializes the sub-report
+   */
+  byte[] getImagesSubReport(final List<Integer> key, final Callable<byte[]> compiler)
+      throws ExecutionException {
+    return this.imagesSubReports.get(key, compiler);
+  }
+
+  /**
+   * Remove the report compiled in the file from the cache.
+   *
+   * @param file the compiled report
+   */
+  public void invalidate(final File file) {
+    this.cache.invalidate(file.getAbsolutePath());
+  }
+
+  private JasperReport load(final File file) throws JRException {
+    LOGGER.debug("Loading the report {}", file);
+    try (Timer.Context ignored = this.metricRegistry.timer(METRIC_PREFIX + "load").time()) {
+      return (JasperReport) JRLoader.loadObject(file);
+    }
+  }
+
+  private static final class CachedReport {
+    private final long lastModified;
+    private final JasperReport report;
+
+    private CachedReport(final long lastModified, final JasperReport report) {
+      this.lastModified = lastModified;
+      this.report = report;
+    }
+  }
+}
@@ -56,6 +56,8 @@ public final class LegendProcessor
   private static final String LEVEL_COLUMN = "level";
   @Autowired private JasperReportBuilder jasperReportBuilder;
 
+  @Autowired private JasperReportCache jasperReportCache;
+
   @Autowired private MetricRegistry metricRegistry;
 
   @Resource(name = "requestForkJoinPool")
@@ -129,7 +131,8 @@ public final class LegendProcessor
         legendAttributes,
         legendList,
         context,
-        values.tempTaskDirectory);
+        values.tempTaskDirectory,
+        values.template.getConfiguration().getPngCompressionLevel());
     final Object[][] legend = new Object[legendList.size()][];
 
     final JRTableModelDataSource dataSource =
@@ -153,6 +156,7 @@ public final class LegendProcessor
       final LegendAttributeValue legendAttributes,
       final ExecutionContext context,
       final File tempTaskDirectory,
+      final int pngCompressionLevel,
       final int level,
       final List<Callable<Object[]>> tasks) {
     int insertNameIndex = tasks.size();
@@ -161,12 +165,26 @@ public final class LegendProcessor
     if (icons != null && icons.length > 0) {
       for (URL icon : icons) {
         tasks.add(
-            new IconTask(icon, dpi, context, level, tempTaskDirectory, clientHttpRequestFactory));
+            new IconTask(
+                icon,
+                dpi,
+                context,
+                level,
+                tempTaskDirectory,
+                pngCompressionLevel,
+                clientHttpRequestFactory));
       }
     }
     if (legendAttributes.classes != null) {
       for (LegendAttributeValue value : legendAttributes.classes) {
-        createTasks(clientHttpRequestFactory, value, context, tempTaskDirectory, level + 1, tasks);
+        createTasks(
+            clientHttpRequestFactory,
+            value,
+            context,
+            tempTaskDirectory,
+            pngCompressionLevel,
+            level + 1,
+            tasks);
       }
     }
     if (!tasks.isEmpty()) {
@@ -179,10 +197,18 @@ public final class LegendProcessor
       final LegendAttributeValue legendAttributes,
       final List<Object[]> legendList,
       final ExecutionContext context,
-      final File tempTaskDirectory)
+      final File tempTaskDirectory,
+      final int pngCompressionLevel)
       throws ExecutionException, InterruptedException {
     List<Callable<Object[]>> tasks = new ArrayList<>();
-    createTasks(clientHttpRequestFactory, legendAttributes, context, tempTaskDirectory, 0, tasks);
+    createTasks(
+        clientHttpRequestFactory,
+        legendAttributes,
+        context,
+        tempTaskDirectory,
+        pngCompressionLevel,
+        0,
+        tasks);
     List<Future<Object[]>> futures = this.requestForkJoinPool.invokeAll(tasks);
     for (Future<Object[]> future : futures) {
       legendList.add(future.get());
@@ -192,7 +218,8 @@ public final class LegendProcessor
   private URI createSubReport(
       final BufferedImage originalImage,
       final double originalImageDPI,
-      final File tempTaskDirectory)
+      final File tempTaskDirectory,
+      final int pngCompressionLevel)
       throws IOException, JRException {
     BufferedImage image = originalImage;
     double scaleFactor = 1;
@@ -207,7 +234,7 @@ public final class LegendProcessor
       }
     }
 
-    URI imageFile = writeToFile(image, tempTaskDirectory);
+    URI imageFile = writeToFile(image, tempTaskDirectory, pngCompressionLevel);
 
     final ImagesSubReport subReport =
         new ImagesSubReport(
@@ -222,7 +249,7 @@ public final class LegendProcessor
             "legend-report-",
             JasperReportBuilder.JASPER_REPORT_COMPILED_FILE_EXT,
             tempTaskDirectory);
-    subReport.compile(compiledReport);
+    subReport.compile(compiledReport, this.jasperReportCache);
 
     return compiledReport.toURI();
   }
@@ -262,10 +289,11 @@ public final class LegendProcessor
     return scaleOp.filter(inter, result);
   }
 
-  private URI writeToFile(final BufferedImage image, final File tempTaskDirectory)
+  private URI writeToFile(
+      final BufferedImage image, final File tempTaskDirectory, final int pngCompressionLevel)
       throws IOException {
     File path = File.createTempFile("legend-", ".png", tempTaskDirectory);
-    ImageUtils.writeImage(image, "png", path);
+    ImageUtils.writeImage(image, "png", path, pngCompressionLevel);
     return path.toURI();
   }
 
@@ -357,6 +385,7 @@ public final class LegendProcessor
     private MfClientHttpRequestFactory clientHttpRequestFactory;
     private int level;
     private File tempTaskDirectory;
+    private int pngCompressionLevel;
 
     private IconTask(
         final URL icon,
@@ -364,6 +393,7 @@ public final class LegendProcessor
         final ExecutionContext context,
         final int level,
         final File tempTaskDirectory,
+        final int pngCompressionLevel,
         final MfClientHttpRequestFactory clientHttpRequestFactory) {
       this.icon = icon;
       this.iconDPI = iconDPI;
@@ -371,6 +401,7 @@ public final class LegendProcessor
       this.level = level;
       this.clientHttpRequestFactory = clientHttpRequestFactory;
       this.tempTaskDirectory = tempTaskDirectory;
+      this.pngCompressionLevel = pngCompressionLevel;
     }
 
     @Override
@@ -422,7 +453,10 @@ public final class LegendProcessor
               LegendProcessor.this.metricRegistry.counter(metricName + ".error").inc();
             }
 
-            String report = createSubReport(image, this.iconDPI, this.tempTaskDirectory).toString();
+            String report =
+                createSubReport(
+                        image, this.iconDPI, this.tempTaskDirectory, this.pngCompressionLevel)
+                    .toString();
             return new Object[] {null, image, report, this.level};
           });
     }
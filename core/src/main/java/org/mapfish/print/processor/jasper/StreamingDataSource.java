@@ -0,0 +1,102 @@
+package org.mapfish.print.processor.jasper;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+/**
+ * A datasource whose rows are computed in parallel while the report is filled. At most maxInFlight
+ * rows are computed or waiting to be read at the same time, and the rows are returned in order.
+ *
+ * <p>If the fill doesn't read all the rows (error or cancellation), the remaining ones are canceled
+ * with {@link #cancelAll(Collection)}.
+ */
+public final class StreamingDataSource implements JRDataSource {
+  private final Iterator<Callable<Map<String, ?>>> rows;
+  private final ForkJoinPool forkJoinPool;
+  private final int maxInFlight;
+  private final Deque<ForkJoinTask<Map<String, ?>>> inFlight = new ArrayDeque<>();
+  private Map<String, ?> currentRow = null;
+
+  /**
+   * Constructor.
+   *
+   * @param rows the computations of the rows, called lazily.
+   * @param forkJoinPool the pool used to compute the rows.
+   * @param maxInFlight the maximum number of rows computed at the same time.
+   */
+  StreamingDataSource(
+      final Iterator<Callable<Map<String, ?>>> rows,
+      final ForkJoinPool forkJoinPool,
+      final int maxInFlight) {
+    this.rows = rows;
+    this.forkJoinPool = forkJoinPool;
+    this.maxInFlight = maxInFlight;
+    submitRows();
+  }
+
+  private synchronized void submitRows() {
+    while (this.inFlight.size() < this.maxInFlight && this.rows.hasNext()) {
+      this.inFlight.add(this.forkJoinPool.submit(this.rows.next()));
+    }
+  }
+
+  @Override
+  public synchronized boolean next() throws JRException {
+    // release the previous row before waiting for the next one
+    this.currentRow = null;
+    submitRows();
+    final ForkJoinTask<Map<String, ?>> task = this.inFlight.poll();
+    if (task == null) {
+      return false;
+    }
+    try {
+      this.currentRow = task.join();
+    } catch (RuntimeException e) {
+      cancel();
+      throw new JRException("Error while computing a datasource row", e);
+    }
+    submitRows();
+    return true;
+  }
+
+  @Override
+  public synchronized Object getFieldValue(final JRField field) {
+    return this.currentRow == null ? null : this.currentRow.get(field.getName());
+  }
+
+  /** Cancel the rows that are still computed, and the datasources of the computed rows. */
+  public synchronized void cancel() {
+    if (this.currentRow != null) {
+      cancelAll(this.currentRow.values());
+    }
+    for (ForkJoinTask<Map<String, ?>> task : this.inFlight) {
+      task.cancel(true);
+      if (task.isDone() && !task.isCompletedAbnormally()) {
+        cancelAll(task.getRawResult().values());
+      }
+    }
+    this.inFlight.clear();
+  }
+
+  /**
+   * Cancel the rows that are still computed by the streaming datasources in the values.
+   *
+   * @param values the values, e.g. of a report.
+   */
+  public static void cancelAll(final Collection<?> values) {
+    for (Object value : values) {
+      if (value instanceof StreamingDataSource) {
+        ((StreamingDataSource) value).cancel();
+      }
+    }
+  }
+}
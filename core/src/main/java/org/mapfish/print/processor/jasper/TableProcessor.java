@@ -3,6 +3,10 @@ package org.mapfish.print.processor.jasper;
 import static org.mapfish.print.processor.jasper.JasperReportBuilder.JASPER_REPORT_COMPILED_FILE_EXT;
 import static org.mapfish.print.processor.jasper.JasperReportBuilder.JASPER_REPORT_XML_FILE_EXT;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -11,14 +15,23 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import javax.annotation.Resource;
 import net.sf.jasperreports.engine.JRBand;
 import net.sf.jasperreports.engine.JRElement;
 import net.sf.jasperreports.engine.JRException;
@@ -43,15 +56,17 @@ import net.sf.jasperreports.engine.xml.JRXmlWriter;
 import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.mapfish.print.Constants;
-import org.mapfish.print.PrintException;
 import org.mapfish.print.attribute.TableAttribute.TableAttributeValue;
 import org.mapfish.print.config.Configuration;
 import org.mapfish.print.config.ConfigurationException;
 import org.mapfish.print.config.Template;
+import org.mapfish.print.config.WorkingDirectories;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
 import org.mapfish.print.processor.AbstractProcessor;
 import org.mapfish.print.processor.http.MfClientHttpRequestFactoryProvider;
 import org.mapfish.print.wrapper.PArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -62,9 +77,11 @@ import org.springframework.beans.factory.annotation.Autowired;
  */
 public final class TableProcessor
     extends AbstractProcessor<TableProcessor.Input, TableProcessor.Output> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableProcessor.class);
 
   private static final int SPACE_BETWEEN_COLS = 0;
   private static final int DEFAULT_MAX_COLUMNS = 9;
+  private static final int DEFAULT_MAX_PARALLEL_CONVERSIONS = 4;
   private Map<String, TableColumnConverter<?>> columnConverterMap = new HashMap<>();
   private List<TableColumnConverter<?>> converters = new ArrayList<>();
   private boolean dynamic = false;
@@ -78,8 +95,15 @@ public final class TableProcessor
   private String detailStyle;
   private int maxColumns = DEFAULT_MAX_COLUMNS;
   private Set<String> excludeColumns = new HashSet<>();
+  private int maxParallelConversions = DEFAULT_MAX_PARALLEL_CONVERSIONS;
 
   @Autowired private JasperReportBuilder jasperReportBuilder;
+  @Autowired private WorkingDirectories workingDirectories;
+  @Autowired private MetricRegistry metricRegistry;
+
+  @Resource(name = "requestForkJoinPool")
+  private ForkJoinPool requestForkJoinPool;
+
   private boolean defaultTemplate;
 
   /** Constructor. */
@@ -108,7 +132,8 @@ public final class TableProcessor
 
   /**
    * If true then the JasperReport template will be generated dynamically based on the columns in
-   * the table attribute.
+   * the table attribute. The generated template is compiled once for each set of columns and reused
+   * by the next prints with the same columns.
    *
    * <p>Default: false
    *
@@ -233,6 +258,18 @@ public final class TableProcessor
     this.maxColumns = maxColumns;
   }
 
+  /**
+   * The maximum number of cell values (e.g. the images of a {@link HttpImageResolver}) converted at
+   * the same time for a print. Identical values are only converted once.
+   *
+   * <p>Default: 4
+   *
+   * @param maxParallelConversions the maximum number of parallel conversions.
+   */
+  public void setMaxParallelConversions(final int maxParallelConversions) {
+    this.maxParallelConversions = maxParallelConversions;
+  }
+
   /**
    * A set of column names to exclude from the table.
    *
@@ -257,21 +294,17 @@ public final class TableProcessor
     // this map needs to be linked so it keeps order
     Map<String, Class<?>> columns = new LinkedHashMap<>();
     final PArray[] jsonData = jsonTable.data;
+    final Map<CellConversion, Object> convertedValues =
+        convertCells(values.clientHttpRequestFactoryProvider.get(), columnNames, jsonData, context);
     for (final PArray jsonRow : jsonData) {
       context.stopIfCanceled();
       final Map<String, Object> row = new HashMap<>();
       for (int j = 0; j < jsonRow.size(); j++) {
         final String columnName = columnNames[j];
-        Object rowValue = jsonRow.get(j);
-        if (rowValue == JSONObject.NULL) {
-          rowValue = null;
-        }
-        TableColumnConverter<?> converter = this.columnConverterMap.get(columnName);
-        if (converter != null) {
-          rowValue =
-              converter.resolve(values.clientHttpRequestFactoryProvider.get(), (String) rowValue);
-        } else {
-          rowValue = tryConvert(values.clientHttpRequestFactoryProvider.get(), rowValue);
+        Object rowValue = getCellValue(jsonRow, j);
+        final CellConversion conversion = getConversion(columnName, rowValue);
+        if (conversion != null) {
+          rowValue = convertedValues.get(conversion);
         }
         if (columns.size() < this.maxColumns && !this.excludeColumns.contains(columnName)) {
           Class<?> columnDef = columns.get(columnName);
@@ -318,30 +351,102 @@ public final class TableProcessor
     return new Output(dataSource, table.size(), subreport);
   }
 
+  private static Object getCellValue(final PArray jsonRow, final int index) {
+    final Object value = jsonRow.get(index);
+    return value == JSONObject.NULL ? null : value;
+  }
+
   /**
-   * If converters are set on a table, this function tests if these can convert a cell value. The
-   * first converter, which claims that it can convert, will be used to do the conversion.
+   * Get the conversion to apply on a cell. If no converter is set on the column, the first
+   * converter of the table, which claims that it can convert the value, will be used to do the
+   * conversion.
    */
-  private Object tryConvert(
-      final MfClientHttpRequestFactory clientHttpRequestFactory, final Object rowValue)
-      throws URISyntaxException, IOException {
-    if (this.converters.isEmpty()) {
-      return rowValue;
+  @Nullable
+  private CellConversion getConversion(final String columnName, final Object rowValue) {
+    final TableColumnConverter<?> columnConverter = this.columnConverterMap.get(columnName);
+    if (columnConverter != null) {
+      return new CellConversion(columnConverter, (String) rowValue);
     }
-
-    String value = String.valueOf(rowValue);
+    final String value = String.valueOf(rowValue);
     for (TableColumnConverter<?> converter : this.converters) {
       if (converter.canConvert(value)) {
-        return converter.resolve(clientHttpRequestFactory, value);
+        return new CellConversion(converter, value);
       }
     }
+    return null;
+  }
 
-    return rowValue;
+  /**
+   * Convert the distinct values of the converted cells, with at most maxParallelConversions
+   * conversions (e.g. image downloads) running at the same time.
+   */
+  private Map<CellConversion, Object> convertCells(
+      final MfClientHttpRequestFactory clientHttpRequestFactory,
+      final String[] columnNames,
+      final PArray[] jsonData,
+      final ExecutionContext context)
+      throws ExecutionException, InterruptedException {
+    final Map<CellConversion, Object> convertedValues = new HashMap<>();
+    if (this.columnConverterMap.isEmpty() && this.converters.isEmpty()) {
+      return convertedValues;
+    }
+    final Set<CellConversion> conversions = new LinkedHashSet<>();
+    for (final PArray jsonRow : jsonData) {
+      context.stopIfCanceled();
+      for (int j = 0; j < jsonRow.size(); j++) {
+        final CellConversion conversion = getConversion(columnNames[j], getCellValue(jsonRow, j));
+        if (conversion != null) {
+          conversions.add(conversion);
+        }
+      }
+    }
+    if (conversions.isEmpty()) {
+      return convertedValues;
+    }
+
+    final List<List<CellConversion>> batches =
+        Lists.partition(
+            new ArrayList<>(conversions),
+            (conversions.size() + this.maxParallelConversions - 1) / this.maxParallelConversions);
+    final List<Callable<Map<CellConversion, Object>>> tasks = new ArrayList<>();
+    for (List<CellConversion> batch : batches) {
+      tasks.add(
+          () -> {
+            final Map<CellConversion, Object> result = new HashMap<>();
+            for (CellConversion conversion : batch) {
+              context.stopIfCanceled();
+              result.put(conversion, conversion.convert(clientHttpRequestFactory));
+            }
+            return result;
+          });
+    }
+    for (Future<Map<CellConversion, Object>> future : this.requestForkJoinPool.invokeAll(tasks)) {
+      convertedValues.putAll(future.get());
+    }
+    LOGGER.debug(
+        "Converted {} distinct cell values in {} parallel batches",
+        conversions.size(),
+        batches.size());
+    return convertedValues;
   }
 
   private String generateSubReport(final Input input, final Map<String, Class<?>> columns)
       throws JRException, IOException {
     byte[] bytes = loadJasperTemplate(input.template.getConfiguration());
+
+    // the compiled report only depends on the template, the table configuration and the columns,
+    // so it is shared by all the prints with the same columns, until it isn't used anymore
+    final File buildFile =
+        new File(
+            this.workingDirectories.getGeneratedJasperCompilation(
+                input.template.getConfiguration()),
+            "table-" + getSubReportSignature(bytes, columns) + JASPER_REPORT_COMPILED_FILE_EXT);
+    if (this.workingDirectories.touchGeneratedReport(buildFile)) {
+      LOGGER.debug("Reusing the compiled table report {}", buildFile);
+      this.metricRegistry.counter(getClass().getName() + ".subReport.reused").inc();
+      return buildFile.getAbsolutePath();
+    }
+
     final JasperDesign templateDesign = JRXmlLoader.load(new ByteArrayInputStream(bytes));
 
     if (this.reportWidth != null) {
@@ -359,14 +464,34 @@ public final class TableProcessor
     JRXmlWriter.writeReport(
         templateDesign, jrxmlFile.getAbsolutePath(), Constants.DEFAULT_ENCODING);
 
-    final File buildFile =
-        File.createTempFile("table-", JASPER_REPORT_COMPILED_FILE_EXT, input.tempTaskDirectory);
-    if (!buildFile.delete()) {
-      throw new PrintException("Unable to delete the build file: " + buildFile);
-    }
+    this.metricRegistry.counter(getClass().getName() + ".subReport.compiled").inc();
     return this.jasperReportBuilder.compileJasperReport(buildFile, jrxmlFile).getAbsolutePath();
   }
 
+  private String getSubReportSignature(final byte[] template, final Map<String, Class<?>> columns) {
+    final Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putBytes(template);
+    hasher.putInt(this.reportWidth != null ? this.reportWidth : -1);
+    for (String style :
+        new String[] {
+          this.firstHeaderStyle,
+          this.lastHeaderStyle,
+          this.headerStyle,
+          this.firstDetailStyle,
+          this.lastDetailStyle,
+          this.detailStyle
+        }) {
+      hasher.putString(String.valueOf(style), StandardCharsets.UTF_8);
+    }
+    hasher.putBoolean(this.converters.isEmpty());
+    for (Map.Entry<String, Class<?>> entry : columns.entrySet()) {
+      hasher.putString(entry.getKey(), StandardCharsets.UTF_8);
+      hasher.putString(
+          entry.getValue() != null ? entry.getValue().getName() : "", StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
   private void populateTemplateDesign(
       final Map<String, Class<?>> columns,
       final JasperDesign templateDesign,
@@ -635,6 +760,11 @@ public final class TableProcessor
               "if a style is declared a 'jasperTemplate' must also be declared (in"
                   + " !tableProcessor)."));
     }
+    if (this.maxParallelConversions < 1) {
+      validationErrors.add(
+          new ConfigurationException(
+              "'maxParallelConversions' must be greater than 0 (in !tableProcessor)."));
+    }
     if (styleRefDeclared && !this.dynamic) {
       validationErrors.add(
           new ConfigurationException(
@@ -730,6 +860,38 @@ public final class TableProcessor
     }
   }
 
+  /** A converter applied on a cell value. */
+  private static final class CellConversion {
+    private final TableColumnConverter<?> converter;
+    private final String text;
+
+    private CellConversion(final TableColumnConverter<?> converter, final String text) {
+      this.converter = converter;
+      this.text = text;
+    }
+
+    private Object convert(final MfClientHttpRequestFactory clientHttpRequestFactory) {
+      return this.converter.resolve(clientHttpRequestFactory, this.text);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CellConversion)) {
+        return false;
+      }
+      final CellConversion that = (CellConversion) o;
+      return this.converter == that.converter && Objects.equals(this.text, that.text);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(this.converter) + Objects.hashCode(this.text);
+    }
+  }
+
   /** Input object for execute. */
   public static final class Input {
     /**
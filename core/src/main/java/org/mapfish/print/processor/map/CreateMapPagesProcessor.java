@@ -3,6 +3,7 @@ package org.mapfish.print.processor.map;
 import static org.mapfish.print.Constants.PDF_DPI;
 
 import java.awt.Rectangle;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +24,7 @@ import org.mapfish.print.attribute.map.MapAttribute;
 import org.mapfish.print.attribute.map.MapAttribute.MapAttributeValues;
 import org.mapfish.print.attribute.map.PagingAttribute;
 import org.mapfish.print.config.Configuration;
+import org.mapfish.print.config.Template;
 import org.mapfish.print.map.DistanceUnit;
 import org.mapfish.print.processor.AbstractProcessor;
 import org.mapfish.print.processor.ProvideAttributes;
@@ -53,6 +55,11 @@ import org.slf4j.LoggerFactory;
  * in the report (or one of the sub-reports) table. One must be careful as this can result in truly
  * giant reports.
  *
+ * <p>With renderRasterOnce, the tiled and coverage layers are rendered once for the area covered by
+ * all the pages and each page takes its part of it, so the overlapping parts of the pages are not
+ * fetched and rendered several times. The single image layers (e.g. WMS) and the vector layers are
+ * still rendered for each page.
+ *
  * <p>See also: <a href="attributes.html#!paging">!paging</a> attribute [[examples=paging]]
  */
 public class CreateMapPagesProcessor
@@ -61,15 +68,31 @@ public class CreateMapPagesProcessor
   private static final Logger LOGGER = LoggerFactory.getLogger(CreateMapPagesProcessor.class);
   private static final int DO_NOT_RENDER_BBOX_INDEX = -1;
   private static final String MAP_KEY = "map";
+  private static final String RASTER_MOSAIC_KEY = "rasterMosaic";
 
   private final GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
   private MapAttribute mapAttribute;
+  private boolean renderRasterOnce = false;
 
   /** Constructor. */
   protected CreateMapPagesProcessor() {
     super(Output.class);
   }
 
+  /**
+   * If true, the tiled and coverage (e.g. GeoTIFF) layers of an unrotated map are rendered once for
+   * the area covered by the pages, in cells of the size of a page written in the task directory,
+   * and the layer images of the pages are cut out of these cells. A single image layer (e.g. WMS)
+   * is requested for each page, a request per cell would not be cheaper.
+   *
+   * <p>Default: false
+   *
+   * @param renderRasterOnce true to render the raster layers once for all the pages.
+   */
+  public void setRenderRasterOnce(final boolean renderRasterOnce) {
+    this.renderRasterOnce = renderRasterOnce;
+  }
+
   @Override
   protected void extraValidation(
       final List<Throwable> validationErrors, final Configuration configuration) {}
@@ -155,6 +178,21 @@ public class CreateMapPagesProcessor
       }
     }
 
+    final PagingMosaic rasterMosaic;
+    if (this.renderRasterOnce) {
+      rasterMosaic =
+          new PagingMosaic(
+              projection,
+              minX,
+              minY + (nbHeight - 1) * (paintAreaHeight - overlapProj) + paintAreaHeight,
+              paging.scale,
+              map.getMapSize(),
+              values.tempTaskDirectory,
+              values.template.getConfiguration().getPngCompressionLevel());
+    } else {
+      rasterMosaic = null;
+    }
+
     final List<Map<String, Object>> mapList = new ArrayList<>();
 
     for (int j = 0; j < nbHeight; j++) {
@@ -192,6 +230,9 @@ public class CreateMapPagesProcessor
                     return null;
                   });
           mapValues.put(MAP_KEY, theMap);
+          if (rasterMosaic != null) {
+            mapValues.put(RASTER_MOSAIC_KEY, rasterMosaic);
+          }
 
           mapList.add(mapValues);
         }
@@ -240,6 +281,12 @@ public class CreateMapPagesProcessor
      * to render the area of interest, etc...
      */
     public PagingAttribute.PagingProcessorValues paging;
+
+    /** The directory where the raster layers rendered once are written. */
+    public File tempTaskDirectory;
+
+    /** The template that contains this processor. */
+    public Template template;
   }
 
   /** Output of processor. */
@@ -30,7 +30,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.Resource;
@@ -55,7 +61,9 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Polygon;
 import org.mapfish.print.Constants;
 import org.mapfish.print.ExceptionUtils;
+import org.mapfish.print.FloatingPointUtil;
 import org.mapfish.print.ImageUtils;
+import org.mapfish.print.StripRenderedImage;
 import org.mapfish.print.SvgUtil;
 import org.mapfish.print.attribute.map.AreaOfInterest;
 import org.mapfish.print.attribute.map.BBoxMapBounds;
@@ -71,9 +79,12 @@ import org.mapfish.print.config.Configuration;
 import org.mapfish.print.config.Template;
 import org.mapfish.print.http.HttpRequestFetcher;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
+import org.mapfish.print.http.TileCache;
 import org.mapfish.print.map.Scale;
 import org.mapfish.print.map.geotools.AbstractFeatureSourceLayer;
+import org.mapfish.print.map.geotools.AbstractGridCoverage2DReaderLayer;
 import org.mapfish.print.map.geotools.FeatureLayer;
+import org.mapfish.print.map.tiled.AbstractTiledLayer;
 import org.mapfish.print.parser.HasDefaultValue;
 import org.mapfish.print.processor.AbstractProcessor;
 import org.mapfish.print.processor.InputOutputValue;
@@ -81,6 +92,7 @@ import org.mapfish.print.processor.InternalValue;
 import org.mapfish.print.processor.http.MfClientHttpRequestFactoryProvider;
 import org.mapfish.print.processor.jasper.ImagesSubReport;
 import org.mapfish.print.processor.jasper.JasperReportBuilder;
+import org.mapfish.print.processor.jasper.JasperReportCache;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 import org.slf4j.Logger;
@@ -103,6 +115,10 @@ public final class CreateMapProcessor
 
   @Autowired private MetricRegistry metricRegistry;
 
+  @Autowired private TileCache tileCache;
+
+  @Autowired private JasperReportCache jasperReportCache;
+
   @Resource(name = "requestForkJoinPool")
   private ForkJoinPool requestForkJoinPool;
 
@@ -112,6 +128,14 @@ public final class CreateMapProcessor
   @Value("${httpRequest.fetchRetry.intervalMillis}")
   private int httpRequestFetchRetryIntervalMillis;
 
+  @Value("${createMap.rasterStripHeight}")
+  private int rasterStripHeight;
+
+  @Value("${createMap.maxParallelLayerGroups}")
+  private int maxParallelLayerGroups;
+
+  @Autowired private ForkJoinPool forkJoinPool;
+
   /** Constructor. */
   protected CreateMapProcessor() {
     super(Output.class);
@@ -253,7 +277,8 @@ public final class CreateMapProcessor
             pdfA,
             mapValues,
             context,
-            mapContext);
+            mapContext,
+            param.rasterMosaic);
     context.stopIfCanceled();
 
     final URI mapSubReport;
@@ -354,7 +379,7 @@ public final class CreateMapProcessor
     final File compiledReport =
         File.createTempFile(
             "map-", JasperReportBuilder.JASPER_REPORT_COMPILED_FILE_EXT, printDirectory);
-    subReport.compile(compiledReport);
+    subReport.compile(compiledReport, this.jasperReportCache);
 
     return compiledReport.toURI();
   }
@@ -391,7 +416,8 @@ public final class CreateMapProcessor
       final boolean pdfA,
       final MapAttributeValues mapValues,
       final ExecutionContext context,
-      final MapfishMapContext mapContext)
+      final MapfishMapContext mapContext,
+      @Nullable final PagingMosaic rasterMosaic)
       throws IOException, ParserConfigurationException {
     // reverse layer list to draw from bottom to top.  normally position 0 is top-most layer.
     final List<MapLayer> layers = new ArrayList<>(mapValues.getLayers());
@@ -409,82 +435,251 @@ public final class CreateMapProcessor
             context,
             this.requestForkJoinPool,
             this.httpRequestMaxNumberFetchRetry,
-            this.httpRequestFetchRetryIntervalMillis);
+            this.httpRequestFetchRetryIntervalMillis,
+            this.tileCache,
+            mapValues.getTemplate().getConfiguration());
 
     // prepare layers for rendering
     for (final MapLayer layer : layers) {
       layer.prepareRender(mapContext);
-      final MapfishMapContext transformer =
-          getTransformer(mapContext, layer.getImageBufferScaling());
-      layer.prefetchResources(cache, clientHttpRequestFactory, transformer, context);
+    }
+    final List<LayerGroup> layerGroups = LayerGroup.buildGroups(layers, pdfA);
+    for (LayerGroup layerGroup : layerGroups) {
+      // the layers rendered in strips or in a mosaic are prefetched part by part
+      if (!isRenderedInStrips(layerGroup, mapContext)
+          && !(rasterMosaic != null && isRasterGroup(layerGroup, mapContext))) {
+        for (final MapLayer layer : layerGroup.layers) {
+          final MapfishMapContext transformer =
+              getTransformer(mapContext, layer.getImageBufferScaling());
+          layer.prefetchResources(cache, clientHttpRequestFactory, transformer, context);
+        }
+      }
     }
 
     final Timer.Context timer =
         this.metricRegistry.timer(getClass().getName() + ".buildLayers").time();
-    int fileNumber = 0;
-    for (LayerGroup layerGroup : LayerGroup.buildGroups(layers, pdfA)) {
-      if (layerGroup.renderType == RenderType.SVG) {
-        // render layers as SVG
-        for (MapLayer layer : layerGroup.layers) {
-          context.stopIfCanceled();
-          final SVGGraphics2D graphics2D = createSvgGraphics(mapContext.getMapSize());
-
-          try {
-            final Graphics2D clippedGraphics2D =
-                createClippedGraphics(mapContext, areaOfInterest, graphics2D);
-            layer.render(clippedGraphics2D, clientHttpRequestFactory, mapContext, context);
-
-            final File path = new File(printDirectory, mapKey + "_layer_" + fileNumber++ + ".svg");
-            saveSvgFile(graphics2D, path);
-            graphics.add(path.toURI());
-          } finally {
-            graphics2D.dispose();
+    final StripContext renderContext =
+        new StripContext(
+            clientHttpRequestFactory,
+            cache,
+            mapContext,
+            areaOfInterest,
+            context,
+            mapValues.getTemplate().getConfiguration().getPngCompressionLevel());
+    final String pathPrefix = new File(printDirectory, mapKey + "_layer_").getPath();
+    // the SVG layers are written in one file per layer, the other groups in one file
+    final int[] nbFiles = new int[layerGroups.size()];
+    for (int i = 0; i < layerGroups.size(); i++) {
+      final LayerGroup layerGroup = layerGroups.get(i);
+      nbFiles[i] = layerGroup.renderType == RenderType.SVG ? layerGroup.layers.size() : 1;
+    }
+    graphics.addAll(
+        renderLayerGroups(
+            nbFiles,
+            this.maxParallelLayerGroups,
+            this.forkJoinPool,
+            (groupIndex, firstFileNumber) ->
+                context.mdcContextEx(
+                    () ->
+                        renderLayerGroup(
+                            layerGroups.get(groupIndex),
+                            groupIndex,
+                            firstFileNumber,
+                            renderContext,
+                            pathPrefix,
+                            pdfA,
+                            rasterMosaic))));
+    timer.stop();
+
+    return graphics;
+  }
+
+  /**
+   * Render the groups of layers, and return their graphics in the order of the groups.
+   *
+   * <p>The independent groups are rendered and encoded in parallel by at most maxParallelism
+   * workers, each worker takes the next group to render. On a failure or a cancellation, the
+   * workers don't start rendering new groups.
+   *
+   * @param nbFiles the number of files written by each group, to number the files in order
+   * @param maxParallelism the maximum number of groups rendered at the same time
+   * @param executor the executor of the workers
+   * @param renderer renders a group
+   */
+  @VisibleForTesting
+  static List<URI> renderLayerGroups(
+      final int[] nbFiles,
+      final int maxParallelism,
+      final ExecutorService executor,
+      final LayerGroupRenderer renderer)
+      throws IOException, ParserConfigurationException {
+    final int nbGroups = nbFiles.length;
+    final int[] firstFileNumbers = new int[nbGroups];
+    for (int i = 1; i < nbGroups; i++) {
+      firstFileNumbers[i] = firstFileNumbers[i - 1] + nbFiles[i - 1];
+    }
+
+    final List<List<URI>> groupGraphics = new ArrayList<>(Collections.nCopies(nbGroups, null));
+    final AtomicInteger nextGroup = new AtomicInteger();
+    final Callable<Void> worker =
+        () -> {
+          int groupIndex;
+          while ((groupIndex = nextGroup.getAndIncrement()) < nbGroups) {
+            try {
+              final List<URI> uris = renderer.render(groupIndex, firstFileNumbers[groupIndex]);
+              synchronized (groupGraphics) {
+                groupGraphics.set(groupIndex, uris);
+              }
+            } catch (Exception e) {
+              // stop the other workers
+              nextGroup.set(nbGroups);
+              throw e;
+            }
           }
-        }
+          return null;
+        };
+    final int parallelism = Math.min(maxParallelism, nbGroups);
+    try {
+      if (parallelism <= 1) {
+        worker.call();
       } else {
-        // render layers as raster graphic
-        final boolean needTransparency = !layerGroup.opaque && !pdfA;
-        final BufferedImage bufferedImage =
-            new BufferedImage(
-                (int) Math.round(mapContext.getMapSize().width * layerGroup.imageBufferScaling),
-                (int) Math.round(mapContext.getMapSize().height * layerGroup.imageBufferScaling),
-                needTransparency ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
-        final Graphics2D graphics2D =
-            createClippedGraphics(mapContext, areaOfInterest, bufferedImage.createGraphics());
+        final List<Future<Void>> futures = new ArrayList<>(parallelism);
         try {
-          if (layerGroup.opaque || pdfA) {
-            // the image is opaque and therefore needs a white background
-            final Color prevColor = graphics2D.getColor();
-            graphics2D.setColor(Color.WHITE);
-            graphics2D.fillRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
-            graphics2D.setColor(prevColor);
+          for (int i = 0; i < parallelism; i++) {
+            futures.add(executor.submit(worker));
           }
-
-          final MapfishMapContext transformer =
-              getTransformer(mapContext, layerGroup.imageBufferScaling);
-          for (MapLayer cur : layerGroup.layers) {
-            context.stopIfCanceled();
-            warnIfDifferentRenderType(layerGroup.renderType, cur, !pdfA);
-            cur.render(graphics2D, clientHttpRequestFactory, transformer, context);
+          for (Future<Void> future : futures) {
+            future.get();
           }
+        } finally {
+          // on a failure or a cancellation, don't wait for the groups that are not started
+          nextGroup.set(nbGroups);
+          for (Future<Void> future : futures) {
+            future.cancel(true);
+          }
+        }
+      }
+    } catch (ExecutionException e) {
+      throw ExceptionUtils.getRuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException();
+    } catch (IOException | ParserConfigurationException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw ExceptionUtils.getRuntimeException(e);
+    }
+
+    final List<URI> graphics = new ArrayList<>();
+    synchronized (groupGraphics) {
+      for (List<URI> uris : groupGraphics) {
+        graphics.addAll(uris);
+      }
+    }
+    return graphics;
+  }
+
+  private List<URI> renderLayerGroup(
+      final LayerGroup layerGroup,
+      final int groupIndex,
+      final int firstFileNumber,
+      final StripContext renderContext,
+      final String pathPrefix,
+      final boolean pdfA,
+      @Nullable final PagingMosaic rasterMosaic)
+      throws IOException, ParserConfigurationException {
+    final MfClientHttpRequestFactory clientHttpRequestFactory =
+        renderContext.clientHttpRequestFactory;
+    final MapfishMapContext mapContext = renderContext.mapContext;
+    final ExecutionContext context = renderContext.executionContext;
+    final List<URI> graphics = new ArrayList<>();
+    int fileNumber = firstFileNumber;
+    context.stopIfCanceled();
+    if (rasterMosaic != null && isRasterGroup(layerGroup, mapContext)) {
+      final boolean needTransparency = !layerGroup.opaque && !pdfA;
+      final MapfishMapContext transformer =
+          getTransformer(mapContext, layerGroup.imageBufferScaling);
+      final BufferedImage bufferedImage =
+          rasterMosaic.getImage(
+              groupIndex,
+              transformer.toReferencedEnvelope(),
+              transformer.getMapSize(),
+              needTransparency ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR,
+              (envelope, cell) -> {
+                context.stopIfCanceled();
+                renderStrip(
+                    layerGroup,
+                    renderContext,
+                    createPartContext(
+                        mapContext, envelope, new Dimension(cell.getWidth(), cell.getHeight())),
+                    cell);
+              });
+      final String formatName =
+          layerGroup.opaque && layerGroup.renderType == RenderType.JPEG ? "JPEG" : "PNG";
+      final File path = new File(pathPrefix + fileNumber + "." + formatName.toLowerCase());
+      ImageUtils.writeImage(bufferedImage, formatName, path, renderContext.pngCompressionLevel);
+      graphics.add(path.toURI());
+    } else if (isRenderedInStrips(layerGroup, mapContext)) {
+      final File path = new File(pathPrefix + fileNumber + ".png");
+      renderInStrips(layerGroup, renderContext, !layerGroup.opaque && !pdfA, path);
+      graphics.add(path.toURI());
+    } else if (layerGroup.renderType == RenderType.SVG) {
+      // render layers as SVG
+      for (MapLayer layer : layerGroup.layers) {
+        context.stopIfCanceled();
+        final SVGGraphics2D graphics2D = createSvgGraphics(mapContext.getMapSize());
 
-          // Try to respect the original format of the layer. But if it needs to be transparent,
-          // no choice, we need PNG.
-          final String formatName =
-              layerGroup.opaque && layerGroup.renderType == RenderType.JPEG ? "JPEG" : "PNG";
-          final File path =
-              new File(
-                  printDirectory,
-                  String.format("%s_layer_%d.%s", mapKey, fileNumber++, formatName.toLowerCase()));
-          ImageUtils.writeImage(bufferedImage, formatName, path);
+        try {
+          final Graphics2D clippedGraphics2D =
+              createClippedGraphics(mapContext, renderContext.areaOfInterest, graphics2D);
+          layer.render(clippedGraphics2D, clientHttpRequestFactory, mapContext, context);
+
+          final File path = new File(pathPrefix + fileNumber++ + ".svg");
+          saveSvgFile(graphics2D, path);
           graphics.add(path.toURI());
         } finally {
           graphics2D.dispose();
         }
       }
-    }
-    timer.stop();
+    } else {
+      // render layers as raster graphic
+      final boolean needTransparency = !layerGroup.opaque && !pdfA;
+      final BufferedImage bufferedImage =
+          new BufferedImage(
+              (int) Math.round(mapContext.getMapSize().width * layerGroup.imageBufferScaling),
+              (int) Math.round(mapContext.getMapSize().height * layerGroup.imageBufferScaling),
+              needTransparency ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+      final Graphics2D graphics2D =
+          createClippedGraphics(
+              mapContext, renderContext.areaOfInterest, bufferedImage.createGraphics());
+      try {
+        if (layerGroup.opaque || pdfA) {
+          // the image is opaque and therefore needs a white background
+          final Color prevColor = graphics2D.getColor();
+          graphics2D.setColor(Color.WHITE);
+          graphics2D.fillRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
+          graphics2D.setColor(prevColor);
+        }
 
+        final MapfishMapContext transformer =
+            getTransformer(mapContext, layerGroup.imageBufferScaling);
+        for (MapLayer cur : layerGroup.layers) {
+          context.stopIfCanceled();
+          warnIfDifferentRenderType(layerGroup.renderType, cur, !pdfA);
+          cur.render(graphics2D, clientHttpRequestFactory, transformer, context);
+        }
+
+        // Try to respect the original format of the layer. But if it needs to be transparent,
+        // no choice, we need PNG.
+        final String formatName =
+            layerGroup.opaque && layerGroup.renderType == RenderType.JPEG ? "JPEG" : "PNG";
+        final File path = new File(pathPrefix + fileNumber + "." + formatName.toLowerCase());
+        ImageUtils.writeImage(bufferedImage, formatName, path, renderContext.pngCompressionLevel);
+        graphics.add(path.toURI());
+      } finally {
+        graphics2D.dispose();
+      }
+    }
     return graphics;
   }
 
@@ -509,6 +704,141 @@ public final class CreateMapProcessor
     return areaOfInterest;
   }
 
+  /**
+   * The raster layer groups of a big unrotated map can be rendered in horizontal strips to limit
+   * the memory usage. Only the tiled and the coverage layers are supported, the vector layers and
+   * the images rendered by a server (e.g. WMS GetMap) would have their symbols and labels cut or
+   * duplicated at the strip borders.
+   */
+  private boolean isRenderedInStrips(
+      final LayerGroup layerGroup, final MapfishMapContext mapContext) {
+    return this.rasterStripHeight > 0
+        && mapContext.getMapSize().height * layerGroup.imageBufferScaling > this.rasterStripHeight
+        && isRasterGroup(layerGroup, mapContext);
+  }
+
+  /**
+   * Return true if the layer group of an unrotated map only contains tiled or coverage layers,
+   * which can be rendered in several parts. A single image layer is requested for each part, and
+   * the labels placed by the server would not match at the borders of the parts.
+   */
+  private static boolean isRasterGroup(
+      final LayerGroup layerGroup, final MapfishMapContext mapContext) {
+    if (layerGroup.renderType == RenderType.SVG
+        || !FloatingPointUtil.equals(mapContext.getRotation(), 0.0)) {
+      return false;
+    }
+    for (MapLayer layer : layerGroup.layers) {
+      if (!(layer instanceof AbstractTiledLayer
+          || layer instanceof AbstractGridCoverage2DReaderLayer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Render a raster layer group strip by strip, each strip having its own map context and being
+   * written to the PNG file before the next one is rendered. The PNG format is used even for JPEG
+   * layers because the JPEG writer reads the whole image at once.
+   */
+  private void renderInStrips(
+      final LayerGroup layerGroup,
+      final StripContext stripContext,
+      final boolean needTransparency,
+      final File path)
+      throws IOException {
+    final MapfishMapContext mapContext = stripContext.mapContext;
+    final MapfishMapContext transformer = getTransformer(mapContext, layerGroup.imageBufferScaling);
+    final Dimension size = transformer.getMapSize();
+    final ReferencedEnvelope envelope = transformer.toReferencedEnvelope();
+    final StripRenderedImage image =
+        new StripRenderedImage(
+            size.width,
+            size.height,
+            this.rasterStripHeight,
+            needTransparency ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR,
+            (strip, y) -> {
+              stripContext.executionContext.stopIfCanceled();
+              final ReferencedEnvelope stripEnvelope =
+                  new ReferencedEnvelope(
+                      envelope.getMinX(),
+                      envelope.getMaxX(),
+                      envelope.getMaxY()
+                          - (y + strip.getHeight()) * envelope.getHeight() / size.height,
+                      envelope.getMaxY() - y * envelope.getHeight() / size.height,
+                      envelope.getCoordinateReferenceSystem());
+              renderStrip(
+                  layerGroup,
+                  stripContext,
+                  createPartContext(
+                      mapContext, stripEnvelope, new Dimension(size.width, strip.getHeight())),
+                  strip);
+            });
+    ImageUtils.writeImage(image, "PNG", path, stripContext.pngCompressionLevel);
+  }
+
+  /** Create the context to render a part of an unrotated map. */
+  private static MapfishMapContext createPartContext(
+      final MapfishMapContext mapContext, final ReferencedEnvelope envelope, final Dimension size) {
+    return new MapfishMapContext(
+        mapContext,
+        new BBoxMapBounds(envelope),
+        size,
+        0,
+        mapContext.getDPI(),
+        mapContext.isForceLongitudeFirst(),
+        mapContext.isDpiSensitiveStyle());
+  }
+
+  private void renderStrip(
+      final LayerGroup layerGroup,
+      final StripContext stripContext,
+      final MapfishMapContext stripTransformer,
+      final BufferedImage strip) {
+    // the layers are prepared with the size of the map without image buffer scaling
+    final MapfishMapContext stripMapContext =
+        new MapfishMapContext(
+            stripContext.mapContext,
+            stripTransformer.getBounds(),
+            new Dimension(
+                Math.max(1, (int) Math.round(strip.getWidth() / layerGroup.imageBufferScaling)),
+                Math.max(1, (int) Math.round(strip.getHeight() / layerGroup.imageBufferScaling))),
+            0,
+            stripTransformer.getDPI(),
+            stripTransformer.isForceLongitudeFirst(),
+            stripTransformer.isDpiSensitiveStyle());
+    for (MapLayer layer : layerGroup.layers) {
+      layer.prepareRender(stripMapContext);
+      layer.prefetchResources(
+          stripContext.fetcher,
+          stripContext.clientHttpRequestFactory,
+          stripTransformer,
+          stripContext.executionContext);
+    }
+
+    final Graphics2D graphics2D =
+        createClippedGraphics(
+            stripTransformer, stripContext.areaOfInterest, strip.createGraphics());
+    try {
+      if (strip.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+        // the image is opaque and therefore needs a white background
+        graphics2D.setColor(Color.WHITE);
+        graphics2D.fillRect(0, 0, strip.getWidth(), strip.getHeight());
+      }
+      for (MapLayer layer : layerGroup.layers) {
+        stripContext.executionContext.stopIfCanceled();
+        layer.render(
+            graphics2D,
+            stripContext.clientHttpRequestFactory,
+            stripTransformer,
+            stripContext.executionContext);
+      }
+    } finally {
+      graphics2D.dispose();
+    }
+  }
+
   private Graphics2D createClippedGraphics(
       @Nonnull final MapfishMapContext transformer,
       @Nullable final AreaOfInterest areaOfInterest,
@@ -674,6 +1004,12 @@ public final class CreateMapProcessor
 
     /** The output format. */
     @HasDefaultValue public String outputFormat = null;
+
+    /**
+     * The raster layers rendered once for all the pages of a paging, set by the {@link
+     * CreateMapPagesProcessor} when renderRasterOnce is enabled.
+     */
+    @HasDefaultValue public PagingMosaic rasterMosaic = null;
   }
 
   /** Output for the processor. */
@@ -721,6 +1057,43 @@ public final class CreateMapProcessor
     }
   }
 
+  /** The objects needed to render the layer groups and their strips. */
+  private static final class StripContext {
+    private final MfClientHttpRequestFactory clientHttpRequestFactory;
+    private final HttpRequestFetcher fetcher;
+    private final MapfishMapContext mapContext;
+    private final AreaOfInterest areaOfInterest;
+    private final ExecutionContext executionContext;
+    private final int pngCompressionLevel;
+
+    private StripContext(
+        final MfClientHttpRequestFactory clientHttpRequestFactory,
+        final HttpRequestFetcher fetcher,
+        final MapfishMapContext mapContext,
+        @Nullable final AreaOfInterest areaOfInterest,
+        final ExecutionContext executionContext,
+        final int pngCompressionLevel) {
+      this.clientHttpRequestFactory = clientHttpRequestFactory;
+      this.fetcher = fetcher;
+      this.mapContext = mapContext;
+      this.areaOfInterest = areaOfInterest;
+      this.executionContext = executionContext;
+      this.pngCompressionLevel = pngCompressionLevel;
+    }
+  }
+
+  /** Renders a group of layers. */
+  @VisibleForTesting
+  interface LayerGroupRenderer {
+    /**
+     * Render a group of layers and return its graphics.
+     *
+     * @param groupIndex the index of the group
+     * @param firstFileNumber the number of the first file written by the group
+     */
+    List<URI> render(int groupIndex, int firstFileNumber) throws Exception;
+  }
+
   /** Class that groups together layers that can end up in the same file. */
   private static final class LayerGroup {
     public final List<MapLayer> layers = new ArrayList<>();
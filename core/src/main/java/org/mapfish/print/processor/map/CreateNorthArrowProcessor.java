@@ -17,6 +17,8 @@ import org.mapfish.print.processor.AbstractProcessor;
 import org.mapfish.print.processor.http.MfClientHttpRequestFactoryProvider;
 import org.mapfish.print.processor.jasper.ImagesSubReport;
 import org.mapfish.print.processor.jasper.JasperReportBuilder;
+import org.mapfish.print.processor.jasper.JasperReportCache;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Processor to create a north-arrow for a map.
@@ -44,6 +46,8 @@ import org.mapfish.print.processor.jasper.JasperReportBuilder;
 public class CreateNorthArrowProcessor
     extends AbstractProcessor<CreateNorthArrowProcessor.Input, CreateNorthArrowProcessor.Output> {
 
+  @Autowired private JasperReportCache jasperReportCache;
+
   /** Constructor. */
   protected CreateNorthArrowProcessor() {
     super(Output.class);
@@ -76,7 +80,7 @@ public class CreateNorthArrowProcessor
             values.map.getRotation(),
             values.tempTaskDirectory,
             values.clientHttpRequestFactoryProvider.get(),
-            !values.template.isPdfA());
+            values.template);
 
     context.stopIfCanceled();
 
@@ -104,7 +108,7 @@ public class CreateNorthArrowProcessor
             "north-arrow-report-",
             JasperReportBuilder.JASPER_REPORT_COMPILED_FILE_EXT,
             printDirectory);
-    subReport.compile(compiledReport);
+    subReport.compile(compiledReport, this.jasperReportCache);
 
     return compiledReport.toURI();
   }
@@ -26,6 +26,7 @@ import org.apache.commons.io.output.FileWriterWithEncoding;
 import org.apache.commons.lang3.StringUtils;
 import org.mapfish.print.FloatingPointUtil;
 import org.mapfish.print.ImageUtils;
+import org.mapfish.print.config.Template;
 import org.mapfish.print.http.MfClientHttpRequestFactory;
 import org.mapfish.print.map.style.json.ColorParser;
 import org.slf4j.Logger;
@@ -60,7 +61,7 @@ public final class NorthArrowGraphic {
    * @param rotation The rotation to apply.
    * @param workingDir The directory in which the graphic is created.
    * @param clientHttpRequestFactory The request factory.
-   * @param allowTransparency True is transparency is allowed
+   * @param template The template, transparency is not allowed for PDF/A.
    * @return The path to the created graphic.
    */
   public static URI create(
@@ -70,7 +71,7 @@ public final class NorthArrowGraphic {
       final Double rotation,
       final File workingDir,
       final MfClientHttpRequestFactory clientHttpRequestFactory,
-      final boolean allowTransparency)
+      final Template template)
       throws Exception {
     try (Closer closer = Closer.create()) {
       final RasterReference input = loadGraphic(graphicFile, clientHttpRequestFactory, closer);
@@ -78,7 +79,13 @@ public final class NorthArrowGraphic {
         return createSvg(targetSize, input, rotation, backgroundColor, workingDir);
       } else {
         return createRaster(
-            targetSize, input, rotation, backgroundColor, workingDir, allowTransparency);
+            targetSize,
+            input,
+            rotation,
+            backgroundColor,
+            workingDir,
+            !template.isPdfA(),
+            template.getConfiguration().getPngCompressionLevel());
       }
     }
   }
@@ -116,7 +123,8 @@ public final class NorthArrowGraphic {
       final Double rotation,
       final Color backgroundColor,
       final File workingDir,
-      final boolean allowTransparency)
+      final boolean allowTransparency,
+      final int pngCompressionLevel)
       throws IOException {
     final File path = File.createTempFile("north-arrow-", ".png", workingDir);
 
@@ -180,7 +188,7 @@ public final class NorthArrowGraphic {
           RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
       graphics2d.drawImage(originalImage, deltaX, deltaY, newWidth, newHeight, null);
 
-      ImageUtils.writeImage(newImage, "png", path);
+      ImageUtils.writeImage(newImage, "png", path, pngCompressionLevel);
     } finally {
       graphics2d.dispose();
     }
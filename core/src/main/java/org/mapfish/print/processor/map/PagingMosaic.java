@@ -0,0 +1,188 @@
+package org.mapfish.print.processor.map;
+
+import static org.mapfish.print.Constants.PDF_DPI;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.mapfish.print.ExceptionUtils;
+import org.mapfish.print.ImageUtils;
+import org.mapfish.print.map.DistanceUnit;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The tiled and coverage layers shared by the pages of a paging, rendered once.
+ *
+ * <p>The area covered by the pages is cut in cells of the size of a page, starting from the top
+ * left corner of the pages grid. A cell is rendered the first time a page needs it and written in
+ * the task directory, then the image of a page is composed of the (at most four) cells it
+ * intersects. With an overlap between the pages, the overlapping parts are rendered only once.
+ *
+ * <p>The resolution of the grid is fixed from the scale, the DPI and the size of the pages, the
+ * envelopes of the pages being computed with rounding errors.
+ */
+public final class PagingMosaic {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PagingMosaic.class);
+
+  private final CoordinateReferenceSystem projection;
+  private final double originX;
+  private final double originY;
+  private final double pageWidth;
+  private final double pageHeight;
+  private final File directory;
+  private final int pngCompressionLevel;
+  private final Map<String, CompletableFuture<File>> cells = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param projection the projection of the pages.
+   * @param originX the x coordinate of the top left corner of the pages grid.
+   * @param originY the y coordinate of the top left corner of the pages grid.
+   * @param scale the scale of the pages.
+   * @param mapSize the size of the pages, in points.
+   * @param directory the directory where the cells are written.
+   * @param pngCompressionLevel the compression level of the cells PNG files.
+   */
+  public PagingMosaic(
+      final CoordinateReferenceSystem projection,
+      final double originX,
+      final double originY,
+      final double scale,
+      final Dimension mapSize,
+      final File directory,
+      final int pngCompressionLevel) {
+    this.projection = projection;
+    this.originX = originX;
+    this.originY = originY;
+    final DistanceUnit projectionUnit = DistanceUnit.fromProjection(projection);
+    this.pageWidth = DistanceUnit.IN.convertTo(mapSize.width * scale / PDF_DPI, projectionUnit);
+    this.pageHeight = DistanceUnit.IN.convertTo(mapSize.height * scale / PDF_DPI, projectionUnit);
+    this.directory = directory;
+    this.pngCompressionLevel = pngCompressionLevel;
+  }
+
+  /**
+   * Get the image of a layer group for a page.
+   *
+   * @param groupIndex the index of the layer group in the page.
+   * @param envelope the area of the page.
+   * @param size the size of the page image.
+   * @param imageType the type of the image, see {@link BufferedImage#getType()}.
+   * @param renderer renders a cell, for the area of the cell.
+   */
+  public BufferedImage getImage(
+      final int groupIndex,
+      final ReferencedEnvelope envelope,
+      final Dimension size,
+      final int imageType,
+      final CellRenderer renderer)
+      throws IOException {
+    // the size of the image depends on the DPI and on the image buffer scaling of the group
+    final double resolutionX = this.pageWidth / size.width;
+    final double resolutionY = this.pageHeight / size.height;
+    final BufferedImage image = new BufferedImage(size.width, size.height, imageType);
+    if (Math.abs(envelope.getWidth() / resolutionX - size.width) > 0.5
+        || Math.abs(envelope.getHeight() / resolutionY - size.height) > 0.5) {
+      // not a page of the grid, e.g. with a scale adjusted to the zoom levels
+      LOGGER.debug("The page {} is not in the mosaic grid", envelope);
+      try {
+        renderer.render(envelope, image);
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw ExceptionUtils.getRuntimeException(e);
+      }
+      return image;
+    }
+    // position of the page in the mosaic, in pixels
+    final int x = (int) Math.round((envelope.getMinX() - this.originX) / resolutionX);
+    final int y = (int) Math.round((this.originY - envelope.getMaxY()) / resolutionY);
+
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      for (int cellY = Math.floorDiv(y, size.height);
+          cellY <= Math.floorDiv(y + size.height - 1, size.height);
+          cellY++) {
+        for (int cellX = Math.floorDiv(x, size.width);
+            cellX <= Math.floorDiv(x + size.width - 1, size.width);
+            cellX++) {
+          final File cell =
+              getCell(
+                  String.format(
+                      "%d_%dx%d_%d_%d", groupIndex, size.width, size.height, cellX, cellY),
+                  new ReferencedEnvelope(
+                      this.originX + cellX * size.width * resolutionX,
+                      this.originX + (cellX + 1) * size.width * resolutionX,
+                      this.originY - (cellY + 1) * size.height * resolutionY,
+                      this.originY - cellY * size.height * resolutionY,
+                      this.projection),
+                  size,
+                  imageType,
+                  renderer);
+          graphics.drawImage(
+              ImageIO.read(cell), cellX * size.width - x, cellY * size.height - y, null);
+        }
+      }
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private File getCell(
+      final String key,
+      final ReferencedEnvelope envelope,
+      final Dimension size,
+      final int imageType,
+      final CellRenderer renderer)
+      throws IOException {
+    final CompletableFuture<File> task = new CompletableFuture<>();
+    final CompletableFuture<File> existing = this.cells.putIfAbsent(key, task);
+    if (existing == null) {
+      try {
+        LOGGER.debug("Rendering the mosaic cell {}", key);
+        final BufferedImage cell = new BufferedImage(size.width, size.height, imageType);
+        renderer.render(envelope, cell);
+        final File file = File.createTempFile("mosaic-", ".png", this.directory);
+        ImageUtils.writeImage(cell, "PNG", file, this.pngCompressionLevel);
+        task.complete(file);
+      } catch (Exception e) {
+        // let another page try again
+        this.cells.remove(key, task);
+        task.completeExceptionally(e);
+      }
+    }
+    try {
+      // the pages are rendered in a fork join pool, a CompletableFuture waits through
+      // ForkJoinPool.managedBlock so that the pool compensates the blocked worker
+      return (existing != null ? existing : task).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw ExceptionUtils.getRuntimeException(e);
+    } catch (ExecutionException e) {
+      throw ExceptionUtils.getRuntimeException(e.getCause());
+    }
+  }
+
+  /** Renders a cell of the mosaic. */
+  public interface CellRenderer {
+    /**
+     * Render the cell.
+     *
+     * @param envelope the area of the cell.
+     * @param cell the image to render to.
+     */
+    void render(ReferencedEnvelope envelope, BufferedImage cell) throws Exception;
+  }
+}
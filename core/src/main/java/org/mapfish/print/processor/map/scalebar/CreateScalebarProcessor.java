@@ -15,6 +15,8 @@ import org.mapfish.print.config.Template;
 import org.mapfish.print.processor.AbstractProcessor;
 import org.mapfish.print.processor.jasper.ImagesSubReport;
 import org.mapfish.print.processor.jasper.JasperReportBuilder;
+import org.mapfish.print.processor.jasper.JasperReportCache;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Processor to create a scalebar for a map.
@@ -25,6 +27,8 @@ import org.mapfish.print.processor.jasper.JasperReportBuilder;
 public class CreateScalebarProcessor
     extends AbstractProcessor<CreateScalebarProcessor.Input, CreateScalebarProcessor.Output> {
 
+  @Autowired private JasperReportCache jasperReportCache;
+
   /** Constructor. */
   protected CreateScalebarProcessor() {
     super(Output.class);
@@ -78,7 +82,7 @@ public class CreateScalebarProcessor
             "scalebar-report-",
             JasperReportBuilder.JASPER_REPORT_COMPILED_FILE_EXT,
             printDirectory);
-    subReport.compile(compiledReport);
+    subReport.compile(compiledReport, this.jasperReportCache);
 
     return compiledReport.toURI();
   }
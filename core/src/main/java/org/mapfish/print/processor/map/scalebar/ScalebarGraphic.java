@@ -483,7 +483,8 @@ public class ScalebarGraphic {
         graphics2D.setTransform(saveAF);
 
         path = File.createTempFile("scalebar-graphic-", ".png", tempFolder);
-        ImageUtils.writeImage(bufferedImage, "png", path);
+        ImageUtils.writeImage(
+            bufferedImage, "png", path, template.getConfiguration().getPngCompressionLevel());
       } finally {
         graphics2D.dispose();
       }
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.MalformedURLException;
@@ -63,12 +64,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /** The default servlet. */
 @Controller
@@ -206,6 +210,8 @@ public class MapPrinterServlet extends BaseMapServlet {
   private static final Logger LOGGER = LoggerFactory.getLogger(MapPrinterServlet.class);
   private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{(\\S+)}");
   private static final int JSON_INDENT_FACTOR = 4;
+  private static final long DEFAULT_MAX_STATUS_WAIT_TIME_IN_SECONDS = 60L;
+  private static final long STATUS_EVENTS_REFRESH_INTERVAL = 30000L; // ms
   private static final List<String> REQUEST_ID_HEADERS =
       Arrays.asList(
           "X-Request-ID", "X-Correlation-ID", "Request-ID", "X-Varnish", "X-Amzn-Trace-Id");
@@ -222,6 +228,7 @@ public class MapPrinterServlet extends BaseMapServlet {
   private final MapPrinterFactory mapPrinterFactory;
 
   private long maxCreateAndGetWaitTimeInSeconds = ThreadPoolJobManager.DEFAULT_TIMEOUT_IN_SECONDS;
+  private long maxStatusWaitTimeInSeconds = DEFAULT_MAX_STATUS_WAIT_TIME_IN_SECONDS;
 
   @Autowired
   public MapPrinterServlet(
@@ -338,6 +345,8 @@ public class MapPrinterServlet extends BaseMapServlet {
    *
    * @param appId the app ID
    * @param referenceId the job reference
+   * @param wait the maximum time to wait for a change of the status before returning it, in seconds
+   *     (for example 30 or 30s)
    * @param statusRequest the request object
    * @param statusResponse the response object
    */
@@ -347,9 +356,10 @@ public class MapPrinterServlet extends BaseMapServlet {
   public final void getStatusSpecificAppId(
       @Nonnull @PathVariable final String appId,
       @Nonnull @PathVariable final String referenceId,
+      @RequestParam(value = "wait", defaultValue = "0") final String wait,
       final HttpServletRequest statusRequest,
       final HttpServletResponse statusResponse) {
-    getStatus(appId, referenceId, statusRequest, statusResponse);
+    getStatus(appId, referenceId, wait, statusRequest, statusResponse);
   }
 
   /**
@@ -360,15 +370,34 @@ public class MapPrinterServlet extends BaseMapServlet {
    * </code></pre>
    *
    * @param referenceId the job reference
+   * @param wait the maximum time to wait for a change of the status before returning it, in seconds
+   *     (for example 30 or 30s)
    * @param statusRequest the request object
    * @param statusResponse the response object
    */
   @RequestMapping(value = STATUS_URL + "/{referenceId:\\S+}.json", method = RequestMethod.GET)
   public final void getStatusPath(
       @Nonnull @PathVariable final String referenceId,
+      @RequestParam(value = "wait", defaultValue = "0") final String wait,
       final HttpServletRequest statusRequest,
       final HttpServletResponse statusResponse) {
-    getStatus("default", referenceId, statusRequest, statusResponse);
+    getStatus("default", referenceId, wait, statusRequest, statusResponse);
+  }
+
+  /**
+   * Get a status report on a job, without waiting. Returns the same json as {@link
+   * #getStatusPath(String, String, javax.servlet.http.HttpServletRequest,
+   * javax.servlet.http.HttpServletResponse)}.
+   *
+   * @param referenceId the job reference
+   * @param statusRequest the request object
+   * @param statusResponse the response object
+   */
+  public final void getStatusPath(
+      @Nonnull final String referenceId,
+      final HttpServletRequest statusRequest,
+      final HttpServletResponse statusResponse) {
+    getStatus("default", referenceId, "0", statusRequest, statusResponse);
   }
 
   /**
@@ -388,34 +417,173 @@ public class MapPrinterServlet extends BaseMapServlet {
       @Nonnull final String referenceId,
       final HttpServletRequest statusRequest,
       final HttpServletResponse statusResponse) {
+    getStatus(applicationId, referenceId, "0", statusRequest, statusResponse);
+  }
+
+  /**
+   * Get a status report on a job, after waiting for a change of the status (long polling). Returns
+   * the same json as {@link #getStatus(String, String, javax.servlet.http.HttpServletRequest,
+   * javax.servlet.http.HttpServletResponse)}.
+   *
+   * @param applicationId the application ID
+   * @param referenceId the job reference
+   * @param wait the maximum time to wait for a change of the status, in seconds
+   * @param statusRequest the request object
+   * @param statusResponse the response object
+   */
+  public final void getStatus(
+      @Nonnull final String applicationId,
+      @Nonnull final String referenceId,
+      final String wait,
+      final HttpServletRequest statusRequest,
+      final HttpServletResponse statusResponse) {
     MDC.put(Processor.MDC_APPLICATION_ID_KEY, applicationId);
     MDC.put(Processor.MDC_JOB_ID_KEY, referenceId);
     setNoCache(statusResponse);
+    final long waitTimeInMillis;
+    try {
+      waitTimeInMillis =
+          Math.min(
+              TimeUnit.SECONDS.toMillis(Long.parseLong(StringUtils.removeEnd(wait, "s"))),
+              TimeUnit.SECONDS.toMillis(this.maxStatusWaitTimeInSeconds));
+    } catch (NumberFormatException e) {
+      error(statusResponse, "Invalid wait time: " + wait, HttpStatus.BAD_REQUEST);
+      return;
+    }
     try {
       PrintJobStatus status = this.jobManager.getStatus(referenceId);
+      final long startWaitTime = System.currentTimeMillis();
+      long waitTime = 0;
+      while (!status.isDone() && waitTime < waitTimeInMillis) {
+        final PrintJobStatus.Status previousStatus = status.getStatus();
+        this.jobManager.waitForStatusChange(
+            referenceId, previousStatus, waitTimeInMillis - waitTime);
+        status = this.jobManager.getStatus(referenceId);
+        if (status.getStatus() != previousStatus) {
+          break;
+        }
+        waitTime = System.currentTimeMillis() - startWaitTime;
+      }
 
       setContentType(statusResponse);
       try (PrintWriter writer = statusResponse.getWriter()) {
-        JSONWriter json = new JSONWriter(writer);
-        json.object();
-        {
-          json.key(JSON_DONE).value(status.isDone());
-          json.key(JSON_STATUS).value(status.getStatus().toString().toLowerCase());
-          json.key(JSON_ELAPSED_TIME).value(status.getElapsedTime());
-          json.key(JSON_WAITING_TIME).value(status.getWaitingTime());
-          if (!StringUtils.isEmpty(status.getError())) {
-            json.key(JSON_ERROR).value(status.getError());
-          }
-
-          addDownloadLinkToJson(statusRequest, referenceId, json);
-        }
-        json.endObject();
+        writeStatus(new JSONWriter(writer), status, statusRequest, referenceId);
       }
     } catch (JSONException | IOException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw ExceptionUtils.getRuntimeException(e);
+    } catch (NoSuchReferenceException e) {
+      error(statusResponse, e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+  }
+
+  /**
+   * Stream the status of a job as server-sent events. An event is sent each time the status
+   * changes, until the job is done.
+   *
+   * @param appId the app ID
+   * @param referenceId the job reference
+   * @param statusRequest the request object
+   * @param statusResponse the response object
+   */
+  @RequestMapping(
+      value = "/{appId}" + STATUS_URL + "/{referenceId:\\S+}.events",
+      method = RequestMethod.GET)
+  public final SseEmitter getStatusEventsSpecificAppId(
+      @Nonnull @PathVariable final String appId,
+      @Nonnull @PathVariable final String referenceId,
+      final HttpServletRequest statusRequest,
+      final HttpServletResponse statusResponse) {
+    return getStatusEvents(appId, referenceId, statusRequest, statusResponse);
+  }
+
+  /**
+   * Stream the status of a job as server-sent events. An event is sent each time the status
+   * changes, until the job is done.
+   *
+   * @param referenceId the job reference
+   * @param statusRequest the request object
+   * @param statusResponse the response object
+   */
+  @RequestMapping(value = STATUS_URL + "/{referenceId:\\S+}.events", method = RequestMethod.GET)
+  public final SseEmitter getStatusEventsPath(
+      @Nonnull @PathVariable final String referenceId,
+      final HttpServletRequest statusRequest,
+      final HttpServletResponse statusResponse) {
+    return getStatusEvents("default", referenceId, statusRequest, statusResponse);
+  }
+
+  /**
+   * Stream the status of a job as server-sent events. Each event contains the same json as {@link
+   * #getStatus(String, String, javax.servlet.http.HttpServletRequest,
+   * javax.servlet.http.HttpServletResponse)}.
+   *
+   * <p>The events are sent asynchronously, without holding a request thread while waiting. The
+   * status is checked at least every 30 seconds, to keep the job from being considered as
+   * abandoned.
+   *
+   * @param applicationId the application ID
+   * @param referenceId the job reference
+   * @param statusRequest the request object
+   * @param statusResponse the response object
+   * @return the emitter of the events, null if the job doesn't exist
+   */
+  public final SseEmitter getStatusEvents(
+      @Nonnull final String applicationId,
+      @Nonnull final String referenceId,
+      final HttpServletRequest statusRequest,
+      final HttpServletResponse statusResponse) {
+    MDC.put(Processor.MDC_APPLICATION_ID_KEY, applicationId);
+    MDC.put(Processor.MDC_JOB_ID_KEY, referenceId);
+    setNoCache(statusResponse);
+    final PrintJobStatus status;
+    try {
+      status = this.jobManager.getStatus(referenceId);
     } catch (NoSuchReferenceException e) {
       error(statusResponse, e.getMessage(), HttpStatus.NOT_FOUND);
+      return null;
     }
+    final SseEmitter emitter =
+        new SseEmitter(TimeUnit.SECONDS.toMillis(this.maxCreateAndGetWaitTimeInSeconds));
+    final StatusEvents events =
+        new StatusEvents(
+            emitter, applicationId, referenceId, getDownloadLink(statusRequest, referenceId));
+    emitter.onTimeout(emitter::complete);
+    emitter.onCompletion(events::close);
+    emitter.onError(error -> events.close());
+    events.send(status);
+    return emitter;
+  }
+
+  private String getDownloadLink(final HttpServletRequest request, final String referenceId) {
+    return getBaseUrl(request) + REPORT_URL + "/" + referenceId;
+  }
+
+  private void writeStatus(
+      final JSONWriter json,
+      final PrintJobStatus status,
+      final HttpServletRequest statusRequest,
+      final String referenceId) {
+    writeStatus(json, status, getDownloadLink(statusRequest, referenceId));
+  }
+
+  private void writeStatus(
+      final JSONWriter json, final PrintJobStatus status, final String downloadLink) {
+    json.object();
+    {
+      json.key(JSON_DONE).value(status.isDone());
+      json.key(JSON_STATUS).value(status.getStatus().toString().toLowerCase());
+      json.key(JSON_ELAPSED_TIME).value(status.getElapsedTime());
+      json.key(JSON_WAITING_TIME).value(status.getWaitingTime());
+      if (!StringUtils.isEmpty(status.getError())) {
+        json.key(JSON_ERROR).value(status.getError());
+      }
+
+      json.key(JSON_DOWNLOAD_LINK).value(downloadLink);
+    }
+    json.endObject();
   }
 
   /**
@@ -740,9 +908,12 @@ public class MapPrinterServlet extends BaseMapServlet {
     long startWaitTime = System.currentTimeMillis();
     final long maxWaitTimeInMillis =
         TimeUnit.SECONDS.toMillis(this.maxCreateAndGetWaitTimeInSeconds);
-    while (!isDone && System.currentTimeMillis() - startWaitTime < maxWaitTimeInMillis) {
-      Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+    long waitTime = 0;
+    while (!isDone && waitTime < maxWaitTimeInMillis) {
+      this.jobManager.waitForCompletion(
+          ref, Math.min(TimeUnit.SECONDS.toMillis(1), maxWaitTimeInMillis - waitTime));
       isDone = loadReport(ref, createReportResponse, handler);
+      waitTime = System.currentTimeMillis() - startWaitTime;
     }
   }
 
@@ -1075,6 +1246,16 @@ public class MapPrinterServlet extends BaseMapServlet {
     this.maxCreateAndGetWaitTimeInSeconds = maxCreateAndGetWaitTimeInSeconds;
   }
 
+  /**
+   * Maximum time a status request can wait for a change of the status.
+   *
+   * @param maxStatusWaitTimeInSeconds the maximum time in seconds to wait for a change of the
+   *     status.
+   */
+  public final void setMaxStatusWaitTimeInSeconds(final long maxStatusWaitTimeInSeconds) {
+    this.maxStatusWaitTimeInSeconds = maxStatusWaitTimeInSeconds;
+  }
+
   /**
    * Copy the PDF into the output stream.
    *
@@ -1114,8 +1295,7 @@ public class MapPrinterServlet extends BaseMapServlet {
 
   private void addDownloadLinkToJson(
       final HttpServletRequest httpServletRequest, final String ref, final JSONWriter json) {
-    String downloadURL = getBaseUrl(httpServletRequest) + REPORT_URL + "/" + ref;
-    json.key(JSON_DOWNLOAD_LINK).value(downloadURL);
+    json.key(JSON_DOWNLOAD_LINK).value(getDownloadLink(httpServletRequest, ref));
   }
 
   /**
@@ -1262,4 +1442,78 @@ public class MapPrinterServlet extends BaseMapServlet {
   private void setContentType(final HttpServletResponse statusResponse) {
     statusResponse.setContentType("application/json; charset=utf-8");
   }
+
+  /** The stream of the status events of a job. */
+  private final class StatusEvents {
+    private final SseEmitter emitter;
+    private final String applicationId;
+    private final String referenceId;
+    private final String downloadLink;
+    private final Runnable update;
+    private volatile boolean closed = false;
+    private PrintJobStatus.Status lastStatus = null;
+
+    private StatusEvents(
+        final SseEmitter emitter,
+        final String applicationId,
+        final String referenceId,
+        final String downloadLink) {
+      this.emitter = emitter;
+      this.applicationId = applicationId;
+      this.referenceId = referenceId;
+      this.downloadLink = downloadLink;
+      // the access to the job is checked with the user of the request
+      this.update =
+          new DelegatingSecurityContextRunnable(this::update, SecurityContextHolder.getContext());
+    }
+
+    private void close() {
+      this.closed = true;
+    }
+
+    /** Send the status, then wait for its next change if the job is not done. */
+    private void send(final PrintJobStatus status) {
+      try {
+        if (status.getStatus() != this.lastStatus) {
+          final StringWriter data = new StringWriter();
+          writeStatus(new JSONWriter(data), status, this.downloadLink);
+          this.emitter.send(SseEmitter.event().name("status").data(data.toString()));
+          this.lastStatus = status.getStatus();
+        } else {
+          // a comment, to detect the closed connections
+          this.emitter.send(SseEmitter.event().comment(""));
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Failed to send the status of the job {}", this.referenceId, e);
+        return;
+      }
+      if (status.isDone()) {
+        this.emitter.complete();
+      } else {
+        MapPrinterServlet.this
+            .jobManager
+            .getStatusChange(this.referenceId, status.getStatus(), STATUS_EVENTS_REFRESH_INTERVAL)
+            .thenRunAsync(this.update);
+      }
+    }
+
+    private void update() {
+      if (this.closed) {
+        return;
+      }
+      MDC.put(Processor.MDC_APPLICATION_ID_KEY, this.applicationId);
+      MDC.put(Processor.MDC_JOB_ID_KEY, this.referenceId);
+      try {
+        send(MapPrinterServlet.this.jobManager.getStatus(this.referenceId));
+      } catch (NoSuchReferenceException e) {
+        LOGGER.debug("The job {} has been deleted", this.referenceId, e);
+        this.emitter.complete();
+      } catch (RuntimeException e) {
+        this.emitter.completeWithError(e);
+      } finally {
+        MDC.remove(Processor.MDC_APPLICATION_ID_KEY);
+        MDC.remove(Processor.MDC_JOB_ID_KEY);
+      }
+    }
+  }
 }
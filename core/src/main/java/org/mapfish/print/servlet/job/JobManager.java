@@ -1,5 +1,8 @@
 package org.mapfish.print.servlet.job;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /** Manages and Executes Print Jobs. */
 public interface JobManager {
 
@@ -25,4 +28,46 @@ public interface JobManager {
    * @throws NoSuchReferenceException
    */
   PrintJobStatus getStatus(String referenceId) throws NoSuchReferenceException;
+
+  /**
+   * Wait until the status of a job is different from the given one, or the timeout is elapsed. It
+   * may return earlier, the status has to be checked again.
+   *
+   * @param referenceId The referenceId of the job to wait for.
+   * @param status The last known status of the job.
+   * @param timeoutInMillis The maximum time to wait.
+   */
+  default void waitForStatusChange(
+      final String referenceId, final PrintJobStatus.Status status, final long timeoutInMillis)
+      throws InterruptedException {
+    Thread.sleep(Math.min(timeoutInMillis, TimeUnit.SECONDS.toMillis(1)));
+  }
+
+  /**
+   * Get a future completed when the status of a job may be different from the given one, or when
+   * the timeout is elapsed. Like {@link #waitForStatusChange(String, PrintJobStatus.Status, long)},
+   * without blocking the current thread.
+   *
+   * @param referenceId The referenceId of the job to wait for.
+   * @param status The last known status of the job.
+   * @param timeoutInMillis The maximum time to wait.
+   */
+  default CompletableFuture<Void> getStatusChange(
+      final String referenceId, final PrintJobStatus.Status status, final long timeoutInMillis) {
+    return CompletableFuture.runAsync(
+        () -> {},
+        CompletableFuture.delayedExecutor(
+            Math.min(timeoutInMillis, TimeUnit.SECONDS.toMillis(1)), TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Wait until a job is completed, or the timeout is elapsed.
+   *
+   * @param referenceId The referenceId of the job to wait for.
+   * @param timeoutInMillis The maximum time to wait.
+   */
+  default void waitForCompletion(final String referenceId, final long timeoutInMillis)
+      throws InterruptedException {
+    Thread.sleep(timeoutInMillis);
+  }
 }
@@ -152,6 +152,9 @@ public abstract class PrintJob implements Callable<PrintJobResult> {
                       outputStream));
 
       this.metricRegistry.counter(getClass().getName() + ".success").inc();
+      this.metricRegistry
+          .histogram(getClass().getName() + ".mapsCost")
+          .update(Math.round(report.executionContext.getStats().getMapsCost()));
       LOGGER.info("Successfully completed print job {}", this.entry.getReferenceId());
       LOGGER.debug("Job {}\n{}", this.entry.getReferenceId(), this.entry.getRequestData());
       final String fileName = getFileName(mapPrinter, spec);
@@ -0,0 +1,93 @@
+package org.mapfish.print.servlet.job.impl;
+
+import java.util.Map;
+import org.mapfish.print.Constants;
+import org.mapfish.print.MapPrinterFactory;
+import org.mapfish.print.attribute.Attribute;
+import org.mapfish.print.attribute.DataSourceAttribute;
+import org.mapfish.print.attribute.map.GenericMapAttribute;
+import org.mapfish.print.config.Template;
+import org.mapfish.print.processor.ExecutionStats;
+import org.mapfish.print.servlet.MapPrinterServlet;
+import org.mapfish.print.servlet.job.PrintJobEntry;
+import org.mapfish.print.wrapper.json.PJsonArray;
+import org.mapfish.print.wrapper.json.PJsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Estimates the cost of a print job from its spec, before it is executed.
+ *
+ * <p>The cost is the one recorded in the {@link ExecutionStats} of the executed jobs (see {@link
+ * ExecutionStats#getMapCost}): the size of the maps in pixels, at the requested DPI, times the
+ * number of layers. The maps in a data source are counted once per row (page).
+ */
+public class PrintJobCostEstimator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrintJobCostEstimator.class);
+
+  @Autowired private MapPrinterFactory mapPrinterFactory;
+
+  /**
+   * Estimate the cost of a print job, 0 if it cannot be estimated.
+   *
+   * @param entry the print job
+   */
+  public final double estimate(final PrintJobEntry entry) {
+    try {
+      final PJsonObject spec = entry.getRequestData();
+      final Template template =
+          this.mapPrinterFactory
+              .create(entry.getAppId())
+              .getConfiguration()
+              .getTemplate(spec.getString(Constants.JSON_LAYOUT_KEY));
+      return estimate(
+          template.getAttributes(), spec.getJSONObject(MapPrinterServlet.JSON_ATTRIBUTES));
+    } catch (Exception e) {
+      LOGGER.debug("Cannot estimate the cost of the job {}", entry.getReferenceId(), e);
+      return 0.0;
+    }
+  }
+
+  /**
+   * Estimate the cost of the maps in the values of some attributes.
+   *
+   * @param attributes the attributes of the template or of a data source
+   * @param values the values of the attributes
+   */
+  static double estimate(final Map<String, Attribute> attributes, final PJsonObject values) {
+    double cost = 0.0;
+    for (Map.Entry<String, Attribute> attribute : attributes.entrySet()) {
+      if (attribute.getValue() instanceof GenericMapAttribute) {
+        final PJsonObject map = values.optJSONObject(attribute.getKey());
+        if (map != null) {
+          cost += estimateMap((GenericMapAttribute) attribute.getValue(), map);
+        }
+      } else if (attribute.getValue() instanceof DataSourceAttribute) {
+        final Map<String, Attribute> rowAttributes =
+            ((DataSourceAttribute) attribute.getValue()).getAttributes();
+        final PJsonArray rows = values.optJSONArray(attribute.getKey());
+        if (rowAttributes != null && rows != null) {
+          for (int i = 0; i < rows.size(); i++) {
+            cost += estimate(rowAttributes, rows.getJSONObject(i));
+          }
+        }
+      }
+    }
+    return cost;
+  }
+
+  private static double estimateMap(final GenericMapAttribute attribute, final PJsonObject map) {
+    final Integer width = map.has("width") ? map.optInt("width") : attribute.getWidth();
+    final Integer height = map.has("height") ? map.optInt("height") : attribute.getHeight();
+    if (width == null || height == null) {
+      return 0.0;
+    }
+    Double dpi = map.optDouble("dpi");
+    if (dpi == null) {
+      dpi = attribute.getMaxDpi() != null ? attribute.getMaxDpi() : Constants.PDF_DPI;
+    }
+    final PJsonArray layers = map.optJSONArray("layers");
+    return ExecutionStats.getMapCost(dpi, width, height, layers != null ? layers.size() : 1);
+  }
+}
@@ -0,0 +1,245 @@
+package org.mapfish.print.servlet.job.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.mapfish.print.Constants;
+import org.mapfish.print.config.Configuration;
+import org.mapfish.print.config.Template;
+import org.mapfish.print.processor.Processor;
+import org.mapfish.print.processor.http.CompositeClientHttpRequestFactoryProcessor;
+import org.mapfish.print.processor.http.ForwardHeadersProcessor;
+import org.mapfish.print.servlet.MapPrinterServlet;
+import org.mapfish.print.servlet.job.PrintJobEntry;
+import org.mapfish.print.servlet.job.PrintJobResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * The results of the print jobs, by request, to answer the identical requests without printing them
+ * again.
+ *
+ * <p>The requests are identified by a hash of the spec, of the app and of the request headers
+ * forwarded by the template. A result is only reused with the same version of the configuration,
+ * while its report file exists and if the user has access to the job that printed it.
+ */
+final class PrintJobResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrintJobResultCache.class);
+
+  private final Cache<String, CachedResult> results;
+
+  /**
+   * Constructor.
+   *
+   * @param maximumSize the maximum number of results
+   * @param timeToLive the time a result is reused (in seconds)
+   */
+  PrintJobResultCache(final long maximumSize, final long timeToLive) {
+    this.results =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+            .build();
+  }
+
+  /**
+   * Create the key of a print job, null if its result cannot be reused.
+   *
+   * @param entry the print job
+   * @param configuration the configuration of the app of the print job
+   */
+  @Nullable
+  static Key createKey(final PrintJobEntry entry, final Configuration configuration) {
+    final JSONObject spec = entry.getRequestData().getInternalObj();
+    if (spec.has("smtp")) {
+      // the result is sent by email
+      return null;
+    }
+    final Template template;
+    try {
+      template = configuration.getTemplate(spec.getString(Constants.JSON_LAYOUT_KEY));
+    } catch (RuntimeException e) {
+      LOGGER.debug("Cannot get the template of the job {}", entry.getReferenceId(), e);
+      return null;
+    }
+    if (template == null) {
+      return null;
+    }
+    final Predicate<String> forwarded = name -> isForwarded(template.getProcessors(), name);
+    return new Key(hash(entry.getAppId(), spec, forwarded), configuration);
+  }
+
+  /**
+   * Hash a request: the spec with its keys sorted, and the request headers that are forwarded.
+   *
+   * @param appId the app
+   * @param spec the spec, with the request headers in its attributes
+   * @param forwarded tells if a request header is forwarded, from its lower-case name
+   */
+  static String hash(final String appId, final JSONObject spec, final Predicate<String> forwarded) {
+    final StringBuilder canonical = new StringBuilder(appId).append('\n');
+    JSONObject headers = null;
+    canonical.append('{');
+    for (String key : new TreeSet<>(spec.keySet())) {
+      final Object value = spec.get(key);
+      appendString(canonical, key).append(':');
+      if (key.equals(MapPrinterServlet.JSON_ATTRIBUTES) && value instanceof JSONObject) {
+        final JSONObject attributes = (JSONObject) value;
+        final JSONObject requestHeaders =
+            attributes.optJSONObject(MapPrinterServlet.JSON_REQUEST_HEADERS);
+        if (requestHeaders != null) {
+          headers = requestHeaders.optJSONObject(MapPrinterServlet.JSON_REQUEST_HEADERS);
+        }
+        appendObject(canonical, attributes, MapPrinterServlet.JSON_REQUEST_HEADERS);
+      } else {
+        appendValue(canonical, value);
+      }
+      canonical.append(',');
+    }
+    canonical.append("}\n");
+    if (headers != null) {
+      for (String name : new TreeSet<>(headers.keySet())) {
+        // the header names are case-insensitive
+        final String lowerCaseName = name.toLowerCase();
+        if (forwarded.test(lowerCaseName)) {
+          appendString(canonical, lowerCaseName).append(':');
+          appendValue(canonical, headers.get(name));
+          canonical.append('\n');
+        }
+      }
+    }
+    return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+  }
+
+  private static boolean isForwarded(
+      final List<? extends Processor> processors, final String name) {
+    for (Processor processor : processors) {
+      if (processor instanceof ForwardHeadersProcessor
+          && ((ForwardHeadersProcessor) processor).isForwarded(name)) {
+        return true;
+      }
+      if (processor instanceof CompositeClientHttpRequestFactoryProcessor
+          && isForwarded(
+              ((CompositeClientHttpRequestFactoryProcessor) processor).getHttpProcessors(), name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void appendValue(final StringBuilder canonical, final Object value) {
+    if (value instanceof JSONObject) {
+      appendObject(canonical, (JSONObject) value, null);
+    } else if (value instanceof JSONArray) {
+      final JSONArray array = (JSONArray) value;
+      canonical.append('[');
+      for (int i = 0; i < array.length(); i++) {
+        appendValue(canonical, array.get(i));
+        canonical.append(',');
+      }
+      canonical.append(']');
+    } else if (value instanceof String) {
+      appendString(canonical, (String) value);
+    } else {
+      canonical.append(value);
+    }
+  }
+
+  private static void appendObject(
+      final StringBuilder canonical, final JSONObject object, @Nullable final String skippedKey) {
+    canonical.append('{');
+    for (String key : new TreeSet<>(object.keySet())) {
+      if (!key.equals(skippedKey)) {
+        appendString(canonical, key).append(':');
+        appendValue(canonical, object.get(key));
+        canonical.append(',');
+      }
+    }
+    canonical.append('}');
+  }
+
+  private static StringBuilder appendString(final StringBuilder canonical, final String value) {
+    return canonical.append(JSONObject.quote(value));
+  }
+
+  /**
+   * Get the result of an identical print job, null if there is none to reuse.
+   *
+   * @param key the key of the new print job
+   */
+  @Nullable
+  PrintJobResult get(final Key key) {
+    final CachedResult cached = this.results.getIfPresent(key.hash);
+    if (cached == null) {
+      return null;
+    }
+    if (cached.configuration != key.configuration) {
+      // the configuration has been reloaded
+      this.results.invalidate(key.hash);
+      return null;
+    }
+    final URI reportURI = cached.result.getReportURI();
+    if ("file".equals(reportURI.getScheme())) {
+      final File reportFile = new File(reportURI);
+      // touched to not be deleted by the clean-up of the old files while it is used
+      if (!reportFile.exists() || !reportFile.setLastModified(System.currentTimeMillis())) {
+        this.results.invalidate(key.hash);
+        return null;
+      }
+    }
+    try {
+      cached.entry.assertAccess();
+    } catch (AccessDeniedException | AuthenticationException e) {
+      LOGGER.debug("No access to the result of the job {}", cached.entry.getReferenceId(), e);
+      return null;
+    }
+    return cached.result;
+  }
+
+  /**
+   * Store the result of a print job.
+   *
+   * @param key the key of the print job
+   * @param entry the print job
+   * @param result the result of the print job
+   */
+  void put(final Key key, final PrintJobEntry entry, final PrintJobResult result) {
+    this.results.put(key.hash, new CachedResult(key.configuration, entry, result));
+  }
+
+  /** The key of a print job in the cache. */
+  static final class Key {
+    private final String hash;
+    private final Configuration configuration;
+
+    Key(final String hash, final Configuration configuration) {
+      this.hash = hash;
+      this.configuration = configuration;
+    }
+  }
+
+  private static final class CachedResult {
+    private final Configuration configuration;
+    private final PrintJobEntry entry;
+    private final PrintJobResult result;
+
+    private CachedResult(
+        final Configuration configuration, final PrintJobEntry entry, final PrintJobResult result) {
+      this.configuration = configuration;
+      this.entry = entry;
+      this.result = result;
+    }
+  }
+}
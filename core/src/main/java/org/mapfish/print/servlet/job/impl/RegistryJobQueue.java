@@ -1,8 +1,10 @@
 package org.mapfish.print.servlet.job.impl;
 
+import com.google.common.util.concurrent.Striped;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.mapfish.print.ExceptionUtils;
@@ -51,6 +53,11 @@ public class RegistryJobQueue implements JobQueue {
   private static final String JSON_MIME_TYPE = "mimeType";
   private static final String JSON_FILE_EXT = "fileExtension";
 
+  private static final int LOCK_STRIPES = 64;
+
+  /** The locks of the jobs, the updates of a job are done under the lock of its reference. */
+  private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
   @Autowired private Registry registry;
 
   @Qualifier("accessAssertionPersister")
@@ -63,18 +70,24 @@ public class RegistryJobQueue implements JobQueue {
   }
 
   @Override
-  public final synchronized void add(final PrintJobEntry jobEntry) {
-    this.registry.incrementInt(NEW_PRINT_COUNT, 1);
+  public final void add(final PrintJobEntry jobEntry) {
+    final int requestCount = this.registry.incrementInt(NEW_PRINT_COUNT, 1);
+    final Lock lock = this.locks.get(jobEntry.getReferenceId());
+    lock.lock();
     try {
-      store(new PrintJobStatusImpl(jobEntry, getNumberOfRequestsMade()));
+      store(new PrintJobStatusImpl(jobEntry, requestCount));
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } finally {
+      lock.unlock();
     }
     this.registry.put(LAST_POLL + jobEntry.getReferenceId(), System.currentTimeMillis());
   }
 
   @Override
-  public final synchronized void start(final String referenceId) throws NoSuchReferenceException {
+  public final void start(final String referenceId) throws NoSuchReferenceException {
+    final Lock lock = this.locks.get(referenceId);
+    lock.lock();
     try {
       PrintJobStatusImpl jobStatus = load(referenceId);
       if (jobStatus.getStatus() == PrintJobStatus.Status.WAITING) {
@@ -84,12 +97,16 @@ public class RegistryJobQueue implements JobQueue {
       }
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public final synchronized void done(final String referenceId, final PrintJobResult result)
+  public final void done(final String referenceId, final PrintJobResult result)
       throws NoSuchReferenceException {
+    final Lock lock = this.locks.get(referenceId);
+    lock.lock();
     try {
       PrintJobStatusImpl status = load(referenceId);
       if (!status.isDone()) {
@@ -104,13 +121,16 @@ public class RegistryJobQueue implements JobQueue {
       store(status);
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public final synchronized void cancel(
-      final String referenceId, final String message, final boolean forceFinal)
+  public final void cancel(final String referenceId, final String message, final boolean forceFinal)
       throws NoSuchReferenceException {
+    final Lock lock = this.locks.get(referenceId);
+    lock.lock();
     try {
       PrintJobStatusImpl status = load(referenceId);
 
@@ -132,12 +152,16 @@ public class RegistryJobQueue implements JobQueue {
       store(status);
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
-  public final synchronized void fail(final String referenceId, final String message)
+  public final void fail(final String referenceId, final String message)
       throws NoSuchReferenceException {
+    final Lock lock = this.locks.get(referenceId);
+    lock.lock();
     try {
       PrintJobStatusImpl status = load(referenceId);
       if (!status.isDone()) {
@@ -154,6 +178,8 @@ public class RegistryJobQueue implements JobQueue {
       store(status);
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -1,6 +1,8 @@
 package org.mapfish.print.servlet.job.impl;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 import org.mapfish.print.servlet.job.PrintJobEntry;
 import org.mapfish.print.servlet.job.PrintJobResult;
 
@@ -9,6 +11,9 @@ public class SubmittedPrintJob {
 
   private final PrintJobEntry entry;
   private final Future<PrintJobResult> reportFuture;
+  private final CompletableFuture<Void> start = new CompletableFuture<>();
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  private volatile PrintJobResultCache.Key resultCacheKey = null;
 
   /**
    * Constructor.
@@ -26,7 +31,27 @@ public class SubmittedPrintJob {
     return this.reportFuture;
   }
 
+  /** Get the future completed when the job starts running. */
+  public final CompletableFuture<Void> getStart() {
+    return this.start;
+  }
+
+  /** Get the future completed once the job is marked as completed in the job queue. */
+  public final CompletableFuture<Void> getCompletion() {
+    return this.completion;
+  }
+
   public final PrintJobEntry getEntry() {
     return this.entry;
   }
+
+  /** Get the key of the job in the cache of the results, null if its result is not cached. */
+  @Nullable
+  final PrintJobResultCache.Key getResultCacheKey() {
+    return this.resultCacheKey;
+  }
+
+  final void setResultCacheKey(@Nullable final PrintJobResultCache.Key resultCacheKey) {
+    this.resultCacheKey = resultCacheKey;
+  }
 }
@@ -4,26 +4,32 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import org.mapfish.print.ExceptionUtils;
+import org.mapfish.print.MapPrinterFactory;
 import org.mapfish.print.config.WorkingDirectories;
+import org.mapfish.print.servlet.NoSuchAppException;
 import org.mapfish.print.servlet.job.JobManager;
 import org.mapfish.print.servlet.job.JobQueue;
 import org.mapfish.print.servlet.job.NoSuchReferenceException;
@@ -49,6 +55,9 @@ public class ThreadPoolJobManager implements JobManager {
   private static final long DEFAULT_ABANDONED_TIMEOUT_IN_SECONDS = 120L;
   private static final boolean DEFAULT_OLD_FILES_CLEAN_UP = true;
   private static final long DEFAULT_CLEAN_UP_INTERVAL_IN_SECONDS = 86400;
+  private static final long DEFAULT_RESULT_CACHE_TIME_TO_LIVE_IN_SECONDS = 3600;
+  private static final String SMALL_LANE = "small";
+  private static final String LARGE_LANE = "large";
 
   /**
    * A collection of jobs that are currently being processed or that are awaiting to be processed.
@@ -56,6 +65,15 @@ public class ThreadPoolJobManager implements JobManager {
   private final Map<String, SubmittedPrintJob> runningTasksFutures =
       Collections.synchronizedMap(new HashMap<>());
 
+  /**
+   * The waiters for a status change of the jobs that are not executed by this instance, by
+   * reference id. The {@link RegistryTask} reads the status of each job once for all its waiters.
+   */
+  private final Map<String, List<StatusWaiter>> statusWaiters = new HashMap<>();
+
+  /** The last time the last check time of the jobs was updated by this instance (in ms). */
+  private final Map<String, Long> lastCheckTimeUpdates = new ConcurrentHashMap<>();
+
   /**
    * The maximum number of threads that will be used for print jobs, this is not the number of
    * threads used by the system because there can be more used by the {@link
@@ -104,9 +122,36 @@ public class ThreadPoolJobManager implements JobManager {
   private Comparator<PrintJob> jobPriorityComparator =
       Comparator.comparingLong(o -> o.getEntry().getStartTime());
 
+  /**
+   * The estimated cost (see {@link PrintJobCostEstimator}) from which a job is executed in the lane
+   * of the large jobs. 0 to execute all the jobs in the same lane.
+   */
+  private double largePrintJobCost = 0.0;
+
+  /** The maximum number of large print jobs running at the same time. */
+  private int maxNumberOfRunningLargePrintJobs = 1;
+
+  /**
+   * The maximum total estimated cost of the large print jobs running at the same time, 0 for no
+   * limit. A large job is always admitted if no other large job is running.
+   */
+  private double largePrintJobsCostBudget = 0.0;
+
+  /**
+   * The maximum number of results kept to answer the identical print requests, 0 to always print
+   * the requests. Not used in a cluster, the results are kept by each instance.
+   */
+  private long resultCacheSize = 0;
+
+  /** The time during which the result of a print job is reused (in seconds). */
+  private long resultCacheTimeToLive = DEFAULT_RESULT_CACHE_TIME_TO_LIVE_IN_SECONDS;
+
   private ThreadPoolExecutor executor;
+  private ThreadPoolExecutor largeExecutor;
+  private CostBudget largeJobsBudget;
   private ScheduledExecutorService timer;
   private ScheduledExecutorService cleanUpTimer;
+  private PrintJobResultCache resultCache;
 
   @Autowired private WorkingDirectories workingDirectories;
 
@@ -116,8 +161,15 @@ public class ThreadPoolJobManager implements JobManager {
 
   @Autowired private MetricRegistry metricRegistry;
 
+  @Autowired private PrintJobCostEstimator costEstimator;
+
+  @Autowired private MapPrinterFactory mapPrinterFactory;
+
   private boolean requestedToStop = false;
 
+  /** Set when a job is completed, to poll the queue for new jobs. */
+  private final AtomicBoolean jobsCompleted = new AtomicBoolean(false);
+
   public final void setMaxNumberOfRunningPrintJobs(final int maxNumberOfRunningPrintJobs) {
     this.maxNumberOfRunningPrintJobs = maxNumberOfRunningPrintJobs;
   }
@@ -150,6 +202,27 @@ public class ThreadPoolJobManager implements JobManager {
     this.clustered = clustered;
   }
 
+  public final void setLargePrintJobCost(final double largePrintJobCost) {
+    this.largePrintJobCost = largePrintJobCost;
+  }
+
+  public final void setMaxNumberOfRunningLargePrintJobs(
+      final int maxNumberOfRunningLargePrintJobs) {
+    this.maxNumberOfRunningLargePrintJobs = maxNumberOfRunningLargePrintJobs;
+  }
+
+  public final void setLargePrintJobsCostBudget(final double largePrintJobsCostBudget) {
+    this.largePrintJobsCostBudget = largePrintJobsCostBudget;
+  }
+
+  public final void setResultCacheSize(final long resultCacheSize) {
+    this.resultCacheSize = resultCacheSize;
+  }
+
+  public final void setResultCacheTimeToLive(final long resultCacheTimeToLive) {
+    this.resultCacheTimeToLive = resultCacheTimeToLive;
+  }
+
   /**
    * Initialize for testing.
    *
@@ -159,6 +232,7 @@ public class ThreadPoolJobManager implements JobManager {
     this.context = appContext;
     this.workingDirectories = this.context.getBean(WorkingDirectories.class);
     this.jobQueue = this.context.getBean(JobQueue.class);
+    this.costEstimator = this.context.getBean(PrintJobCostEstimator.class);
     init();
   }
 
@@ -184,69 +258,30 @@ public class ThreadPoolJobManager implements JobManager {
         throw new IllegalStateException(msg);
       }
     }
-    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
-    threadFactory.setDaemon(true);
-    threadFactory.setThreadNamePrefix("PrintJobManager-");
-
-    PriorityBlockingQueue<Runnable> queue =
-        new PriorityBlockingQueue<>(
-            this.maxNumberOfWaitingJobs,
-            (o1, o2) -> {
-              if (o1 instanceof JobFutureTask<?> && o2 instanceof JobFutureTask<?>) {
-                Callable<?> callable1 = ((JobFutureTask<?>) o1).getCallable();
-                Callable<?> callable2 = ((JobFutureTask<?>) o2).getCallable();
-
-                if (callable1 instanceof PrintJob) {
-                  if (callable2 instanceof PrintJob) {
-                    return ThreadPoolJobManager.this.jobPriorityComparator.compare(
-                        (PrintJob) callable1, (PrintJob) callable2);
-                  }
-                  return 1;
-                } else if (callable2 instanceof PrintJob) {
-                  return -1;
-                }
-              }
-              return 0;
-            });
-    /* The ThreadPoolExecutor uses a unbounded queue (though we are enforcing a limit in `submit()`).
-     * Because of that, the executor creates only `corePoolSize` threads. But to use all threads,
-     * we set both `corePoolSize` and `maximumPoolSize` to `maxNumberOfRunningPrintJobs`. As a
-     * consequence, the `maxIdleTime` will be ignored, idle threads will not be terminated.
-     */
     this.executor =
-        new ThreadPoolExecutor(
-            this.maxNumberOfRunningPrintJobs,
-            this.maxNumberOfRunningPrintJobs,
-            this.maxIdleTime,
-            TimeUnit.SECONDS,
-            queue,
-            threadFactory) {
-          @Override
-          protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
-            return new JobFutureTask<>(callable);
-          }
+        createExecutor("PrintJobManager-", SMALL_LANE, this.maxNumberOfRunningPrintJobs, null);
+    if (this.largePrintJobCost > 0) {
+      this.largeJobsBudget =
+          new CostBudget(
+              this.largePrintJobsCostBudget > 0
+                  ? this.largePrintJobsCostBudget
+                  : Double.POSITIVE_INFINITY);
+      this.largeExecutor =
+          createExecutor(
+              "PrintJobManager-large-",
+              LARGE_LANE,
+              this.maxNumberOfRunningLargePrintJobs,
+              this.largeJobsBudget);
+    }
 
-          @Override
-          protected void beforeExecute(final Thread t, final Runnable runnable) {
-            if (!ThreadPoolJobManager.this.clustered && runnable instanceof JobFutureTask<?>) {
-              JobFutureTask<?> task = (JobFutureTask<?>) runnable;
-              if (task.getCallable() instanceof PrintJob) {
-                PrintJob printJob = (PrintJob) task.getCallable();
-                try {
-                  ThreadPoolJobManager.this.jobQueue.start(printJob.getEntry().getReferenceId());
-                } catch (RuntimeException e) {
-                  LOGGER.error("failed to mark job as running", e);
-                } catch (NoSuchReferenceException e) {
-                  LOGGER.error(
-                      "tried to mark non-existing job as 'running': {}",
-                      printJob.getEntry().getReferenceId(),
-                      e);
-                }
-              }
-            }
-            super.beforeExecute(t, runnable);
-          }
-        };
+    if (this.resultCacheSize > 0) {
+      if (this.clustered) {
+        LOGGER.warn("The results of the print jobs are not cached in a cluster");
+      } else {
+        this.resultCache =
+            new PrintJobResultCache(this.resultCacheSize, this.resultCacheTimeToLive);
+      }
+    }
 
     this.timer =
         Executors.newScheduledThreadPool(
@@ -279,20 +314,141 @@ public class ThreadPoolJobManager implements JobManager {
     }
   }
 
+  private ThreadPoolExecutor createExecutor(
+      final String threadNamePrefix,
+      final String lane,
+      final int numberOfThreads,
+      final CostBudget budget) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+    threadFactory.setDaemon(true);
+    threadFactory.setThreadNamePrefix(threadNamePrefix);
+
+    PriorityBlockingQueue<Runnable> queue =
+        new PriorityBlockingQueue<>(
+            this.maxNumberOfWaitingJobs,
+            (o1, o2) -> {
+              if (o1 instanceof JobFutureTask<?> && o2 instanceof JobFutureTask<?>) {
+                Callable<?> callable1 = ((JobFutureTask<?>) o1).getCallable();
+                Callable<?> callable2 = ((JobFutureTask<?>) o2).getCallable();
+
+                if (callable1 instanceof PrintJob) {
+                  if (callable2 instanceof PrintJob) {
+                    return ThreadPoolJobManager.this.jobPriorityComparator.compare(
+                        (PrintJob) callable1, (PrintJob) callable2);
+                  }
+                  return 1;
+                } else if (callable2 instanceof PrintJob) {
+                  return -1;
+                }
+              }
+              return 0;
+            });
+    /* The ThreadPoolExecutor uses a unbounded queue (though we are enforcing a limit in `submit()`).
+     * Because of that, the executor creates only `corePoolSize` threads. But to use all threads,
+     * we set both `corePoolSize` and `maximumPoolSize` to `numberOfThreads`. As a
+     * consequence, the `maxIdleTime` will be ignored, idle threads will not be terminated.
+     */
+    return new ThreadPoolExecutor(
+        numberOfThreads,
+        numberOfThreads,
+        this.maxIdleTime,
+        TimeUnit.SECONDS,
+        queue,
+        threadFactory) {
+      @Override
+      protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+        return new JobFutureTask<>(callable, 0.0);
+      }
+
+      @Override
+      protected void beforeExecute(final Thread t, final Runnable runnable) {
+        if (runnable instanceof JobFutureTask<?>) {
+          JobFutureTask<?> task = (JobFutureTask<?>) runnable;
+          if (budget != null && !task.isCancelled()) {
+            try {
+              budget.acquire(task.getCost());
+              task.setAdmitted();
+            } catch (InterruptedException e) {
+              // the executor is shut down, don't run the job
+              Thread.currentThread().interrupt();
+              task.cancel(false);
+            }
+          }
+          if (task.getCallable() instanceof PrintJob) {
+            PrintJob printJob = (PrintJob) task.getCallable();
+            ThreadPoolJobManager.this
+                .metricRegistry
+                .timer(ThreadPoolJobManager.class.getName() + ".queue." + lane)
+                .update(printJob.getEntry().getTimeSinceStart(), TimeUnit.MILLISECONDS);
+            if (!ThreadPoolJobManager.this.clustered) {
+              try {
+                ThreadPoolJobManager.this.jobQueue.start(printJob.getEntry().getReferenceId());
+                task.started();
+              } catch (RuntimeException e) {
+                LOGGER.error("failed to mark job as running", e);
+              } catch (NoSuchReferenceException e) {
+                LOGGER.error(
+                    "tried to mark non-existing job as 'running': {}",
+                    printJob.getEntry().getReferenceId(),
+                    e);
+              }
+            }
+          }
+        }
+        super.beforeExecute(t, runnable);
+      }
+
+      @Override
+      protected void afterExecute(final Runnable runnable, final Throwable throwable) {
+        super.afterExecute(runnable, throwable);
+        if (runnable instanceof JobFutureTask<?> && ((JobFutureTask<?>) runnable).isAdmitted()) {
+          budget.release(((JobFutureTask<?>) runnable).getCost());
+        }
+      }
+    };
+  }
+
   /** Called by spring when application context is being destroyed. */
   @PreDestroy
   public final void shutdown() {
     this.timer.shutdownNow();
     this.executor.shutdownNow();
+    if (this.largeExecutor != null) {
+      this.largeExecutor.shutdownNow();
+    }
     if (this.cleanUpTimer != null) {
       this.cleanUpTimer.shutdownNow();
     }
   }
 
   private void executeJob(final PrintJob job) {
-    final Future<PrintJobResult> future = this.executor.submit(job);
-    this.runningTasksFutures.put(
-        job.getEntry().getReferenceId(), new SubmittedPrintJob(future, job.getEntry()));
+    executeJob(job, null);
+  }
+
+  private void executeJob(final PrintJob job, final PrintJobResultCache.Key resultCacheKey) {
+    ThreadPoolExecutor laneExecutor = this.executor;
+    double cost = 0.0;
+    if (this.largeExecutor != null) {
+      cost = this.costEstimator.estimate(job.getEntry());
+      if (cost >= this.largePrintJobCost) {
+        laneExecutor = this.largeExecutor;
+      }
+      LOGGER.debug(
+          "Print job {} has an estimated cost of {}", job.getEntry().getReferenceId(), cost);
+    }
+    final JobFutureTask<PrintJobResult> future = new JobFutureTask<>(job, cost);
+    final SubmittedPrintJob submittedJob = new SubmittedPrintJob(future, job.getEntry());
+    submittedJob.setResultCacheKey(resultCacheKey);
+    future.setOnStart(() -> submittedJob.getStart().complete(null));
+    future.setOnDone(() -> onJobDone(submittedJob));
+    // registered before the execution, to be found when the job completes
+    this.runningTasksFutures.put(job.getEntry().getReferenceId(), submittedJob);
+    try {
+      laneExecutor.execute(future);
+    } catch (RuntimeException e) {
+      this.runningTasksFutures.remove(job.getEntry().getReferenceId(), submittedJob);
+      throw e;
+    }
   }
 
   /**
@@ -338,25 +494,73 @@ public class ThreadPoolJobManager implements JobManager {
 
   @Override
   public final void submit(final PrintJobEntry entry) {
+    PrintJobResultCache.Key resultCacheKey = null;
+    boolean completed = false;
     try {
       submitInternal(entry);
+      resultCacheKey = getResultCacheKey(entry);
+      completed = resultCacheKey != null && completeFromCache(entry, resultCacheKey);
     } finally {
-      if (!this.clustered) {
-        executeJob(createJob(entry));
+      if (!this.clustered && !completed) {
+        executeJob(createJob(entry), resultCacheKey);
       }
     }
   }
 
+  private PrintJobResultCache.Key getResultCacheKey(final PrintJobEntry entry) {
+    if (this.resultCache == null) {
+      return null;
+    }
+    try {
+      return PrintJobResultCache.createKey(
+          entry, this.mapPrinterFactory.create(entry.getAppId()).getConfiguration());
+    } catch (NoSuchAppException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Complete the job with the result of an identical job, if there is one in the cache.
+   *
+   * @return true if the job is completed.
+   */
+  private boolean completeFromCache(
+      final PrintJobEntry entry, final PrintJobResultCache.Key resultCacheKey) {
+    final PrintJobResult result = this.resultCache.get(resultCacheKey);
+    if (result == null) {
+      this.metricRegistry.counter(getClass().getName() + ".resultCache.miss").inc();
+      return false;
+    }
+    try {
+      this.jobQueue.start(entry.getReferenceId());
+      this.jobQueue.done(
+          entry.getReferenceId(),
+          new PrintJobResultImpl(
+              result.getReportURI(),
+              result.getFileName(),
+              result.getFileExtension(),
+              result.getMimeType(),
+              entry.getReferenceId()));
+    } catch (NoSuchReferenceException e) {
+      throw ExceptionUtils.getRuntimeException(e);
+    }
+    this.metricRegistry.counter(getClass().getName() + ".resultCache.hit").inc();
+    LOGGER.info(
+        "Print job {} completed with the result of an identical job", entry.getReferenceId());
+    return true;
+  }
+
   private void cancelJobIfRunning(final String referenceId) throws NoSuchReferenceException {
     synchronized (this.runningTasksFutures) {
       if (this.runningTasksFutures.containsKey(referenceId)) {
         // the job is not yet finished (or has not even started), cancel
         final SubmittedPrintJob printJob = this.runningTasksFutures.get(referenceId);
         printJob.getEntry().assertAccess();
+        // removed before canceling, the job is completed here and not by onJobDone
+        this.runningTasksFutures.remove(referenceId);
         if (!printJob.getReportFuture().cancel(true)) {
           LOGGER.info("Could not cancel job {}", referenceId);
         }
-        this.runningTasksFutures.remove(referenceId);
         // now from canceling to canceled state
         this.jobQueue.cancel(referenceId, "task canceled", true);
       }
@@ -374,8 +578,12 @@ public class ThreadPoolJobManager implements JobManager {
   @Override
   public final PrintJobStatus getStatus(final String referenceId) throws NoSuchReferenceException {
     // check if the reference id is valid
-    final PrintJobStatus jobStatus = this.jobQueue.get(referenceId, true);
+    final PrintJobStatus jobStatus =
+        this.jobQueue.get(referenceId, isLastCheckTimeToUpdate(referenceId));
     jobStatus.getEntry().assertAccess();
+    if (jobStatus.isDone()) {
+      this.lastCheckTimeUpdates.remove(referenceId);
+    }
 
     if (jobStatus.getStatus() == PrintJobStatus.Status.WAITING) {
       // calculate an estimate for how long the job still has to wait
@@ -392,6 +600,24 @@ public class ThreadPoolJobManager implements JobManager {
     return jobStatus;
   }
 
+  /**
+   * The last check time is used to find the abandoned jobs, it's updated at most once per half of
+   * the abandoned timeout, to not write it on each status request.
+   *
+   * @param referenceId the job reference
+   * @return true if the last check time has to be updated
+   */
+  private boolean isLastCheckTimeToUpdate(final String referenceId) {
+    final long now = System.currentTimeMillis();
+    final Long lastUpdate = this.lastCheckTimeUpdates.get(referenceId);
+    if (lastUpdate != null
+        && now - lastUpdate < TimeUnit.SECONDS.toMillis(this.abandonedTimeout) / 2) {
+      return false;
+    }
+    this.lastCheckTimeUpdates.put(referenceId, now);
+    return true;
+  }
+
   private void cancelOld() {
     // cancel old tasks
     this.jobQueue.cancelOld(
@@ -418,11 +644,161 @@ public class ThreadPoolJobManager implements JobManager {
     }
   }
 
-  private boolean updateRegistry() {
-    boolean updated = false;
-    final Iterator<SubmittedPrintJob> submittedJobs = this.runningTasksFutures.values().iterator();
-    while (submittedJobs.hasNext()) {
-      final SubmittedPrintJob printJob = submittedJobs.next();
+  @Override
+  public final void waitForCompletion(final String referenceId, final long timeoutInMillis)
+      throws InterruptedException {
+    final SubmittedPrintJob printJob = this.runningTasksFutures.get(referenceId);
+    if (printJob != null) {
+      try {
+        printJob.getCompletion().get(timeoutInMillis, TimeUnit.MILLISECONDS);
+      } catch (ExecutionException | TimeoutException e) {
+        // not completed yet
+      }
+    } else {
+      try {
+        // already completed, or not started yet, or executed by another instance
+        final long end = System.currentTimeMillis() + timeoutInMillis;
+        PrintJobStatus status = this.jobQueue.get(referenceId, false);
+        while (!status.isDone() && System.currentTimeMillis() < end) {
+          getStatusChange(referenceId, status.getStatus(), end - System.currentTimeMillis()).get();
+          status = this.jobQueue.get(referenceId, false);
+        }
+      } catch (NoSuchReferenceException | ExecutionException e) {
+        // nothing to wait for
+      }
+    }
+  }
+
+  @Override
+  public final void waitForStatusChange(
+      final String referenceId, final PrintJobStatus.Status status, final long timeoutInMillis)
+      throws InterruptedException {
+    try {
+      getStatusChange(referenceId, status, timeoutInMillis).get();
+    } catch (ExecutionException e) {
+      // not changed
+    }
+  }
+
+  @Override
+  public final CompletableFuture<Void> getStatusChange(
+      final String referenceId, final PrintJobStatus.Status status, final long timeoutInMillis) {
+    final SubmittedPrintJob printJob = this.runningTasksFutures.get(referenceId);
+    final CompletableFuture<?> change;
+    if (printJob != null && !this.clustered && status == PrintJobStatus.Status.WAITING) {
+      change = CompletableFuture.anyOf(printJob.getStart(), printJob.getCompletion());
+    } else if (printJob != null && status != PrintJobStatus.Status.WAITING) {
+      // in a cluster, the job is started through the registry
+      change = printJob.getCompletion();
+    } else {
+      // the job is not started yet, or may be executed by another instance
+      final StatusWaiter waiter = new StatusWaiter(status);
+      synchronized (this.statusWaiters) {
+        this.statusWaiters.computeIfAbsent(referenceId, key -> new ArrayList<>()).add(waiter);
+      }
+      waiter.getFuture().whenComplete((result, error) -> removeStatusWaiter(referenceId, waiter));
+      return waiter.getFuture().completeOnTimeout(null, timeoutInMillis, TimeUnit.MILLISECONDS);
+    }
+    // a new future, to not complete the ones of the job on timeout
+    return change
+        .handle((result, error) -> (Void) null)
+        .completeOnTimeout(null, timeoutInMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void removeStatusWaiter(final String referenceId, final StatusWaiter waiter) {
+    synchronized (this.statusWaiters) {
+      final List<StatusWaiter> waiters = this.statusWaiters.get(referenceId);
+      if (waiters != null) {
+        waiters.remove(waiter);
+        if (waiters.isEmpty()) {
+          this.statusWaiters.remove(referenceId);
+        }
+      }
+    }
+  }
+
+  /** Wake up the waiters of the jobs whose status has changed, with one read per job. */
+  private void checkStatusChanges() {
+    final Map<String, List<StatusWaiter>> waiters = new HashMap<>();
+    synchronized (this.statusWaiters) {
+      for (Map.Entry<String, List<StatusWaiter>> entry : this.statusWaiters.entrySet()) {
+        waiters.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+    }
+    for (Map.Entry<String, List<StatusWaiter>> entry : waiters.entrySet()) {
+      PrintJobStatus.Status status;
+      try {
+        status = this.jobQueue.get(entry.getKey(), false).getStatus();
+      } catch (NoSuchReferenceException e) {
+        // deleted, wake up all the waiters
+        status = null;
+      }
+      for (StatusWaiter waiter : entry.getValue()) {
+        if (waiter.getStatus() != status) {
+          waiter.getFuture().complete(null);
+        }
+      }
+    }
+  }
+
+  /**
+   * Mark the job as completed in the job queue, called as soon as it is finished, failed or
+   * canceled.
+   */
+  private void onJobDone(final SubmittedPrintJob printJob) {
+    try {
+      if (this.runningTasksFutures.remove(printJob.getEntry().getReferenceId(), printJob)) {
+        completeJob(printJob);
+        this.jobsCompleted.set(true);
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Error while updating the job {}", printJob.getEntry().getReferenceId(), e);
+    } finally {
+      printJob.getCompletion().complete(null);
+    }
+  }
+
+  private void completeJob(final SubmittedPrintJob printJob) {
+    try {
+      try {
+        // set the completion date to the moment the job was
+        // marked as completed
+        // in the registry.
+        final PrintJobResult result = printJob.getReportFuture().get();
+        if (result != null) {
+          this.jobQueue.done(printJob.getEntry().getReferenceId(), result);
+          if (printJob.getResultCacheKey() != null) {
+            this.resultCache.put(printJob.getResultCacheKey(), printJob.getEntry(), result);
+          }
+        } else {
+          // The report was sent to the user => don't need to keep it
+          this.jobQueue.delete(printJob.getEntry().getReferenceId());
+        }
+      } catch (InterruptedException e) {
+        // if this happens, the thread was interrupted.
+        // restore the interrupted
+        // status to not lose the information.
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // failure occurred
+        this.jobQueue.fail(
+            printJob.getEntry().getReferenceId(), ExceptionUtils.getRootCause(e).toString());
+
+      } catch (CancellationException e) {
+        // cancellation occurred, set cancellation status
+        this.jobQueue.cancel(printJob.getEntry().getReferenceId(), "task canceled (timeout)", true);
+      }
+      notifyIfStopped();
+    } catch (NoSuchReferenceException e) { // shouldn't really happen
+      throw ExceptionUtils.getRuntimeException(e);
+    }
+  }
+
+  private void cancelTimedOutJobs() {
+    // copied because the canceled jobs are removed by onJobDone
+    final List<SubmittedPrintJob> submittedJobs =
+        new ArrayList<>(this.runningTasksFutures.values());
+    for (SubmittedPrintJob printJob : submittedJobs) {
       if (!printJob.getReportFuture().isDone()
           && (isTimeoutExceeded(printJob) || isAbandoned(printJob))) {
         LOGGER.info("Canceling job after timeout {}", printJob.getEntry().getReferenceId());
@@ -433,45 +809,11 @@ public class ThreadPoolJobManager implements JobManager {
         // remove all canceled tasks from the work queue (otherwise the queue comparator
         // might stumble on non-PrintJob entries)
         this.executor.purge();
-      }
-
-      if (printJob.getReportFuture().isDone()) {
-        updated = true;
-        submittedJobs.remove();
-        try {
-          try {
-            // set the completion date to the moment the job was
-            // marked as completed
-            // in the registry.
-            final PrintJobResult result = printJob.getReportFuture().get();
-            if (result != null) {
-              this.jobQueue.done(printJob.getEntry().getReferenceId(), result);
-            } else {
-              // The report was sent to the user => don't need to keep it
-              this.jobQueue.delete(printJob.getEntry().getReferenceId());
-            }
-          } catch (InterruptedException e) {
-            // if this happens, the timer task was interrupted.
-            // restore the interrupted
-            // status to not lose the information.
-            Thread.currentThread().interrupt();
-          } catch (ExecutionException e) {
-            // failure occurred
-            this.jobQueue.fail(
-                printJob.getEntry().getReferenceId(), ExceptionUtils.getRootCause(e).toString());
-
-          } catch (CancellationException e) {
-            // cancellation occurred, set cancellation status
-            this.jobQueue.cancel(
-                printJob.getEntry().getReferenceId(), "task canceled (timeout)", true);
-          }
-          notifyIfStopped();
-        } catch (NoSuchReferenceException e) { // shouldn't really happen
-          throw ExceptionUtils.getRuntimeException(e);
+        if (this.largeExecutor != null) {
+          this.largeExecutor.purge();
         }
       }
     }
-    return updated;
   }
 
   private boolean isTimeoutExceeded(final SubmittedPrintJob printJob) {
@@ -538,24 +880,111 @@ public class ThreadPoolJobManager implements JobManager {
     }
   }
 
-  /** A custom FutureTask implementation which allows to retrieve the wrapped Callable. */
+  /**
+   * A custom FutureTask implementation which allows to retrieve the wrapped Callable and its
+   * estimated cost.
+   */
   private static final class JobFutureTask<V> extends FutureTask<V> {
 
     private final Callable<V> callable;
+    private final double cost;
+    private volatile boolean admitted = false;
+    private volatile Runnable onStart;
+    private volatile Runnable onDone;
 
-    JobFutureTask(final Callable<V> callable) {
+    JobFutureTask(final Callable<V> callable, final double cost) {
       super(callable);
       this.callable = callable;
+      this.cost = cost;
     }
 
     public Callable<V> getCallable() {
       return this.callable;
     }
+
+    public double getCost() {
+      return this.cost;
+    }
+
+    public boolean isAdmitted() {
+      return this.admitted;
+    }
+
+    public void setAdmitted() {
+      this.admitted = true;
+    }
+
+    public void setOnStart(final Runnable onStart) {
+      this.onStart = onStart;
+    }
+
+    public void started() {
+      if (this.onStart != null) {
+        this.onStart.run();
+      }
+    }
+
+    public void setOnDone(final Runnable onDone) {
+      this.onDone = onDone;
+    }
+
+    @Override
+    protected void done() {
+      if (this.onDone != null) {
+        this.onDone.run();
+      }
+    }
+  }
+
+  /** A request waiting for the status of a job to be different from the one it knows. */
+  private static final class StatusWaiter {
+    private final PrintJobStatus.Status status;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    StatusWaiter(final PrintJobStatus.Status status) {
+      this.status = status;
+    }
+
+    public PrintJobStatus.Status getStatus() {
+      return this.status;
+    }
+
+    public CompletableFuture<Void> getFuture() {
+      return this.future;
+    }
+  }
+
+  /**
+   * The total cost of the running jobs of a lane. A job waits until its cost fits in the budget, or
+   * until no other job is running.
+   */
+  private static final class CostBudget {
+    private final double limit;
+    private double used = 0.0;
+    private int running = 0;
+
+    CostBudget(final double limit) {
+      this.limit = limit;
+    }
+
+    synchronized void acquire(final double cost) throws InterruptedException {
+      while (this.running > 0 && this.used + cost > this.limit) {
+        wait();
+      }
+      this.used += cost;
+      this.running++;
+    }
+
+    synchronized void release(final double cost) {
+      this.used -= cost;
+      this.running--;
+      notifyAll();
+    }
   }
 
   /**
-   * This timer task changes the status of finished jobs in the registry. Also it stops jobs that
-   * have been running for too long (timeout).
+   * This timer task stops jobs that have been running for too long (timeout) and checks the status
+   * of the jobs that are waited for. In a cluster, it also polls the registry for new jobs.
    */
   @VisibleForTesting
   class RegistryTask implements Runnable {
@@ -597,7 +1026,8 @@ public class ThreadPoolJobManager implements JobManager {
       // run in try-catch to ensure that the timer task is not stopped
       try {
         synchronized (ThreadPoolJobManager.this.runningTasksFutures) {
-          boolean updated = updateRegistry();
+          cancelTimedOutJobs();
+          boolean updated = ThreadPoolJobManager.this.jobsCompleted.getAndSet(false);
           if (ThreadPoolJobManager.this.clustered) {
             if (this.counter % this.cancelOldModulo == 0) {
               cancelOld();
@@ -607,6 +1037,19 @@ public class ThreadPoolJobManager implements JobManager {
             }
           }
         }
+        if (this.counter % this.pollModulo == 0) {
+          checkStatusChanges();
+        }
+        if (this.counter % this.cancelOldModulo == 0) {
+          // the next status request of these jobs updates the last check time anyway
+          final long threshold =
+              System.currentTimeMillis()
+                  - TimeUnit.SECONDS.toMillis(ThreadPoolJobManager.this.abandonedTimeout);
+          ThreadPoolJobManager.this
+              .lastCheckTimeUpdates
+              .values()
+              .removeIf(lastUpdate -> lastUpdate < threshold);
+        }
       } catch (javax.persistence.PessimisticLockException e) {
         // Ignore error on pessimistic locking
       } catch (Throwable t) {
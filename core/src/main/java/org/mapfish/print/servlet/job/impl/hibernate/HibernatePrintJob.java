@@ -1,30 +1,45 @@
 package org.mapfish.print.servlet.job.impl.hibernate;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import org.apache.commons.io.FileUtils;
+import org.mapfish.print.ExceptionUtils;
 import org.mapfish.print.servlet.job.PrintJob;
 import org.mapfish.print.servlet.job.PrintJobResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /** A PrintJob implementation that write results to the database. */
 public class HibernatePrintJob extends PrintJob {
+  @Autowired private PrintJobDao dao;
+
+  @Autowired private PlatformTransactionManager txManager;
+
   @Override
   protected final PrintJobResult createResult(
       final String fileName, final String fileExtension, final String mimeType)
       throws URISyntaxException, IOException {
-    final byte[] data;
+    final String referenceId = getEntry().getReferenceId();
     final File reportFile = getReportFile();
     if (reportFile.exists()) {
-      data = FileUtils.readFileToByteArray(reportFile);
+      // the report is streamed to the database, in chunks
+      final TransactionTemplate tmpl = new TransactionTemplate(this.txManager);
+      tmpl.executeWithoutResult(
+          status -> {
+            try (InputStream data = new FileInputStream(reportFile)) {
+              this.dao.saveResultData(referenceId, data);
+            } catch (IOException e) {
+              throw ExceptionUtils.getRuntimeException(e);
+            }
+          });
       deleteReport();
-    } else {
-      data = null; // the report was sent.
     }
 
-    final String referenceId = getEntry().getReferenceId();
     return new PrintJobResultExtImpl(
-        new URI("hibernate:" + referenceId), fileName, fileExtension, mimeType, data, referenceId);
+        new URI("hibernate:" + referenceId), fileName, fileExtension, mimeType, null, referenceId);
   }
 }
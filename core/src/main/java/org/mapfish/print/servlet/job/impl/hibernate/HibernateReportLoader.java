@@ -20,6 +20,12 @@ public class HibernateReportLoader implements ReportLoader {
   @Override
   @Transactional
   public final void loadReport(final URI reportURI, final OutputStream out) throws IOException {
-    out.write(this.dao.getResult(reportURI).getData());
+    final byte[] data = this.dao.getResult(reportURI).getData();
+    if (data != null) {
+      // report stored in the result itself
+      out.write(data);
+    } else {
+      this.dao.writeResultData(reportURI.getSchemeSpecificPart(), out);
+    }
   }
 }
@@ -1,5 +1,8 @@
 package org.mapfish.print.servlet.job.impl.hibernate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
@@ -12,6 +15,8 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import org.apache.commons.io.IOUtils;
 import org.hibernate.LockMode;
 import org.hibernate.PessimisticLockException;
 import org.hibernate.Session;
@@ -205,7 +210,9 @@ public class PrintJobDao {
         builder.and(
             builder.isNotNull(root.get("lastCheckTime")),
             builder.lessThan(root.get("lastCheckTime"), checkTimeThreshold)));
-    return getSession().createQuery(delete).executeUpdate();
+    final int nbDeleted = getSession().createQuery(delete).executeUpdate();
+    deleteOrphanChunks();
+    return nbDeleted;
   }
 
   /**
@@ -250,6 +257,51 @@ public class PrintJobDao {
     return getSession().createQuery(criteria).uniqueResult();
   }
 
+  /**
+   * Save the data of a result report, in chunks.
+   *
+   * @param referenceId the reference ID
+   * @param data the report data
+   * @return the number of saved chunks
+   */
+  public final int saveResultData(final String referenceId, final InputStream data)
+      throws IOException {
+    int chunkIndex = 0;
+    final byte[] buffer = new byte[PrintJobResultChunk.SIZE];
+    int length;
+    while ((length = IOUtils.read(data, buffer)) > 0) {
+      final PrintJobResultChunk chunk =
+          new PrintJobResultChunk(referenceId, chunkIndex++, Arrays.copyOf(buffer, length));
+      getSession().save(chunk);
+      getSession().flush();
+      getSession().evict(chunk);
+    }
+    return chunkIndex;
+  }
+
+  /**
+   * Write the data of a result report saved in chunks.
+   *
+   * @param referenceId the reference ID
+   * @param out the stream to write the report to
+   * @return false if no data has been saved for this report
+   */
+  public final boolean writeResultData(final String referenceId, final OutputStream out)
+      throws IOException {
+    int chunkIndex = 0;
+    PrintJobResultChunk chunk;
+    while ((chunk =
+            getSession()
+                .get(PrintJobResultChunk.class, PrintJobResultChunk.getId(referenceId, chunkIndex)))
+        != null) {
+      out.write(chunk.getData());
+      // only keep one chunk in memory
+      getSession().evict(chunk);
+      chunkIndex++;
+    }
+    return chunkIndex > 0;
+  }
+
   /**
    * Delete a record.
    *
@@ -262,5 +314,23 @@ public class PrintJobDao {
     final Root<PrintJobStatusExtImpl> root = delete.from(PrintJobStatusExtImpl.class);
     delete.where(builder.equal(root.get("referenceId"), referenceId));
     getSession().createQuery(delete).executeUpdate();
+
+    final CriteriaDelete<PrintJobResultChunk> deleteChunks =
+        builder.createCriteriaDelete(PrintJobResultChunk.class);
+    final Root<PrintJobResultChunk> chunkRoot = deleteChunks.from(PrintJobResultChunk.class);
+    deleteChunks.where(builder.equal(chunkRoot.get("referenceId"), referenceId));
+    getSession().createQuery(deleteChunks).executeUpdate();
+  }
+
+  private void deleteOrphanChunks() {
+    final CriteriaBuilder builder = getSession().getCriteriaBuilder();
+    final CriteriaDelete<PrintJobResultChunk> delete =
+        builder.createCriteriaDelete(PrintJobResultChunk.class);
+    final Root<PrintJobResultChunk> root = delete.from(PrintJobResultChunk.class);
+    final Subquery<String> jobs = delete.subquery(String.class);
+    final Root<PrintJobStatusExtImpl> jobRoot = jobs.from(PrintJobStatusExtImpl.class);
+    jobs.select(jobRoot.get("referenceId"));
+    delete.where(builder.not(root.get("referenceId").in(jobs)));
+    getSession().createQuery(delete).executeUpdate();
   }
 }
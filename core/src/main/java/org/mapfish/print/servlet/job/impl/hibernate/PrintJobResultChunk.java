@@ -0,0 +1,73 @@
+package org.mapfish.print.servlet.job.impl.hibernate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import org.hibernate.annotations.Type;
+
+/**
+ * A part of the data of a print job result. The reports are stored in chunks so that they can be
+ * written and read without holding the full report in memory.
+ */
+@Entity
+@Table(
+    name = "print_job_result_chunks",
+    indexes = {@Index(columnList = "referenceId")})
+public class PrintJobResultChunk {
+  /** The maximum size of the data of a chunk. */
+  public static final int SIZE = 1024 * 1024;
+
+  @Id
+  @Type(type = "org.hibernate.type.TextType")
+  private final String id;
+
+  @Column
+  @Type(type = "org.hibernate.type.TextType")
+  private final String referenceId;
+
+  @Column private final int chunkIndex;
+
+  @Column private final byte[] data;
+
+  /** Default Constructor. */
+  public PrintJobResultChunk() {
+    this.id = null;
+    this.referenceId = null;
+    this.chunkIndex = 0;
+    this.data = null;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param referenceId the reference ID of the print job
+   * @param chunkIndex the index of the chunk in the report
+   * @param data the data
+   */
+  public PrintJobResultChunk(final String referenceId, final int chunkIndex, final byte[] data) {
+    this.id = getId(referenceId, chunkIndex);
+    this.referenceId = referenceId;
+    this.chunkIndex = chunkIndex;
+    this.data = data;
+  }
+
+  /**
+   * Get the ID of a chunk.
+   *
+   * @param referenceId the reference ID of the print job
+   * @param chunkIndex the index of the chunk in the report
+   */
+  public static String getId(final String referenceId, final int chunkIndex) {
+    return referenceId + "#" + chunkIndex;
+  }
+
+  public int getChunkIndex() {
+    return this.chunkIndex;
+  }
+
+  public byte[] getData() {
+    return this.data;
+  }
+}
@@ -5,7 +5,12 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import org.mapfish.print.servlet.job.impl.PrintJobResultImpl;
 
-/** Extension of Print Job Result that holds data as BLOB. */
+/**
+ * Extension of Print Job Result that holds data as BLOB.
+ *
+ * <p>The new reports are stored in {@link PrintJobResultChunk}s, the data is only set for the
+ * reports stored by the older versions.
+ */
 @Entity
 public class PrintJobResultExtImpl extends PrintJobResultImpl {
 
@@ -4,6 +4,8 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.net.URI;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -11,22 +13,37 @@ import org.mapfish.print.ExceptionUtils;
 
 /**
  * A simple implementation of {@link org.mapfish.print.servlet.registry.Registry} based on a {@link
- * java.util.HashMap}.
+ * com.google.common.cache.Cache}.
+ *
+ * <p>The registry is not locked: the cache is split in segments, and the counters are kept in
+ * atomic values updated without lock.
  */
 public class BasicRegistry implements Registry {
   private static final int TIME_TO_KEEP_AFTER_ACCESS = 30;
+  private static final int CONCURRENCY_LEVEL = 16;
   private Cache<String, Object> registry;
   private int timeToKeepAfterAccessInMinutes = TIME_TO_KEEP_AFTER_ACCESS;
+  private int concurrencyLevel = CONCURRENCY_LEVEL;
 
   public final void setTimeToKeepAfterAccessInMinutes(final int timeToKeepAfterAccessInMinutes) {
     this.timeToKeepAfterAccessInMinutes = timeToKeepAfterAccessInMinutes;
   }
 
+  /**
+   * The number of segments of the registry, the number of threads that can update it at the same
+   * time.
+   *
+   * @param concurrencyLevel the number of segments
+   */
+  public final void setConcurrencyLevel(final int concurrencyLevel) {
+    this.concurrencyLevel = concurrencyLevel;
+  }
+
   @PostConstruct
   private void init() {
     this.registry =
         CacheBuilder.newBuilder()
-            .concurrencyLevel(1)
+            .concurrencyLevel(this.concurrencyLevel)
             .expireAfterAccess(this.timeToKeepAfterAccessInMinutes, TimeUnit.MINUTES)
             .build();
   }
@@ -42,58 +59,80 @@ public class BasicRegistry implements Registry {
   }
 
   @Override
-  public final synchronized boolean containsKey(final String key) {
+  public final boolean containsKey(final String key) {
     return this.registry.getIfPresent(key) != null;
   }
 
   @Override
-  public final synchronized void put(final String key, final URI value) {
+  public final void put(final String key, final URI value) {
     this.registry.put(key, value);
   }
 
   @Override
-  public final synchronized long incrementLong(final String key, final long amount) {
-    long newValue = opt(key, 0L) + amount;
-    put(key, newValue);
-    return newValue;
+  public final long incrementLong(final String key, final long amount) {
+    Object counter = this.registry.getIfPresent(key);
+    if (!(counter instanceof AtomicLong)) {
+      // create the counter, or replace the number put in the registry, atomically
+      counter =
+          this.registry
+              .asMap()
+              .compute(
+                  key,
+                  (k, value) ->
+                      value instanceof AtomicLong
+                          ? value
+                          : new AtomicLong(value == null ? 0L : ((Number) value).longValue()));
+    }
+    return ((AtomicLong) counter).addAndGet(amount);
   }
 
   @Override
-  public final synchronized int incrementInt(final String key, final int amount) {
-    int newValue = opt(key, 0) + amount;
-    put(key, newValue);
-    return newValue;
+  public final int incrementInt(final String key, final int amount) {
+    Object counter = this.registry.getIfPresent(key);
+    if (!(counter instanceof AtomicInteger)) {
+      // create the counter, or replace the number put in the registry, atomically
+      counter =
+          this.registry
+              .asMap()
+              .compute(
+                  key,
+                  (k, value) ->
+                      value instanceof AtomicInteger
+                          ? value
+                          : new AtomicInteger(value == null ? 0 : ((Number) value).intValue()));
+    }
+    return ((AtomicInteger) counter).addAndGet(amount);
   }
 
   @Override
-  public final synchronized URI getURI(final String key) {
+  public final URI getURI(final String key) {
     return (URI) this.registry.getIfPresent(key);
   }
 
   @Override
-  public final synchronized void put(final String key, final String value) {
+  public final void put(final String key, final String value) {
     this.registry.put(key, value);
   }
 
   @Override
-  public final synchronized String getString(final String key) {
+  public final String getString(final String key) {
     return (String) this.registry.getIfPresent(key);
   }
 
   @Override
-  public final synchronized void put(final String key, final Number value) {
+  public final void put(final String key, final Number value) {
     this.registry.put(key, value);
   }
 
   @Override
-  public final synchronized Number getNumber(final String key) {
-    return (Number) this.registry.getIfPresent(key);
+  public final Number getNumber(final String key) {
+    return (Number) get(key);
   }
 
   @Override
-  public final synchronized <T> T opt(final String key, final T defaultValue) {
+  public final <T> T opt(final String key, final T defaultValue) {
     @SuppressWarnings("unchecked")
-    T value = (T) this.registry.getIfPresent(key);
+    T value = (T) get(key);
     if (value == null) {
       return defaultValue;
     }
@@ -101,21 +140,29 @@ public class BasicRegistry implements Registry {
   }
 
   @Override
-  public final synchronized void put(final String key, final JSONObject value) {
+  public final void put(final String key, final JSONObject value) {
     // convert to string.  We don't want mutable values in the registry
     this.registry.put(key, value.toString());
   }
 
   @Override
-  public final synchronized JSONObject getJSON(final String key) {
-    String source;
-    synchronized (this) {
-      source = (String) this.registry.getIfPresent(key);
-    }
+  public final JSONObject getJSON(final String key) {
+    String source = (String) this.registry.getIfPresent(key);
     try {
       return new JSONObject(source);
     } catch (JSONException e) {
       throw ExceptionUtils.getRuntimeException(e);
     }
   }
+
+  /** Get a value, with the current value of the counters. */
+  private Object get(final String key) {
+    final Object value = this.registry.getIfPresent(key);
+    if (value instanceof AtomicInteger) {
+      return ((AtomicInteger) value).get();
+    } else if (value instanceof AtomicLong) {
+      return ((AtomicLong) value).get();
+    }
+    return value;
+  }
 }
@@ -0,0 +1,49 @@
+package org.mapfish.print;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageUtilsTest {
+  private static final int WIDTH = 200;
+  private static final int HEIGHT = 100;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testPngCompressionLevel() throws Exception {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(Color.RED);
+      graphics.fillRect(10, 10, 100, 50);
+      graphics.setColor(Color.BLUE);
+      graphics.drawLine(0, 0, WIDTH, HEIGHT);
+    } finally {
+      graphics.dispose();
+    }
+
+    final File stored = this.folder.newFile("stored.png");
+    ImageUtils.writeImage(image, "png", stored, 0);
+    final File compressed = this.folder.newFile("compressed.png");
+    ImageUtils.writeImage(image, "png", compressed, 9);
+
+    assertTrue(stored.length() > compressed.length());
+    assertPixelsEquals(image, ImageIO.read(stored));
+    assertPixelsEquals(image, ImageIO.read(compressed));
+  }
+
+  private static void assertPixelsEquals(final BufferedImage expected, final BufferedImage actual) {
+    assertArrayEquals(
+        expected.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH),
+        actual.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+  }
+}
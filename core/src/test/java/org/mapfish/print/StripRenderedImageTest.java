@@ -0,0 +1,69 @@
+package org.mapfish.print;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+public class StripRenderedImageTest {
+  private static final int WIDTH = 50;
+  private static final int HEIGHT = 100;
+
+  @Test
+  public void testWriteStripByStrip() throws Exception {
+    final List<Integer> renderedStrips = new ArrayList<>();
+    final StripRenderedImage image =
+        new StripRenderedImage(
+            WIDTH,
+            HEIGHT,
+            30,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            (strip, y) -> {
+              renderedStrips.add(y);
+              final Graphics2D graphics = strip.createGraphics();
+              try {
+                graphics.translate(0, -y);
+                draw(graphics);
+              } finally {
+                graphics.dispose();
+              }
+            });
+    assertEquals(4, image.getNumYTiles());
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageUtils.writeImage(image, "PNG", output);
+
+    // every strip is rendered once, in order
+    assertEquals(List.of(0, 30, 60, 90), renderedStrips);
+
+    final BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR);
+    final Graphics2D graphics = expected.createGraphics();
+    try {
+      draw(graphics);
+    } finally {
+      graphics.dispose();
+    }
+    final BufferedImage actual = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+    assertEquals(WIDTH, actual.getWidth());
+    assertEquals(HEIGHT, actual.getHeight());
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+
+  private static void draw(final Graphics2D graphics) {
+    graphics.setColor(Color.RED);
+    graphics.fillRect(10, 20, 30, 50);
+    graphics.setColor(Color.BLUE);
+    graphics.fillRect(0, 55, WIDTH, 10);
+  }
+}
@@ -51,7 +51,8 @@ public class WorkingDirectoriesTest extends AbstractMapfishSpringTest {
     assertTrue(taskDir2.exists());
 
     int maxAgeInSeconds = 1000;
-    this.workingDirectories.new CleanUpTask(maxAgeInSeconds, maxAgeInSeconds).run();
+    this.workingDirectories.new CleanUpTask(maxAgeInSeconds, maxAgeInSeconds, maxAgeInSeconds)
+        .run();
 
     assertFalse(f1.exists());
     assertFalse(f2.exists());
@@ -59,4 +60,44 @@ public class WorkingDirectoriesTest extends AbstractMapfishSpringTest {
     assertFalse(taskDir1.exists());
     assertTrue(taskDir2.exists());
   }
+
+  @Test
+  public void testCleanUpGeneratedReports() throws IOException {
+    final Configuration configuration = new Configuration();
+    configuration.setConfigurationFile(new File("app", "config.yaml"));
+    final File generatedDir = this.workingDirectories.getGeneratedJasperCompilation(configuration);
+    assertTrue(this.workingDirectories.isJasperCompilation(new File(generatedDir, "table.jasper")));
+
+    long oldDate = new Date().getTime() - TimeUnit.DAYS.toMillis(1);
+
+    // old report, should be deleted
+    final File unused = new File(generatedDir, "unused.jasper");
+    unused.createNewFile();
+    unused.setLastModified(oldDate);
+    // old report used again, should be kept
+    final File used = new File(generatedDir, "used.jasper");
+    used.createNewFile();
+    used.setLastModified(oldDate);
+    // new report, should be kept
+    final File recent = new File(generatedDir, "recent.jasper");
+    recent.createNewFile();
+    // compiled template, should be kept
+    final File template =
+        new File(this.workingDirectories.getJasperCompilation(configuration), "template.jasper");
+    template.createNewFile();
+    template.setLastModified(oldDate);
+
+    assertTrue(this.workingDirectories.touchGeneratedReport(used));
+    assertFalse(
+        this.workingDirectories.touchGeneratedReport(new File(generatedDir, "missing.jasper")));
+
+    int maxAgeInSeconds = 1000;
+    this.workingDirectories.new CleanUpTask(maxAgeInSeconds, maxAgeInSeconds, maxAgeInSeconds)
+        .run();
+
+    assertFalse(unused.exists());
+    assertTrue(used.exists());
+    assertTrue(recent.exists());
+    assertTrue(template.exists());
+  }
 }
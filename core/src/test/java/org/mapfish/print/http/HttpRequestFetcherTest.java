@@ -0,0 +1,218 @@
+package org.mapfish.print.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapfish.print.config.Configuration;
+import org.mapfish.print.processor.AbstractProcessor;
+import org.mapfish.print.processor.http.matcher.HostnameMatcher;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class HttpRequestFetcherTest {
+  private static final URI URI_1 = URI.create("http://example.com/wms?REQUEST=GetMap");
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private ForkJoinPool pool;
+  private File temporaryDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    this.pool = new ForkJoinPool(4);
+    this.temporaryDirectory = Files.createTempDirectory("httpRequestFetcherTest").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+    FileUtils.deleteQuietly(this.temporaryDirectory);
+  }
+
+  @Test
+  public void testCoalesceIdenticalRequests() throws Exception {
+    final byte[] image = new byte[] {1, 2, 3};
+    final AtomicInteger executions = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final ClientHttpRequest first =
+        createFetcher()
+            .register(
+                new MockClientHttpRequest(HttpMethod.GET, URI_1) {
+                  @Override
+                  protected ClientHttpResponse executeInternal() throws IOException {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    try {
+                      release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                      throw new IOException(e);
+                    }
+                    return new MockClientHttpResponse(image, HttpStatus.OK);
+                  }
+                });
+    started.await(10, TimeUnit.SECONDS);
+
+    final ClientHttpRequest second =
+        createFetcher()
+            .register(
+                new MockClientHttpRequest(HttpMethod.GET, URI_1) {
+                  @Override
+                  protected ClientHttpResponse executeInternal() {
+                    executions.incrementAndGet();
+                    return new MockClientHttpResponse(image, HttpStatus.OK);
+                  }
+                });
+    final String coalescedMetric = HttpRequestFetcher.class.getName() + ".coalesced";
+    while (this.registry.counter(coalescedMetric).getCount() == 0) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+
+    try (ClientHttpResponse response = first.execute()) {
+      assertArrayEquals(image, IOUtils.toByteArray(response.getBody()));
+    }
+    try (ClientHttpResponse response = second.execute()) {
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertArrayEquals(image, IOUtils.toByteArray(response.getBody()));
+    }
+    assertEquals(1, executions.get());
+    assertEquals(1, this.registry.counter(coalescedMetric).getCount());
+  }
+
+  @Test
+  public void testDontShareRequestsWithCredentials() throws Exception {
+    final byte[] image = new byte[] {1, 2, 3};
+    final AtomicInteger executions = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final Configuration configuration = createConfigurationWithCredentials();
+
+    final ClientHttpRequest first =
+        createFetcher(new Configuration())
+            .register(
+                new MockClientHttpRequest(HttpMethod.GET, URI_1) {
+                  @Override
+                  protected ClientHttpResponse executeInternal() throws IOException {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    try {
+                      release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                      throw new IOException(e);
+                    }
+                    return new MockClientHttpResponse(image, HttpStatus.OK);
+                  }
+                });
+    started.await(10, TimeUnit.SECONDS);
+
+    // fetched with the credentials, not with the response of the other configuration
+    final ClientHttpRequest second =
+        createFetcher(configuration)
+            .register(
+                new MockClientHttpRequest(HttpMethod.GET, URI_1) {
+                  @Override
+                  protected ClientHttpResponse executeInternal() {
+                    executions.incrementAndGet();
+                    release.countDown();
+                    return new MockClientHttpResponse(new byte[] {4}, HttpStatus.OK);
+                  }
+                });
+
+    try (ClientHttpResponse response = second.execute()) {
+      assertArrayEquals(new byte[] {4}, IOUtils.toByteArray(response.getBody()));
+    }
+    try (ClientHttpResponse response = first.execute()) {
+      assertArrayEquals(image, IOUtils.toByteArray(response.getBody()));
+    }
+    assertEquals(2, executions.get());
+    assertEquals(
+        0, this.registry.counter(HttpRequestFetcher.class.getName() + ".coalesced").getCount());
+  }
+
+  @Test
+  public void testDontCacheTilesWithCredentials() throws Exception {
+    final TileCache tileCache = new TileCache();
+    ReflectionTestUtils.setField(tileCache, "metricRegistry", this.registry);
+    tileCache.setMaxMemorySize(1);
+    tileCache.init();
+
+    createFetcher(createConfigurationWithCredentials(), tileCache)
+        .registerTile(createTileRequest())
+        .execute()
+        .close();
+    assertNull(tileCache.getFresh(createTileRequest()));
+
+    createFetcher(new Configuration(), tileCache)
+        .registerTile(createTileRequest())
+        .execute()
+        .close();
+    assertNotNull(tileCache.getFresh(createTileRequest()));
+  }
+
+  private static MockClientHttpRequest createTileRequest() {
+    final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI_1);
+    final MockClientHttpResponse response =
+        new MockClientHttpResponse(new byte[] {1, 2, 3}, HttpStatus.OK);
+    response.getHeaders().setCacheControl("max-age=60");
+    request.setResponse(response);
+    return request;
+  }
+
+  private static Configuration createConfigurationWithCredentials() {
+    final HostnameMatcher matcher = new HostnameMatcher();
+    matcher.setHost(URI_1.getHost());
+    final HttpCredential credential = new HttpCredential();
+    credential.setUsername("username");
+    credential.setPassword("password");
+    credential.setMatchers(Collections.singletonList(matcher));
+    final Configuration configuration = new Configuration();
+    configuration.setCredentials(Collections.singletonList(credential));
+    return configuration;
+  }
+
+  private HttpRequestFetcher createFetcher() {
+    return createFetcher(null, null);
+  }
+
+  private HttpRequestFetcher createFetcher(final Configuration configuration) {
+    return createFetcher(configuration, null);
+  }
+
+  private HttpRequestFetcher createFetcher(
+      final Configuration configuration, final TileCache tileCache) {
+    return new HttpRequestFetcher(
+        this.temporaryDirectory,
+        this.registry,
+        new AbstractProcessor.Context(new HashMap<>()),
+        this.pool,
+        1,
+        0,
+        tileCache,
+        configuration);
+  }
+}
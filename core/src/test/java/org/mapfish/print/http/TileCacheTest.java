@@ -0,0 +1,167 @@
+package org.mapfish.print.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapfish.print.config.WorkingDirectories;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TileCacheTest {
+  private static final String METRIC_PREFIX = TileCache.class.getName() + ".";
+  private static final URI TILE_URI = URI.create("http://example.com/tiles/1/2/3.png");
+
+  private MetricRegistry registry;
+  private TileCache cache;
+
+  @Before
+  public void setUp() {
+    this.registry = new MetricRegistry();
+    this.cache = new TileCache();
+    ReflectionTestUtils.setField(this.cache, "metricRegistry", this.registry);
+    this.cache.setMaxMemorySize(1);
+    this.cache.init();
+  }
+
+  @Test
+  public void testGetTimeToLive() {
+    final long now = System.currentTimeMillis();
+    assertEquals(42L, TileCache.getTimeToLive(new HttpHeaders(), now, 42L));
+
+    final HttpHeaders maxAge = new HttpHeaders();
+    maxAge.setCacheControl("public, max-age=60");
+    assertEquals(60000L, TileCache.getTimeToLive(maxAge, now, 42L));
+    maxAge.set("Age", "10");
+    assertEquals(50000L, TileCache.getTimeToLive(maxAge, now, 42L));
+
+    final HttpHeaders sharedMaxAge = new HttpHeaders();
+    sharedMaxAge.setCacheControl("max-age=60, s-maxage=120");
+    assertEquals(120000L, TileCache.getTimeToLive(sharedMaxAge, now, 42L));
+
+    final HttpHeaders noStore = new HttpHeaders();
+    noStore.setCacheControl("no-store");
+    assertEquals(-1L, TileCache.getTimeToLive(noStore, now, 42L));
+
+    final HttpHeaders noCache = new HttpHeaders();
+    noCache.setCacheControl("no-cache");
+    assertEquals(0L, TileCache.getTimeToLive(noCache, now, 42L));
+
+    final HttpHeaders expires = new HttpHeaders();
+    expires.setDate(now);
+    expires.setExpires(now + 30000L);
+    assertEquals(30000L, TileCache.getTimeToLive(expires, now, 42L), 1000L);
+  }
+
+  @Test
+  public void testHitAfterDownload() throws Exception {
+    final byte[] tile = new byte[] {1, 2, 3};
+    assertNull(this.cache.getFresh(createRequest(tile, "max-age=60")));
+
+    final ClientHttpRequest request = this.cache.wrap(createRequest(tile, "max-age=60"));
+    try (ClientHttpResponse response = request.execute()) {
+      assertArrayEquals(tile, IOUtils.toByteArray(response.getBody()));
+    }
+
+    final ClientHttpResponse cached = this.cache.getFresh(createRequest(null, null));
+    assertNotNull(cached);
+    assertEquals(HttpStatus.OK, cached.getStatusCode());
+    assertArrayEquals(tile, IOUtils.toByteArray(cached.getBody()));
+    assertEquals(1, this.registry.counter(METRIC_PREFIX + "hit").getCount());
+    assertEquals(1, this.registry.counter(METRIC_PREFIX + "miss").getCount());
+  }
+
+  @Test
+  public void testNoStore() throws Exception {
+    final ClientHttpRequest request = this.cache.wrap(createRequest(new byte[] {1}, "no-store"));
+    request.execute().close();
+
+    assertNull(this.cache.getFresh(createRequest(null, null)));
+  }
+
+  @Test
+  public void testRevalidate() throws Exception {
+    final byte[] tile = new byte[] {1, 2, 3};
+    final MockClientHttpRequest first = new MockClientHttpRequest(HttpMethod.GET, TILE_URI);
+    final MockClientHttpResponse firstResponse = new MockClientHttpResponse(tile, HttpStatus.OK);
+    firstResponse.getHeaders().setCacheControl("no-cache");
+    firstResponse.getHeaders().setETag("\"v1\"");
+    first.setResponse(firstResponse);
+    this.cache.wrap(first).execute().close();
+    assertNull(this.cache.getFresh(createRequest(null, null)));
+
+    final MockClientHttpRequest second = new MockClientHttpRequest(HttpMethod.GET, TILE_URI);
+    second.setResponse(new MockClientHttpResponse(new byte[0], HttpStatus.NOT_MODIFIED));
+    try (ClientHttpResponse response = this.cache.wrap(second).execute()) {
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertArrayEquals(tile, IOUtils.toByteArray(response.getBody()));
+    }
+    assertEquals("\"v1\"", second.getHeaders().getIfNoneMatch().get(0));
+    assertEquals(1, this.registry.counter(METRIC_PREFIX + "revalidated").getCount());
+  }
+
+  @Test
+  public void testDiskTier() throws Exception {
+    final TileCache diskCache = new TileCache();
+    final WorkingDirectories workingDirectories = new WorkingDirectories();
+    final File working = Files.createTempDirectory("tileCacheTest").toFile();
+    ReflectionTestUtils.setField(workingDirectories, "working", working);
+    ReflectionTestUtils.setField(diskCache, "metricRegistry", this.registry);
+    ReflectionTestUtils.setField(diskCache, "workingDirectories", workingDirectories);
+    diskCache.setMaxMemorySize(1);
+    diskCache.setMaxDiskSize(10);
+    diskCache.init();
+    try {
+      final byte[] tile = new byte[100 * 1024];
+      for (int i = 0; i < 20; i++) {
+        tile[0] = (byte) i;
+        diskCache.wrap(createRequest(getTileUri(i), tile, "max-age=60")).execute().close();
+      }
+      assertNotEquals(0, new File(working, "tileCache").list().length);
+      for (int i = 0; i < 20; i++) {
+        final ClientHttpResponse cached =
+            diskCache.getFresh(createRequest(getTileUri(i), null, null));
+        assertNotNull(cached);
+        assertEquals(i, IOUtils.toByteArray(cached.getBody())[0]);
+      }
+      assertEquals(0, this.registry.counter(METRIC_PREFIX + "eviction").getCount());
+    } finally {
+      FileUtils.deleteQuietly(working);
+    }
+  }
+
+  private static URI getTileUri(final int index) {
+    return URI.create("http://example.com/tiles/1/2/" + index + ".png");
+  }
+
+  private static MockClientHttpRequest createRequest(final byte[] body, final String cacheControl) {
+    return createRequest(TILE_URI, body, cacheControl);
+  }
+
+  private static MockClientHttpRequest createRequest(
+      final URI uri, final byte[] body, final String cacheControl) {
+    final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, uri);
+    if (body != null) {
+      final MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+      response.getHeaders().setCacheControl(cacheControl);
+      request.setResponse(response);
+    }
+    return request;
+  }
+}
@@ -0,0 +1,26 @@
+package org.mapfish.print.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.net.URI;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+public class UtilsTest {
+  @Test
+  public void testCreateRequestKey() {
+    final HttpHeaders headers = new HttpHeaders();
+    assertEquals(
+        Utils.createRequestKey(URI.create("HTTP://Example.com:80/wms?b=2&a=1"), headers),
+        Utils.createRequestKey(URI.create("http://example.com/wms?a=1&b=2"), headers));
+    assertNotEquals(
+        Utils.createRequestKey(URI.create("http://example.com/wms?a=1"), headers),
+        Utils.createRequestKey(URI.create("http://example.com/wms?a=2"), headers));
+
+    final URI uri = URI.create("http://example.com/tiles/1/2/3.png");
+    final HttpHeaders authHeaders = new HttpHeaders();
+    authHeaders.setBasicAuth("user", "password");
+    assertNotEquals(Utils.createRequestKey(uri, headers), Utils.createRequestKey(uri, authHeaders));
+  }
+}
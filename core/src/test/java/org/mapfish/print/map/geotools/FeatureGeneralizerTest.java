@@ -0,0 +1,161 @@
+package org.mapfish.print.map.geotools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.mapfish.print.attribute.map.BBoxMapBounds;
+import org.mapfish.print.attribute.map.CenterScaleMapBounds;
+import org.mapfish.print.attribute.map.MapfishMapContext;
+import org.mapfish.print.processor.ExecutionStats;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+public class FeatureGeneralizerTest {
+  private static final double CENTER_X = 2600000;
+  private static final double CENTER_Y = 1200000;
+
+  @Test
+  public void testGetFeatures() throws Exception {
+    final SimpleFeatureType type = DataUtilities.createType("test", "geom:LineString,name:String");
+    final GeometryFactory factory = new GeometryFactory();
+    // a line in the map, zigzagging much less than a pixel
+    final Coordinate[] inside = new Coordinate[101];
+    for (int i = 0; i < inside.length; i++) {
+      inside[i] = new Coordinate(i * 0.01, 0.5 + (i % 2) * 0.001);
+    }
+    final Coordinate[] outside = {new Coordinate(1000, 1000), new Coordinate(1001, 1001)};
+    final SimpleFeatureCollection features =
+        new ListFeatureCollection(
+            type,
+            List.of(
+                SimpleFeatureBuilder.build(
+                    type, new Object[] {factory.createLineString(inside), "inside"}, "1"),
+                SimpleFeatureBuilder.build(
+                    type, new Object[] {factory.createLineString(outside), "outside"}, "2")));
+    // 0.1 map unit per pixel
+    final MapfishMapContext mapContext =
+        new MapfishMapContext(
+            new BBoxMapBounds(DefaultEngineeringCRS.GENERIC_2D, 0, 0, 1, 1),
+            new Dimension(10, 10),
+            0,
+            72,
+            true,
+            false);
+    final ExecutionStats stats = new ExecutionStats();
+
+    final SimpleFeatureCollection result =
+        new FeatureGeneralizer(features).getFeatures(mapContext, stats);
+
+    assertEquals(1, result.size());
+    try (SimpleFeatureIterator iterator = result.features()) {
+      final SimpleFeature feature = iterator.next();
+      assertEquals("inside", feature.getAttribute("name"));
+      assertEquals(2, ((Geometry) feature.getDefaultGeometry()).getNumPoints());
+    }
+    final JsonNode generalization = stats.toJson().get("generalizations").get(0);
+    assertEquals(2, generalization.get("nbFeatures").asInt());
+    assertEquals(1, generalization.get("nbParts").asInt());
+    assertEquals(1, generalization.get("nbRenderedFeatures").asInt());
+    assertEquals(103, generalization.get("nbVertices").asLong());
+    assertEquals(2, generalization.get("nbRenderedVertices").asLong());
+  }
+
+  @Test
+  public void testGetFeaturesDpi() throws Exception {
+    final CoordinateReferenceSystem projection = CRS.decode("EPSG:2056");
+    // a line zigzagging 0.1 m, at 1:1000 a pixel at 72 DPI is 0.35 m and at 288 DPI 0.09 m
+    final Coordinate[] coordinates = new Coordinate[101];
+    for (int i = 0; i < coordinates.length; i++) {
+      coordinates[i] = new Coordinate(CENTER_X - 10 + i * 0.2, CENTER_Y + (i % 2) * 0.1);
+    }
+    final FeatureGeneralizer generalizer = createGeneralizer(coordinates);
+    final CenterScaleMapBounds bounds =
+        new CenterScaleMapBounds(projection, CENTER_X, CENTER_Y, 1000);
+    final Dimension size = new Dimension(100, 100);
+
+    assertEquals(
+        2,
+        getNbRenderedVertices(generalizer, new MapfishMapContext(bounds, size, 72, true, false)));
+    // the map size is at 72 DPI, the printed pixels are smaller
+    assertTrue(
+        getNbRenderedVertices(generalizer, new MapfishMapContext(bounds, size, 288, true, false))
+            > 2);
+
+    // like the map processor, the bounding box with the map size scaled to the DPI
+    final ReferencedEnvelope envelope = bounds.toReferencedEnvelope(new Rectangle(size));
+    assertEquals(
+        2,
+        getNbRenderedVertices(
+            generalizer,
+            new MapfishMapContext(new BBoxMapBounds(envelope), size, 72, true, false)));
+    assertTrue(
+        getNbRenderedVertices(
+                generalizer,
+                new MapfishMapContext(
+                    new BBoxMapBounds(envelope), new Dimension(400, 400), 288, true, false))
+            > 2);
+  }
+
+  @Test
+  public void testStatsOfParts() throws Exception {
+    final FeatureGeneralizer generalizer =
+        createGeneralizer(new Coordinate(0.1, 0.5), new Coordinate(0.9, 0.5));
+    final ExecutionStats stats = new ExecutionStats();
+    for (int i = 0; i < 2; i++) {
+      // the left and right halves of the map
+      generalizer.getFeatures(
+          new MapfishMapContext(
+              new BBoxMapBounds(DefaultEngineeringCRS.GENERIC_2D, i * 0.5, 0, i * 0.5 + 0.5, 1),
+              new Dimension(5, 10),
+              0,
+              72,
+              true,
+              false),
+          stats);
+    }
+
+    final JsonNode generalizations = stats.toJson().get("generalizations");
+    assertEquals(1, generalizations.size());
+    assertEquals(1, generalizations.get(0).get("nbFeatures").asInt());
+    assertEquals(2, generalizations.get(0).get("nbParts").asInt());
+    assertEquals(2, generalizations.get(0).get("nbRenderedFeatures").asInt());
+    assertEquals(4, generalizations.get(0).get("nbRenderedVertices").asLong());
+  }
+
+  private static FeatureGeneralizer createGeneralizer(final Coordinate... coordinates)
+      throws Exception {
+    final SimpleFeatureType type = DataUtilities.createType("test", "geom:LineString");
+    return new FeatureGeneralizer(
+        new ListFeatureCollection(
+            type,
+            List.of(
+                SimpleFeatureBuilder.build(
+                    type,
+                    new Object[] {new GeometryFactory().createLineString(coordinates)},
+                    "1"))));
+  }
+
+  private static long getNbRenderedVertices(
+      final FeatureGeneralizer generalizer, final MapfishMapContext mapContext) {
+    final ExecutionStats stats = new ExecutionStats();
+    generalizer.getFeatures(mapContext, stats);
+    return stats.toJson().get("generalizations").get(0).get("nbRenderedVertices").asLong();
+  }
+}
@@ -0,0 +1,57 @@
+package org.mapfish.print.map.geotools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+public class GeoJsonReaderTest {
+
+  @Test
+  public void testReadFeatureCollection() throws Exception {
+    final GeoJsonReader reader =
+        GeoJsonReader.read(
+            new StringReader(
+                "{\"type\": \"FeatureCollection\", \"features\": [{\"type\": \"Feature\", \"id\":"
+                    + " \"a\", \"properties\": {\"name\": \"A\"}, \"geometry\": {\"type\":"
+                    + " \"Point\", \"coordinates\": [1, 2]}},{\"type\": \"Feature\","
+                    + " \"properties\": {\"count\": 3, \"name\": \"B\"}, \"geometry\": null}],"
+                    + " \"crs\": {\"type\": \"name\", \"properties\": {\"name\":"
+                    + " \"EPSG:2056\"}}}"));
+
+    final List<GeoJsonReader.Feature> features = reader.getFeatures();
+    assertEquals(2, features.size());
+    assertEquals("a", features.get(0).getId());
+    assertEquals(new Coordinate(1, 2), features.get(0).getGeometry().getCoordinate());
+    assertNull(features.get(1).getId());
+    assertNull(features.get(1).getGeometry());
+    assertEquals(3L, features.get(1).getProperties().get("count"));
+    assertEquals(List.of("name", "count"), List.copyOf(reader.getAttributeNames()));
+    assertEquals(Point.class, reader.getGeometryType());
+    assertEquals("EPSG:2056", reader.getCrs().path("properties").path("name").asText());
+  }
+
+  @Test
+  public void testReadArrayOfFeatures() throws Exception {
+    final GeoJsonReader reader =
+        GeoJsonReader.read(
+            new StringReader(
+                "[{\"type\": \"Feature\", \"properties\": {}, \"geometry\": {\"type\": \"Polygon\","
+                    + " \"coordinates\": [[[0, 0], [1, 0], [1, 1], [0, 0]]]}},{\"type\":"
+                    + " \"Feature\", \"properties\": {}, \"geometry\": {\"type\": \"MultiPolygon\","
+                    + " \"coordinates\": [[[[0, 0], [1, 0], [1, 1], [0, 0]]]]}}]"));
+
+    assertEquals(2, reader.getFeatures().size());
+    assertEquals(Polygon.class, reader.getFeatures().get(0).getGeometry().getClass());
+    assertEquals(MultiPolygon.class, reader.getFeatures().get(1).getGeometry().getClass());
+    assertEquals(Geometry.class, reader.getGeometryType());
+    assertNull(reader.getCrs());
+  }
+}
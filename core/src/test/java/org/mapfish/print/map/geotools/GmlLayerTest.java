@@ -0,0 +1,37 @@
+package org.mapfish.print.map.geotools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class GmlLayerTest {
+
+  @Test
+  public void testSniffVersion() {
+    assertEquals(
+        GmlLayer.GmlVersion.GML32,
+        sniff(
+            "<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs/2.0\""
+                + " xmlns:gml=\"http://www.opengis.net/gml/3.2\">"));
+    assertEquals(
+        GmlLayer.GmlVersion.GML2,
+        sniff(
+            "<?xml version=\"1.0\"?><wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\""
+                + " xmlns:gml=\"http://www.opengis.net/gml\""
+                + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+                + " xsi:schemaLocation=\"http://www.opengis.net/wfs"
+                + " http://localhost/schemas/wfs/1.0.0/WFS-basic.xsd\">"));
+    assertEquals(
+        GmlLayer.GmlVersion.GML3,
+        sniff(
+            "<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\""
+                + " xmlns:gml=\"http://www.opengis.net/gml\" numberOfFeatures=\"1\">"));
+    // the start of the document is not XML
+    assertEquals(GmlLayer.GmlVersion.GML3, sniff("{}"));
+  }
+
+  private static GmlLayer.GmlVersion sniff(final String start) {
+    return GmlLayer.Plugin.sniffVersion(start.getBytes(StandardCharsets.UTF_8));
+  }
+}
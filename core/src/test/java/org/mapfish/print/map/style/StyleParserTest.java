@@ -0,0 +1,92 @@
+package org.mapfish.print.map.style;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import com.codahale.metrics.MetricRegistry;
+import org.geotools.styling.LineSymbolizer;
+import org.geotools.styling.Style;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapfish.print.AbstractMapfishSpringTest;
+import org.mapfish.print.TestHttpClientFactory;
+import org.mapfish.print.config.Configuration;
+import org.mapfish.print.map.geotools.OpacitySettingStyleVisitor;
+import org.mapfish.print.servlet.fileloader.ConfigFileLoaderManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class StyleParserTest extends AbstractMapfishSpringTest {
+
+  @Autowired private StyleParser styleParser;
+  @Autowired private TestHttpClientFactory clientHttpRequestFactory;
+  @Autowired private ConfigFileLoaderManager fileLoaderManager;
+  @Autowired private MetricRegistry metricRegistry;
+
+  @Before
+  public void setUp() {
+    // the cache is disabled by default
+    this.styleParser.setCacheSize(10);
+    this.styleParser.init();
+  }
+
+  @Test
+  public void testCachedStyleIsCopied() throws Throwable {
+    Configuration configuration = new Configuration();
+    configuration.setFileLoaderManager(this.fileLoaderManager);
+    configuration.setConfigurationFile(
+        getFile("/org/mapfish/print/processor/map/center_wmts_fixedscale/thinline.sld"));
+    final String hitMetric = StyleParser.class.getName() + ".hit";
+    final long hits = this.metricRegistry.counter(hitMetric).getCount();
+
+    final Style style1 =
+        this.styleParser
+            .loadStyle(configuration, this.clientHttpRequestFactory, "file://thinline.sld")
+            .get();
+    // the layers change the opacity of their style
+    style1.accept(new OpacitySettingStyleVisitor(0.5));
+    final Style style2 =
+        this.styleParser
+            .loadStyle(configuration, this.clientHttpRequestFactory, "file://thinline.sld")
+            .get();
+
+    assertEquals(hits + 1, this.metricRegistry.counter(hitMetric).getCount());
+    assertNotSame(style1, style2);
+    assertEquals(0.5, getStrokeOpacity(style1), 0.0001);
+    // the change of style1 is not in the cached style
+    assertEquals(1.0, getStrokeOpacity(style2), 0.0001);
+    final Style style3 =
+        this.styleParser
+            .loadStyle(configuration, this.clientHttpRequestFactory, "file://thinline.sld")
+            .get();
+    assertEquals(style2, style3);
+  }
+
+  @Test
+  public void testRemoteStyleIsNotCached() throws Throwable {
+    Configuration configuration = new Configuration();
+    configuration.setFileLoaderManager(this.fileLoaderManager);
+    configuration.setConfigurationFile(
+        getFile("/org/mapfish/print/processor/map/center_wmts_fixedscale/thinline.sld"));
+    final String hitMetric = StyleParser.class.getName() + ".hit";
+    final String missMetric = StyleParser.class.getName() + ".miss";
+    final long hits = this.metricRegistry.counter(hitMetric).getCount();
+    final long misses = this.metricRegistry.counter(missMetric).getCount();
+
+    // the style is downloaded with the credentials of the print job
+    for (int i = 0; i < 2; i++) {
+      this.styleParser.loadStyle(
+          configuration, this.clientHttpRequestFactory, "http://localhost/styles/thinline.sld");
+    }
+
+    assertEquals(hits, this.metricRegistry.counter(hitMetric).getCount());
+    assertEquals(misses, this.metricRegistry.counter(missMetric).getCount());
+  }
+
+  private static double getStrokeOpacity(final Style style) {
+    final LineSymbolizer symbolizer =
+        (LineSymbolizer) style.featureTypeStyles().get(0).rules().get(0).symbolizers().get(0);
+    return symbolizer.getStroke().getOpacity().evaluate(null, Double.class);
+  }
+}
@@ -0,0 +1,225 @@
+package org.mapfish.print.map.tiled;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.codahale.metrics.MetricRegistry;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.mapfish.print.config.Configuration;
+import org.mapfish.print.http.MfClientHttpRequestFactory;
+import org.mapfish.print.map.tiled.TilePreparationInfo.SingleTilePreparationInfo;
+import org.mapfish.print.map.tiled.osm.OsmLayerParam;
+import org.mapfish.print.processor.AbstractProcessor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+public class CoverageTaskTest {
+  private static final Dimension TILE_SIZE = new Dimension(16, 16);
+  private static final int NB_COLUMNS = 5;
+  private static final int NB_ROWS = 3;
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+  }
+
+  @Test
+  public void testParallelTilesLikeSequential() throws Exception {
+    final RenderedImage sequential = createCoverageTask(null, 1).call().getRenderedImage();
+    for (int parallelism : new int[] {2, 4, NB_COLUMNS * NB_ROWS}) {
+      assertSameImage(
+          sequential, createCoverageTask(this.pool, parallelism).call().getRenderedImage());
+    }
+  }
+
+  @Test
+  public void testDirectRenderingLikeCoverage() throws Exception {
+    final RenderedImage coverage = createCoverageTask(null, 1).call().getRenderedImage();
+    // the whole coverage, twice bigger
+    assertDirectRendering(
+        coverage,
+        new ReferencedEnvelope(0, NB_COLUMNS, 0, NB_ROWS, DefaultGeographicCRS.WGS84),
+        new Rectangle(2 * coverage.getWidth(), 2 * coverage.getHeight()),
+        AffineTransform.getScaleInstance(2, 2));
+    // a part of the coverage, not aligned on the tiles
+    assertDirectRendering(
+        coverage,
+        new ReferencedEnvelope(1, 4, 0.5, 2.5, DefaultGeographicCRS.WGS84),
+        new Rectangle(3 * TILE_SIZE.width, 2 * TILE_SIZE.height),
+        AffineTransform.getTranslateInstance(-TILE_SIZE.width, -TILE_SIZE.height / 2));
+  }
+
+  /**
+   * Draw the tiles directly on a map and compare with the coverage image drawn on the map.
+   *
+   * @param coverage the coverage image.
+   * @param mapArea the area of the map.
+   * @param paintArea the size of the map.
+   * @param coverageToMap the transformation from the coverage image to the map.
+   */
+  private void assertDirectRendering(
+      final RenderedImage coverage,
+      final ReferencedEnvelope mapArea,
+      final Rectangle paintArea,
+      final AffineTransform coverageToMap)
+      throws IOException {
+    final BufferedImage expected =
+        new BufferedImage(paintArea.width, paintArea.height, BufferedImage.TYPE_4BYTE_ABGR);
+    final Graphics2D expectedGraphics = expected.createGraphics();
+    try {
+      expectedGraphics.drawRenderedImage(coverage, coverageToMap);
+    } finally {
+      expectedGraphics.dispose();
+    }
+
+    final BufferedImage actual =
+        new BufferedImage(paintArea.width, paintArea.height, BufferedImage.TYPE_4BYTE_ABGR);
+    final Graphics2D actualGraphics = actual.createGraphics();
+    try {
+      createCoverageTask(this.pool, 4).draw(actualGraphics, mapArea, paintArea);
+    } finally {
+      actualGraphics.dispose();
+    }
+    assertSameImage(expected, actual);
+  }
+
+  /**
+   * Create a coverage task for a grid of tiles of different colors, with a missing tile.
+   *
+   * @param forkJoinPool the pool to load the tiles in parallel, null to load them sequentially.
+   * @param parallelism the maximum number of tiles loaded in parallel.
+   */
+  private CoverageTask createCoverageTask(final ForkJoinPool forkJoinPool, final int parallelism)
+      throws IOException {
+    final List<SingleTilePreparationInfo> tiles = new ArrayList<>();
+    for (int row = 0; row < NB_ROWS; row++) {
+      for (int column = 0; column < NB_COLUMNS; column++) {
+        tiles.add(
+            new SingleTilePreparationInfo(
+                column, row, column == 2 && row == 1 ? null : createTileRequest(column, row)));
+      }
+    }
+    final TilePreparationInfo tilePreparationInfo =
+        new TilePreparationInfo(
+            tiles,
+            NB_COLUMNS * TILE_SIZE.width,
+            NB_ROWS * TILE_SIZE.height,
+            new Coordinate(0, 0),
+            NB_COLUMNS,
+            NB_ROWS,
+            DefaultGeographicCRS.WGS84);
+    final OsmLayerParam params = new OsmLayerParam();
+    params.baseURL = "http://tiles.example.com/{z}/{x}/{y}.png";
+    params.tileLoadingParallelism = parallelism;
+    return new CoverageTask(
+        tilePreparationInfo,
+        true,
+        forkJoinPool,
+        new MetricRegistry(),
+        new AbstractProcessor.Context(new HashMap<>()),
+        new TestTileCacheInformation(params),
+        new Configuration());
+  }
+
+  private static ClientHttpRequest createTileRequest(final int column, final int row)
+      throws IOException {
+    final BufferedImage image =
+        new BufferedImage(TILE_SIZE.width, TILE_SIZE.height, BufferedImage.TYPE_4BYTE_ABGR);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(new Color(column * 50, row * 100, 128));
+      graphics.fillRect(0, 0, TILE_SIZE.width, TILE_SIZE.height);
+      // to see the orientation of the tile
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, TILE_SIZE.width / 2, TILE_SIZE.height / 4);
+    } finally {
+      graphics.dispose();
+    }
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", output);
+    final MockClientHttpRequest request =
+        new MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://tiles.example.com/" + column + "/" + row + ".png"));
+    request.setResponse(new MockClientHttpResponse(output.toByteArray(), HttpStatus.OK));
+    return request;
+  }
+
+  private static void assertSameImage(final RenderedImage expected, final RenderedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    final Raster expectedData = expected.getData();
+    final Raster actualData = actual.getData();
+    for (int y = 0; y < expected.getHeight(); y++) {
+      assertArrayEquals(
+          "row " + y,
+          expectedData.getPixels(0, y, expected.getWidth(), 1, (int[]) null),
+          actualData.getPixels(0, y, actual.getWidth(), 1, (int[]) null));
+    }
+  }
+
+  private static final class TestTileCacheInformation extends TileCacheInformation {
+    private TestTileCacheInformation(final AbstractTiledLayerParams params) {
+      super(
+          null,
+          new Rectangle(NB_COLUMNS * TILE_SIZE.width, NB_ROWS * TILE_SIZE.height),
+          72,
+          params);
+    }
+
+    @Override
+    public ClientHttpRequest getTileRequest(
+        final MfClientHttpRequestFactory httpRequestFactory,
+        final String commonUrl,
+        final ReferencedEnvelope tileBounds,
+        final Dimension tileSizeOnScreen,
+        final int column,
+        final int row) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getResolution() {
+      return 1.0 / TILE_SIZE.width;
+    }
+
+    @Override
+    public Double getLayerDpi() {
+      return 72.0;
+    }
+
+    @Override
+    public Dimension getTileSize() {
+      return TILE_SIZE;
+    }
+
+    @Override
+    protected ReferencedEnvelope getTileCacheBounds() {
+      return new ReferencedEnvelope(0, NB_COLUMNS, 0, NB_ROWS, DefaultGeographicCRS.WGS84);
+    }
+  }
+}
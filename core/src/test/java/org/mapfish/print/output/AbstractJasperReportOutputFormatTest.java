@@ -3,16 +3,21 @@ package org.mapfish.print.output;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.locationtech.jts.util.AssertionFailedException;
 import org.mapfish.print.AbstractMapfishSpringTest;
 import org.mapfish.print.ExtraPropertyException;
 import org.mapfish.print.config.Configuration;
 import org.mapfish.print.config.ConfigurationFactory;
 import org.mapfish.print.wrapper.json.PJsonObject;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 
@@ -24,6 +29,8 @@ public class AbstractJasperReportOutputFormatTest extends AbstractMapfishSpringT
 
   @Autowired private Map<String, OutputFormat> outputFormat;
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
   public static PJsonObject loadJsonRequestData() throws IOException {
     return parseJSONObjectFromFile(
         JasperReportOutputFormatSimpleMapTest.class, BASE_DIR + "requestData.json");
@@ -107,4 +114,30 @@ public class AbstractJasperReportOutputFormatTest extends AbstractMapfishSpringT
           e.getMessage(), e.getMessage().contains("does not match the class of the actual object"));
     }
   }
+
+  @Test
+  @DirtiesContext
+  public void testTemplateDeclarationsCache() throws Exception {
+    // a new path, not already in the cache
+    final File configDir = this.folder.newFolder("simple_map");
+    FileUtils.copyDirectory(getFile(BASE_DIR), configDir);
+    final File templateFile = new File(configDir, "simple-map.jrxml");
+    final Configuration config =
+        Mockito.spy(configurationFactory.getConfig(new File(configDir, "config.yaml")));
+    PJsonObject requestData = loadJsonRequestData();
+
+    final AbstractJasperReportOutputFormat format =
+        (AbstractJasperReportOutputFormat) this.outputFormat.get("pngOutputFormat");
+    format.getJasperPrint(
+        new HashMap<String, String>(), requestData, config, configDir, getTaskDirectory());
+    format.getJasperPrint(
+        new HashMap<String, String>(), requestData, config, configDir, getTaskDirectory());
+    Mockito.verify(config, Mockito.times(1)).loadFile("simple-map.jrxml");
+
+    // the template is modified
+    assertTrue(templateFile.setLastModified(templateFile.lastModified() + 10000));
+    format.getJasperPrint(
+        new HashMap<String, String>(), requestData, config, configDir, getTaskDirectory());
+    Mockito.verify(config, Mockito.times(2)).loadFile("simple-map.jrxml");
+  }
 }
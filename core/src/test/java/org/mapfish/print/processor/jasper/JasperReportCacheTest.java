@@ -0,0 +1,84 @@
+package org.mapfish.print.processor.jasper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.nio.file.Files;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.util.JRSaver;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapfish.print.config.WorkingDirectories;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JasperReportCacheTest {
+  private static final String HIT = JasperReportCache.class.getName() + ".hit";
+  private static final String MISS = JasperReportCache.class.getName() + ".miss";
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private File working;
+  private JasperReportCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    this.working = Files.createTempDirectory("jasperReportCacheTest").toFile();
+    final WorkingDirectories workingDirectories = new WorkingDirectories();
+    ReflectionTestUtils.setField(workingDirectories, "working", this.working);
+
+    this.cache = new JasperReportCache();
+    ReflectionTestUtils.setField(this.cache, "metricRegistry", this.registry);
+    ReflectionTestUtils.setField(this.cache, "workingDirectories", workingDirectories);
+    this.cache.init();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(this.working);
+  }
+
+  @Test
+  public void testCacheCompiledReports() throws Exception {
+    final File report = writeReport(new File(this.working, "config/jasper-bin/report.jasper"));
+    assertTrue(this.cache.isCached(report));
+
+    final JasperReport first = this.cache.getReport(report);
+    final JasperReport second = this.cache.getReport(report);
+    assertSame(first, second);
+    assertEquals(1, this.registry.counter(MISS).getCount());
+    assertEquals(1, this.registry.counter(HIT).getCount());
+
+    // the report is rebuilt
+    this.cache.invalidate(report);
+    final JasperReport third = this.cache.getReport(report);
+    assertNotSame(first, third);
+    assertEquals(2, this.registry.counter(MISS).getCount());
+  }
+
+  @Test
+  public void testDoNotCacheOtherFiles() throws Exception {
+    final File report = writeReport(new File(this.working, "other/report.jasper"));
+    assertFalse(this.cache.isCached(report));
+
+    assertNotSame(this.cache.getReport(report), this.cache.getReport(report));
+    assertEquals(0, this.registry.counter(HIT).getCount());
+    assertEquals(0, this.registry.counter(MISS).getCount());
+  }
+
+  private static File writeReport(final File file) throws Exception {
+    final JasperDesign design = new JasperDesign();
+    design.setName("report");
+    final JasperReport report = JasperCompileManager.compileReport(design);
+    assertTrue(file.getParentFile().mkdirs());
+    JRSaver.saveObject(report, file);
+    return file;
+  }
+}
@@ -2,15 +2,27 @@ package org.mapfish.print.processor.jasper;
 
 import static org.junit.Assert.assertEquals;
 
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import javax.imageio.ImageIO;
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRPrintImage;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
 import net.sf.jasperreports.engine.design.JRDesignImage;
 import net.sf.jasperreports.engine.design.JasperDesign;
 import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.renderers.DataRenderable;
+import net.sf.jasperreports.renderers.Renderable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -41,18 +53,70 @@ public class MapSubReportTest {
     assertEquals(400, image0.getWidth());
     assertEquals(500, image0.getHeight());
     assertEquals(
-        '"' + layer0Tiff.getPath().replace('\\', '/') + '"', image0.getExpression().getText());
+        "$P{JASPER_REPORT}.getProperty(\"org.mapfish.print.graphic.0\")",
+        image0.getExpression().getText());
+    assertEquals(
+        layer0Tiff.getPath().replace('\\', '/'),
+        report.getProperty(ImagesSubReport.GRAPHIC_PROPERTY_PREFIX + "0"));
 
     JRDesignImage image3 = (JRDesignImage) report.getNoData().getChildren().get(3);
     assertEquals(400, image3.getWidth());
     assertEquals(500, image3.getHeight());
     assertEquals(
-        "\"" + layer3SVG.getPath().replace('\\', '/') + "\"", image3.getExpression().getText());
+        "$P{JASPER_REPORT}.getProperty(\"org.mapfish.print.graphic.3\")",
+        image3.getExpression().getText());
+    assertEquals(
+        layer3SVG.getPath().replace('\\', '/'),
+        report.getProperty(ImagesSubReport.GRAPHIC_PROPERTY_PREFIX + "3"));
 
     File compiledReportFile = folder.newFile();
-    subReport.compile(compiledReportFile);
+    subReport.compile(compiledReportFile, createJasperReportCache());
 
     JasperReport jasperReport = (JasperReport) JRLoader.loadObject(compiledReportFile);
     assertEquals("report can be loaded from compiled file", "map", jasperReport.getName());
   }
+
+  @Test
+  public void testCompiledOnce() throws Exception {
+    final File graphic1 = createGraphic(Color.RED);
+    final File graphic2 = createGraphic(Color.BLUE);
+    final JasperReportCache jasperReportCache = createJasperReportCache();
+    final File compiledReportFile1 = this.folder.newFile();
+    new ImagesSubReport(List.of(graphic1.toURI()), new Dimension(20, 10), 72)
+        .compile(compiledReportFile1, jasperReportCache);
+    final File compiledReportFile2 = this.folder.newFile();
+    new ImagesSubReport(List.of(graphic2.toURI()), new Dimension(20, 10), 144)
+        .compile(compiledReportFile2, jasperReportCache);
+
+    final JasperReport report = (JasperReport) JRLoader.loadObject(compiledReportFile2);
+    assertEquals("144", report.getProperty(Renderable.PROPERTY_IMAGE_DPI));
+    final JasperPrint print = JasperFillManager.fillReport(report, new HashMap<>());
+    final JRPrintImage image = (JRPrintImage) print.getPages().get(0).getElements().get(0);
+    final BufferedImage rendered =
+        ImageIO.read(
+            new ByteArrayInputStream(
+                ((DataRenderable) image.getRenderer())
+                    .getData(DefaultJasperReportsContext.getInstance())));
+    assertEquals(Color.BLUE.getRGB(), rendered.getRGB(0, 0));
+  }
+
+  private static JasperReportCache createJasperReportCache() {
+    final JasperReportCache jasperReportCache = new JasperReportCache();
+    jasperReportCache.init();
+    return jasperReportCache;
+  }
+
+  private File createGraphic(final Color color) throws Exception {
+    final BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(color);
+      graphics.fillRect(0, 0, 20, 10);
+    } finally {
+      graphics.dispose();
+    }
+    final File file = this.folder.newFile();
+    ImageIO.write(image, "png", file);
+    return file;
+  }
 }
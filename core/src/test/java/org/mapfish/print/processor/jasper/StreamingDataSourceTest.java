@@ -0,0 +1,96 @@
+package org.mapfish.print.processor.jasper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import org.junit.After;
+import org.junit.Test;
+
+public class StreamingDataSourceTest {
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() {
+    this.pool.shutdownNow();
+  }
+
+  @Test
+  public void testRowsInOrderWithBoundedWindow() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger started = new AtomicInteger();
+    final List<Callable<Map<String, ?>>> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int index = i;
+      rows.add(
+          () -> {
+            started.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+              // the last rows are the fastest
+              Thread.sleep(20 - index);
+            } finally {
+              running.decrementAndGet();
+            }
+            return Map.of("index", index);
+          });
+    }
+
+    final StreamingDataSource dataSource = new StreamingDataSource(rows.iterator(), this.pool, 3);
+    final JRDesignField field = new JRDesignField();
+    field.setName("index");
+    for (int i = 0; i < 20; i++) {
+      assertTrue(dataSource.next());
+      assertEquals(i, dataSource.getFieldValue(field));
+      // the current row, and at most 3 rows computed in advance
+      assertTrue(started.get() <= i + 1 + 3);
+    }
+    assertFalse(dataSource.next());
+    assertTrue(maxRunning.get() <= 3);
+  }
+
+  @Test(expected = JRException.class)
+  public void testRowError() throws Exception {
+    final List<Callable<Map<String, ?>>> rows = new ArrayList<>();
+    rows.add(
+        () -> {
+          throw new IllegalStateException("error");
+        });
+    new StreamingDataSource(rows.iterator(), this.pool, 2).next();
+  }
+
+  @Test
+  public void testCancelAll() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final List<Callable<Map<String, ?>>> nestedRows = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      nestedRows.add(
+          () -> {
+            blocked.await();
+            return Map.of();
+          });
+    }
+    final StreamingDataSource nested = new StreamingDataSource(nestedRows.iterator(), this.pool, 2);
+    final List<Callable<Map<String, ?>>> rows = new ArrayList<>();
+    rows.add(() -> Map.of("nested", nested));
+    final StreamingDataSource dataSource = new StreamingDataSource(rows.iterator(), this.pool, 1);
+    // the fill fails while reading the nested datasource of the first row
+    assertTrue(dataSource.next());
+
+    StreamingDataSource.cancelAll(List.of("other value", dataSource));
+
+    // the rows of the nested datasource are not read
+    assertFalse(nested.next());
+    blocked.countDown();
+  }
+}
@@ -2,25 +2,40 @@ package org.mapfish.print.processor.jasper;
 
 import static org.junit.Assert.assertEquals;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.data.JRMapCollectionDataSource;
+import org.json.JSONArray;
 import org.junit.Test;
 import org.mapfish.print.AbstractMapfishSpringTest;
 import org.mapfish.print.TestHttpClientFactory;
+import org.mapfish.print.attribute.TableAttribute;
 import org.mapfish.print.config.Configuration;
 import org.mapfish.print.config.ConfigurationFactory;
 import org.mapfish.print.config.Template;
+import org.mapfish.print.http.MfClientHttpRequestFactory;
 import org.mapfish.print.output.AbstractJasperReportOutputFormat;
 import org.mapfish.print.output.OutputFormat;
 import org.mapfish.print.output.Values;
+import org.mapfish.print.processor.AbstractProcessor;
+import org.mapfish.print.processor.http.MfClientHttpRequestFactoryProvider;
 import org.mapfish.print.test.util.ImageSimilarity;
+import org.mapfish.print.wrapper.PArray;
+import org.mapfish.print.wrapper.json.PJsonArray;
 import org.mapfish.print.wrapper.json.PJsonObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.annotation.DirtiesContext;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -36,6 +51,8 @@ public class TableProcessorTest extends AbstractMapfishSpringTest {
   @Autowired private ForkJoinPool forkJoinPool;
   @Autowired private TestHttpClientFactory httpRequestFactory;
   @Autowired private Map<String, OutputFormat> outputFormat;
+  @Autowired private MetricRegistry metricRegistry;
+  @Autowired private ApplicationContext applicationContext;
 
   private static PJsonObject loadJsonRequestData(String baseDir) throws IOException {
     return parseJSONObjectFromFile(TableProcessorTest.class, baseDir + "requestData.json");
@@ -127,6 +144,36 @@ public class TableProcessorTest extends AbstractMapfishSpringTest {
     new ImageSimilarity(getFile(baseDir + "expectedImage.png")).assertSimilarity(print, 0, 0);
   }
 
+  @Test
+  public void testDynamicTableReuseCompiledReport() throws Exception {
+    final String baseDir = DYNAMIC_BASE_DIR;
+    final Configuration config = configurationFactory.getConfig(getFile(baseDir + "config.yaml"));
+    final AbstractJasperReportOutputFormat format =
+        (AbstractJasperReportOutputFormat) this.outputFormat.get("pngOutputFormat");
+    final File file = getFile(TableProcessorTest.class, baseDir);
+    final Counter reused =
+        this.metricRegistry.counter(TableProcessor.class.getName() + ".subReport.reused");
+
+    format.getJasperPrint(
+        new HashMap<String, String>(),
+        loadJsonRequestData(baseDir),
+        config,
+        file,
+        getTaskDirectory());
+    final long reusedBefore = reused.getCount();
+    JasperPrint print =
+        format.getJasperPrint(
+                new HashMap<String, String>(),
+                loadJsonRequestData(baseDir),
+                config,
+                file,
+                getTaskDirectory())
+            .print;
+
+    assertEquals(reusedBefore + 1, reused.getCount());
+    new ImageSimilarity(getFile(baseDir + "expectedImage.png")).assertSimilarity(print, 0, 0);
+  }
+
   @Test
   public void testColumnImageConverter() throws Exception {
     httpRequestFactory.registerHandler(
@@ -192,4 +239,67 @@ public class TableProcessorTest extends AbstractMapfishSpringTest {
     // otherwise small differences are not detected!
     new ImageSimilarity(getFile(baseDir + "expectedImage.png")).assertSimilarity(print, 0, 0);
   }
+
+  @Test
+  public void testConvertCellsOnce() throws Exception {
+    final Map<String, AtomicInteger> conversions = new ConcurrentHashMap<>();
+    final TableProcessor processor = this.applicationContext.getBean(TableProcessor.class);
+    processor.setConverters(List.of(new CountingConverter(conversions)));
+    processor.setMaxParallelConversions(2);
+
+    final TableProcessor.Input input = new TableProcessor.Input();
+    input.clientHttpRequestFactoryProvider =
+        new MfClientHttpRequestFactoryProvider(this.httpRequestFactory);
+    input.tempTaskDirectory = getTaskDirectory();
+    input.table = new TableAttribute.TableAttributeValue();
+    input.table.columns = new String[] {"name", "icon"};
+    final String[][] data = {
+      {"a", "icon:1"}, {"b", "icon:2"}, {"c", "icon:1"}, {"d", "icon:3"}, {"e", "icon:2"}
+    };
+    input.table.data = new PArray[data.length];
+    for (int i = 0; i < data.length; i++) {
+      input.table.data[i] = new PJsonArray(null, new JSONArray(data[i]), "data");
+    }
+
+    final JRMapCollectionDataSource dataSource =
+        processor.execute(input, new AbstractProcessor.Context(new HashMap<>())).tableDataSource;
+
+    // each distinct value is converted once
+    assertEquals(Set.of("icon:1", "icon:2", "icon:3"), conversions.keySet());
+    for (AtomicInteger count : conversions.values()) {
+      assertEquals(1, count.get());
+    }
+    // the rows and columns keep their order
+    final List<Map<String, ?>> rows = new ArrayList<>(dataSource.getData());
+    assertEquals(data.length, rows.size());
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(data[i][0], rows.get(i).get("name"));
+      assertEquals("converted " + data[i][1], rows.get(i).get("icon"));
+    }
+  }
+
+  private static final class CountingConverter implements TableColumnConverter<String> {
+    private final Map<String, AtomicInteger> conversions;
+
+    private CountingConverter(final Map<String, AtomicInteger> conversions) {
+      this.conversions = conversions;
+    }
+
+    @Override
+    public String resolve(final MfClientHttpRequestFactory requestFactory, final String text) {
+      this.conversions.computeIfAbsent(text, k -> new AtomicInteger()).incrementAndGet();
+      return "converted " + text;
+    }
+
+    @Override
+    public boolean canConvert(final String text) {
+      return text.startsWith("icon:");
+    }
+
+    @Override
+    public void validate(
+        final List<Throwable> validationErrors, final Configuration configuration) {
+      // nothing to validate
+    }
+  }
 }
@@ -0,0 +1,148 @@
+package org.mapfish.print.processor.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class CreateMapProcessorLayerGroupsTest {
+  // an SVG group of 3 layers, an SVG group of 2 layers and raster groups
+  private static final int[] NB_FILES = {1, 3, 1, 2, 1};
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testSequential() throws Exception {
+    assertEquals(
+        getExpectedFiles(),
+        CreateMapProcessor.renderLayerGroups(NB_FILES, 1, this.executor, this::render));
+  }
+
+  @Test
+  public void testParallel() throws Exception {
+    // the last groups are rendered first
+    assertEquals(
+        getExpectedFiles(),
+        CreateMapProcessor.renderLayerGroups(
+            NB_FILES,
+            3,
+            this.executor,
+            (groupIndex, firstFileNumber) -> {
+              Thread.sleep((NB_FILES.length - groupIndex) * 20L);
+              return render(groupIndex, firstFileNumber);
+            }));
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    final IOException error = new IOException("failed");
+    final Set<Integer> renderedGroups = ConcurrentHashMap.newKeySet();
+    try {
+      CreateMapProcessor.renderLayerGroups(
+          NB_FILES,
+          2,
+          this.executor,
+          (groupIndex, firstFileNumber) -> {
+            renderedGroups.add(groupIndex);
+            if (groupIndex == 0) {
+              throw error;
+            }
+            Thread.sleep(100);
+            return render(groupIndex, firstFileNumber);
+          });
+      fail("Expected an exception");
+    } catch (RuntimeException e) {
+      assertSame(error, e.getCause());
+    }
+    // no group is started after the failure
+    assertTrue(renderedGroups.toString(), renderedGroups.size() <= 2);
+  }
+
+  @Test
+  public void testCanceled() throws Exception {
+    final Set<Integer> renderedGroups = ConcurrentHashMap.newKeySet();
+    try {
+      CreateMapProcessor.renderLayerGroups(
+          NB_FILES,
+          2,
+          this.executor,
+          (groupIndex, firstFileNumber) -> {
+            renderedGroups.add(groupIndex);
+            if (groupIndex == 1) {
+              // like ExecutionContext.stopIfCanceled
+              throw new CancellationException();
+            }
+            return render(groupIndex, firstFileNumber);
+          });
+      fail("Expected a CancellationException");
+    } catch (CancellationException e) {
+      // expected
+    }
+    assertTrue(renderedGroups.toString(), renderedGroups.size() < NB_FILES.length);
+  }
+
+  @Test(timeout = 10000)
+  public void testInterrupted() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final Set<Integer> renderedGroups = ConcurrentHashMap.newKeySet();
+    final Thread thread = Thread.currentThread();
+    this.executor.submit(
+        () -> {
+          started.await();
+          thread.interrupt();
+          return null;
+        });
+    try {
+      CreateMapProcessor.renderLayerGroups(
+          NB_FILES,
+          2,
+          this.executor,
+          (groupIndex, firstFileNumber) -> {
+            renderedGroups.add(groupIndex);
+            started.countDown();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+            return render(groupIndex, firstFileNumber);
+          });
+      fail("Expected a CancellationException");
+    } catch (CancellationException e) {
+      assertTrue(Thread.interrupted());
+    }
+    // the rendering stops without starting the other groups
+    assertTrue(renderedGroups.toString(), renderedGroups.size() <= 2);
+  }
+
+  private List<URI> render(final int groupIndex, final int firstFileNumber) {
+    final List<URI> files = new ArrayList<>();
+    for (int i = 0; i < NB_FILES[groupIndex]; i++) {
+      files.add(URI.create("file:/layer_" + (firstFileNumber + i)));
+    }
+    return files;
+  }
+
+  private static List<URI> getExpectedFiles() {
+    final List<URI> files = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      files.add(URI.create("file:/layer_" + i));
+    }
+    return files;
+  }
+}
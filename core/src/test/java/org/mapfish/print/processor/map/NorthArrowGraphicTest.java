@@ -12,6 +12,7 @@ import org.mapfish.print.AbstractMapfishSpringTest;
 import org.mapfish.print.TestHttpClientFactory;
 import org.mapfish.print.config.Configuration;
 import org.mapfish.print.config.ConfigurationFactory;
+import org.mapfish.print.config.Template;
 import org.mapfish.print.http.ConfigFileResolvingHttpRequestFactory;
 import org.mapfish.print.map.style.json.ColorParser;
 import org.mapfish.print.test.util.ImageSimilarity;
@@ -26,6 +27,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
   private ConfigFileResolvingHttpRequestFactory requestFactoryWrapper;
 
   private Color bgColor;
+  private Template template;
 
   @Before
   public void setUp() throws IOException {
@@ -34,6 +36,8 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
         new ConfigFileResolvingHttpRequestFactory(
             this.requestFactory, config, new HashMap<String, String>());
     this.bgColor = ColorParser.toColor("rgba(255, 255, 255, 0)");
+    this.template = new Template();
+    this.template.setConfiguration(config);
   }
 
   @Test
@@ -46,7 +50,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             0.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-png-square-down.png"))
         .assertSimilarity(new File(file), 0);
@@ -62,7 +66,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             0.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-png-square-up.png"))
         .assertSimilarity(new File(file), 0);
@@ -78,7 +82,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             45.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-png-square-45-down.png"))
         .assertSimilarity(new File(file), 0);
@@ -94,7 +98,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             45.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-png-square-45-up.png"))
         .assertSimilarity(new File(file), 0);
@@ -110,7 +114,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             0.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-png-nosquare-down.png"))
         .assertSimilarity(new File(file), 0);
@@ -126,7 +130,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             0.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-png-nosquare-up.png"))
         .assertSimilarity(new File(file), 0);
@@ -142,7 +146,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 4,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-png-nosquare-45-down.png"))
         .assertSimilarity(new File(file), 0);
@@ -158,7 +162,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 4,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-png-nosquare-45-up.png"))
         .assertSimilarity(new File(file), 0);
@@ -175,7 +179,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             0.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-png-bg-square-down.png"))
         .assertSimilarity(new File(file), 0);
@@ -191,7 +195,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             90.0,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow.png"))
         .assertSimilarity(file, 200, 200, 0);
@@ -207,7 +211,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 2,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10.png"))
         .assertSimilarity(file, 200, 200, 0);
@@ -224,7 +228,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 2,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow-bg.png"))
         .assertSimilarity(file, 200, 200, 0);
@@ -241,7 +245,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 2,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-bg.png"))
         .assertSimilarity(file, 200, 200, 0);
@@ -257,7 +261,7 @@ public class NorthArrowGraphicTest extends AbstractMapfishSpringTest {
             Math.PI / 2,
             getTaskDirectory(),
             this.requestFactoryWrapper,
-            true);
+            this.template);
 
     new ImageSimilarity(getFile(BASE_DIR + "expected-north-arrow_10-default.png"))
         .assertSimilarity(file, 200, 200, 0);
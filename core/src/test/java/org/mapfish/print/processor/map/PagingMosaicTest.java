@@ -0,0 +1,87 @@
+package org.mapfish.print.processor.map;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mapfish.print.map.DistanceUnit;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+public class PagingMosaicTest {
+  private static final double SCALE = 10000.0;
+  private static final Dimension MAP_SIZE = new Dimension(400, 300);
+  // the size of the images of the pages at 150 DPI
+  private static final Dimension SIZE = new Dimension(834, 625);
+  private static final double MIN_X = 2600000.123;
+  private static final double MIN_Y = 1200000.456;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCellsReusedWithoutOverlap() throws Exception {
+    // 3x2 pages aligned on the cells
+    assertEquals(6, renderPages(0.0));
+  }
+
+  @Test
+  public void testCellsReusedWithOverlap() throws Exception {
+    // with an overlap of a quarter of page, the 3x2 pages intersect 3x2 cells
+    assertEquals(6, renderPages(0.25));
+  }
+
+  /** Render the pages like CreateMapPagesProcessor, return the number of rendered cells. */
+  private int renderPages(final double overlapRatio) throws Exception {
+    final CoordinateReferenceSystem projection = CRS.decode("EPSG:2056");
+    final DistanceUnit unit = DistanceUnit.fromProjection(projection);
+    final double width = DistanceUnit.IN.convertTo(MAP_SIZE.width * SCALE / 72.0, unit);
+    final double height = DistanceUnit.IN.convertTo(MAP_SIZE.height * SCALE / 72.0, unit);
+    final double overlap = width * overlapRatio;
+    final int nbWidth = 3;
+    final int nbHeight = 2;
+    final PagingMosaic mosaic =
+        new PagingMosaic(
+            projection,
+            MIN_X,
+            MIN_Y + (nbHeight - 1) * (height - overlap) + height,
+            SCALE,
+            MAP_SIZE,
+            this.folder.getRoot(),
+            Deflater.DEFAULT_COMPRESSION);
+
+    final AtomicInteger nbRenderedCells = new AtomicInteger();
+    for (int j = 0; j < nbHeight; j++) {
+      for (int i = 0; i < nbWidth; i++) {
+        final double x1 = MIN_X + i * (width - overlap);
+        final double y1 = MIN_Y + j * (height - overlap);
+        final BufferedImage image =
+            mosaic.getImage(
+                0,
+                new ReferencedEnvelope(x1, x1 + width, y1, y1 + height, projection),
+                SIZE,
+                BufferedImage.TYPE_4BYTE_ABGR,
+                (envelope, cell) -> {
+                  nbRenderedCells.incrementAndGet();
+                  assertEquals(width, envelope.getWidth(), 0.001);
+                  assertEquals(height, envelope.getHeight(), 0.001);
+                  final Graphics2D graphics = cell.createGraphics();
+                  graphics.setColor(Color.RED);
+                  graphics.fillRect(0, 0, cell.getWidth(), cell.getHeight());
+                  graphics.dispose();
+                });
+        // the page is fully covered by the cells
+        assertEquals(Color.RED.getRGB(), image.getRGB(0, 0));
+        assertEquals(Color.RED.getRGB(), image.getRGB(SIZE.width - 1, SIZE.height - 1));
+      }
+    }
+    return nbRenderedCells.get();
+  }
+}
@@ -4,9 +4,12 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mapfish.print.servlet.ServletMapPrinterFactory.DEFAULT_CONFIGURATION_FILE_KEY;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import de.saly.javamail.mock2.MailboxFolder;
 import de.saly.javamail.mock2.MockMailbox;
@@ -15,10 +18,12 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import javax.mail.Address;
@@ -56,6 +61,9 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 @ContextConfiguration(locations = {MapPrinterServletTest.PRINT_CONTEXT})
 public class MapPrinterServletTest extends AbstractMapfishSpringTest {
@@ -520,6 +528,91 @@ public class MapPrinterServletTest extends AbstractMapfishSpringTest {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testGetStatus_Wait() throws Exception {
+    setUpConfigFiles();
+    final String ref = createReport();
+
+    int nbStatusRequests = 0;
+    PJsonObject statusJson;
+    do {
+      final MockHttpServletResponse statusResponse = new MockHttpServletResponse();
+      servlet.getStatus("default", ref, "30s", new MockHttpServletRequest(), statusResponse);
+      assertEquals(HttpStatus.OK.value(), statusResponse.getStatus());
+      statusJson = parseJSONObjectFromString(statusResponse.getContentAsString());
+      nbStatusRequests++;
+    } while (!statusJson.getBool(MapPrinterServlet.JSON_DONE));
+
+    // a request only returns on a change of the status: waiting, running then finished
+    assertTrue("nbStatusRequests: " + nbStatusRequests, nbStatusRequests <= 3);
+    assertEquals("finished", statusJson.getString(MapPrinterServlet.JSON_STATUS));
+  }
+
+  @Test
+  public void testGetStatus_InvalidWait() throws Exception {
+    setUpConfigFiles();
+
+    final MockHttpServletResponse statusResponse = new MockHttpServletResponse();
+    servlet.getStatus("default", "ref", "1 minute", new MockHttpServletRequest(), statusResponse);
+    assertEquals(HttpStatus.BAD_REQUEST.value(), statusResponse.getStatus());
+  }
+
+  @Test(timeout = 60000)
+  public void testGetStatusEvents() throws Exception {
+    setUpConfigFiles();
+    final String ref = createReport();
+
+    final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(servlet).build();
+    final MvcResult result =
+        mockMvc
+            .perform(get("/status/" + ref + ".events"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    result.getAsyncResult(TimeUnit.SECONDS.toMillis(50));
+    assertEquals("text/event-stream", result.getResponse().getContentType());
+
+    final List<PJsonObject> events = new ArrayList<>();
+    for (String event : result.getResponse().getContentAsString().split("\n\n")) {
+      if (event.startsWith("event:status\n")) {
+        events.add(parseJSONObjectFromString(event.substring(event.indexOf("data:") + 5)));
+      } else {
+        // the comments sent while the status doesn't change
+        assertEquals(":", event);
+      }
+    }
+    assertFalse(events.isEmpty());
+    for (int i = 1; i < events.size(); i++) {
+      // an event is only sent on a change of the status
+      assertNotEquals(
+          events.get(i - 1).getString(MapPrinterServlet.JSON_STATUS),
+          events.get(i).getString(MapPrinterServlet.JSON_STATUS));
+    }
+    final PJsonObject lastEvent = events.get(events.size() - 1);
+    assertTrue(lastEvent.getBool(MapPrinterServlet.JSON_DONE));
+    assertEquals("finished", lastEvent.getString(MapPrinterServlet.JSON_STATUS));
+    assertEquals("/report/" + ref, lastEvent.getString(MapPrinterServlet.JSON_DOWNLOAD_LINK));
+  }
+
+  @Test
+  public void testGetStatusEvents_NoSuchReference() throws Exception {
+    setUpConfigFiles();
+
+    final MockHttpServletResponse statusResponse = new MockHttpServletResponse();
+    assertNull(
+        servlet.getStatusEventsPath("unknown", new MockHttpServletRequest(), statusResponse));
+    assertEquals(HttpStatus.NOT_FOUND.value(), statusResponse.getStatus());
+  }
+
+  private String createReport() throws IOException, NoSuchAppException {
+    final MockHttpServletResponse servletCreateResponse = new MockHttpServletResponse();
+    servlet.createReport(
+        "png", loadRequestDataAsString(), new MockHttpServletRequest(), servletCreateResponse);
+    assertEquals(HttpStatus.OK.value(), servletCreateResponse.getStatus());
+    final PJsonObject createResponseJson =
+        parseJSONObjectFromString(servletCreateResponse.getContentAsString());
+    return createResponseJson.getString(MapPrinterServlet.JSON_PRINT_JOB_REF);
+  }
+
   @Test(timeout = 60000)
   public void testCancel() throws Exception {
     setUpConfigFiles();
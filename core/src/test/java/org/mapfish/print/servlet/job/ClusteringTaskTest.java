@@ -1,9 +1,11 @@
 package org.mapfish.print.servlet.job;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -78,6 +80,24 @@ public class ClusteringTaskTest extends AbstractMapfishSpringTest {
     assertTrue(jobMan2.getJobsRun() > 0);
   }
 
+  @Test(timeout = 60000)
+  public void testStatusChange() throws Exception {
+    PJsonObject requestData =
+        new PJsonObject(
+            new JSONObject("{\"" + MapPrinterServlet.JSON_APP + "\":\"default\"}"), "job");
+    jobMan1.submit(
+        new PrintJobEntryImpl(
+            "waited job", requestData, System.currentTimeMillis(), new AlwaysAllowAssertion()));
+
+    // the job can be run by any instance, jobMan2 is notified by its status check
+    final long start = System.currentTimeMillis();
+    jobMan2
+        .getStatusChange("waited job", PrintJobStatus.Status.WAITING, TimeUnit.SECONDS.toMillis(30))
+        .get();
+    assertTrue(System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(10));
+    assertNotEquals(PrintJobStatus.Status.WAITING, jobMan2.getStatus("waited job").getStatus());
+  }
+
   private class TestJobManager extends ThreadPoolJobManager {
     private String name;
 
@@ -0,0 +1,36 @@
+package org.mapfish.print.servlet.job.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.mapfish.print.attribute.Attribute;
+import org.mapfish.print.attribute.DataSourceAttribute;
+import org.mapfish.print.attribute.map.MapAttribute;
+import org.mapfish.print.wrapper.json.PJsonObject;
+
+public class PrintJobCostEstimatorTest {
+
+  @Test
+  public void testEstimate() throws Exception {
+    final MapAttribute mapAttribute = new MapAttribute();
+    mapAttribute.setWidth(720);
+    mapAttribute.setHeight(360);
+    final DataSourceAttribute dataSourceAttribute = new DataSourceAttribute();
+    dataSourceAttribute.setAttributes(Map.of("map", mapAttribute));
+    final Map<String, Attribute> attributes =
+        Map.of("map", mapAttribute, "pages", dataSourceAttribute);
+
+    final String map = "{'dpi': 144, 'layers': [{}, {}, {}]}";
+    final PJsonObject values =
+        new PJsonObject(
+            new JSONObject(
+                "{'map': " + map + ", 'pages': [{'map': " + map + "}, {'map': " + map + "}]}"),
+            "spec");
+
+    // 1440 * 720 pixels, 3 layers, one map in the page and one in each of the 2 rows
+    assertEquals(
+        1440.0 * 720.0 * 3.0 * 3.0, PrintJobCostEstimator.estimate(attributes, values), 0.001);
+  }
+}
@@ -0,0 +1,106 @@
+package org.mapfish.print.servlet.job.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mapfish.print.config.Configuration;
+import org.mapfish.print.config.access.AccessAssertion;
+import org.mapfish.print.config.access.AlwaysAllowAssertion;
+import org.mapfish.print.config.access.RoleAccessAssertion;
+import org.mapfish.print.servlet.job.PrintJobEntry;
+import org.mapfish.print.servlet.job.PrintJobResult;
+import org.mapfish.print.wrapper.json.PJsonObject;
+
+public class PrintJobResultCacheTest {
+  private static final Predicate<String> FORWARDED = Set.of("authorization")::contains;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testHash() {
+    final String hash =
+        PrintJobResultCache.hash(
+            "app",
+            new JSONObject(
+                "{'layout': 'A4', 'attributes': {'title': 'T', 'map': {'dpi': 72, 'center': [1,"
+                    + " 2]}, 'requestHeaders': {'requestHeaders': {'Authorization': ['a'],"
+                    + " 'User-Agent': ['b']}}}}"),
+            FORWARDED);
+
+    // the order of the keys and the headers that are not forwarded don't matter
+    assertEquals(
+        hash,
+        PrintJobResultCache.hash(
+            "app",
+            new JSONObject(
+                "{'attributes': {'requestHeaders': {'requestHeaders': {'User-Agent': ['c'],"
+                    + " 'Authorization': ['a']}}, 'map': {'center': [1, 2], 'dpi': 72}, 'title':"
+                    + " 'T'}, 'layout': 'A4'}"),
+            FORWARDED));
+    assertNotEquals(
+        hash,
+        PrintJobResultCache.hash(
+            "app",
+            new JSONObject(
+                "{'layout': 'A4', 'attributes': {'title': 'T', 'map': {'dpi': 72, 'center': [2,"
+                    + " 1]}, 'requestHeaders': {'requestHeaders': {'Authorization': ['a']}}}}"),
+            FORWARDED));
+    assertNotEquals(
+        hash,
+        PrintJobResultCache.hash(
+            "app",
+            new JSONObject(
+                "{'layout': 'A4', 'attributes': {'title': 'T', 'map': {'dpi': 72, 'center': [1,"
+                    + " 2]}, 'requestHeaders': {'requestHeaders': {'Authorization': ['b']}}}}"),
+            FORWARDED));
+    assertNotEquals(
+        hash,
+        PrintJobResultCache.hash(
+            "other",
+            new JSONObject(
+                "{'layout': 'A4', 'attributes': {'title': 'T', 'map': {'dpi': 72, 'center': [1,"
+                    + " 2]}, 'requestHeaders': {'requestHeaders': {'Authorization': ['a']}}}}"),
+            FORWARDED));
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    final PrintJobResultCache cache = new PrintJobResultCache(10, 60);
+    final Configuration configuration = new Configuration();
+    final PrintJobResultCache.Key key = new PrintJobResultCache.Key("hash", configuration);
+    final File report = this.folder.newFile("report.pdf");
+    final PrintJobResult result =
+        new PrintJobResultImpl(report.toURI(), "report", "pdf", "application/pdf", "ref");
+    cache.put(key, createEntry(AlwaysAllowAssertion.INSTANCE), result);
+
+    assertEquals(result, cache.get(key));
+    // the configuration has been reloaded
+    assertNull(cache.get(new PrintJobResultCache.Key("hash", new Configuration())));
+    assertNull(cache.get(key));
+
+    // the user doesn't have access to the job
+    final RoleAccessAssertion access = new RoleAccessAssertion();
+    access.setRequiredRoles(Set.of("ROLE_USER"));
+    cache.put(key, createEntry(access), result);
+    assertNull(cache.get(key));
+
+    // the report has been deleted
+    cache.put(key, createEntry(AlwaysAllowAssertion.INSTANCE), result);
+    assertEquals(result, cache.get(key));
+    report.delete();
+    assertNull(cache.get(key));
+  }
+
+  private static PrintJobEntry createEntry(final AccessAssertion access) {
+    return new PrintJobEntryImpl(
+        "ref", new PJsonObject(new JSONObject("{'app': 'app'}"), "spec"), 0L, access);
+  }
+}
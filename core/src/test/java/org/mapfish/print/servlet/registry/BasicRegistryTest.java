@@ -2,6 +2,11 @@ package org.mapfish.print.servlet.registry;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.mapfish.print.AbstractMapfishSpringTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,4 +32,34 @@ public class BasicRegistryTest extends AbstractMapfishSpringTest {
     registry.incrementInt(key, 2);
     assertEquals(4, registry.getNumber(key));
   }
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    final String intKey = "key3";
+    final String longKey = "key4";
+    final int nbThreads = 64;
+    final int nbIncrements = 1000;
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < nbThreads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int j = 0; j < nbIncrements; j++) {
+                    registry.incrementInt(intKey, 1);
+                    registry.incrementLong(longKey, 2L);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(nbThreads * nbIncrements, registry.getNumber(intKey));
+    assertEquals(2L * nbThreads * nbIncrements, registry.getNumber(longKey));
+    assertEquals(Integer.valueOf(nbThreads * nbIncrements), registry.opt(intKey, 0));
+  }
 }